@@ -0,0 +1,60 @@
+package com.PayMyBuddy.benchmark;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQL shared by the benchmarks that load their rows into a PostgreSQL database, or into H2 in
+ * PostgreSQL mode for a quick run.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static boolean isPostgres(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().equals("PostgreSQL");
+    }
+
+    /**
+     * Drops the tables of the application and creates them again, empty. H2 has no partial
+     * indexes, so their predicate is dropped there and a full index is built instead.
+     */
+    static void recreateSchema(Connection connection) throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS user_feed, billing_summary_delta, billing_daily_summary, " +
+                    "idempotency_record, user_stats, billing_outbox, billing, transaction, connection, user_account CASCADE");
+        }
+        String schema = new ClassPathResource("sql/database_schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        if (!isPostgres(connection)) {
+            schema = schema.replaceAll("(CREATE INDEX[^;]*\\))\\s+WHERE[^;]*", "$1");
+        }
+        ScriptUtils.executeSqlScript(connection, new ByteArrayResource(schema.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * FROM clause giving the values from to to, both included, as the column x.
+     */
+    static String series(boolean postgres, long from, long to) {
+        return postgres
+                ? "FROM generate_series(CAST(" + from + " AS BIGINT), CAST(" + to + " AS BIGINT)) AS x"
+                : "FROM SYSTEM_RANGE(" + from + ", " + to + ") AS s(x)";
+    }
+
+    /**
+     * Timestamp of x units after 2020-01-01 00:00:00.
+     * @param unit SECOND or DAY
+     */
+    static String after2020(boolean postgres, String x, String unit) {
+        return postgres
+                ? "TIMESTAMP '2020-01-01 00:00:00' + " + x + " * INTERVAL '1 " + unit.toLowerCase() + "'"
+                : "DATEADD(" + unit + ", " + x + ", TIMESTAMP '2020-01-01 00:00:00')";
+    }
+}
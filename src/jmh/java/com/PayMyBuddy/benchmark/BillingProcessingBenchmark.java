@@ -0,0 +1,146 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.Application;
+import com.PayMyBuddy.service.BillingService;
+import com.PayMyBuddy.service.BillingSummaryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Month-end run of BillingService.processUnprocessedBillings: 500,000 unprocessed billings spread
+ * over 30 days by default, processed in chunks of batchSize rows, each chunk in its own database
+ * transaction. The score is the time of a whole run; the iteration teardown prints it in rows/s.
+ * <p>
+ * The setup loads the schema and the rows into the database of the url parameter, an empty
+ * PostgreSQL database by default, and keeps them for the next runs with the same parameters.
+ * Before each run, every billing is marked unprocessed again and the daily summary is rebuilt:
+ * <pre>
+ * createdb paymybuddy_bench
+ * mvn -Pbenchmarks -DskipTests verify -Djmh.args="BillingProcessingBenchmark -p user=postgres -p password=..."
+ * </pre>
+ * For a quick run without PostgreSQL:
+ * -p url=jdbc:h2:mem:billing;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1 -p billings=100000
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BillingProcessingBenchmark {
+
+    private static final long LOAD_BATCH = 1_000_000;
+    private static final int DAYS = 30;
+
+    @Param({"jdbc:postgresql://localhost:5432/paymybuddy_bench"})
+    private String url;
+
+    @Param({"postgres"})
+    private String user;
+
+    @Param({""})
+    private String password;
+
+    @Param({"500000"})
+    private long billings;
+
+    @Param({"100", "1000", "10000"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private BillingService billingService;
+    private BillingSummaryService billingSummaryService;
+    private long processed;
+    private long elapsedNanos;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        // The rows are loaded before the application starts, as it reads the tables on startup
+        SingleConnectionDataSource loadDataSource = new SingleConnectionDataSource(url, user, password, true);
+        try {
+            if (!isLoaded(new JdbcTemplate(loadDataSource))) {
+                load(loadDataSource);
+            }
+        } finally {
+            loadDataSource.destroy();
+        }
+
+        context = new SpringApplicationBuilder(Application.class)
+                .properties("spring.main.web-application-type=none", "spring.main.banner-mode=off",
+                        "logging.level.root=warn", "spring.devtools.restart.enabled=false",
+                        "spring.datasource.url=" + url, "spring.datasource.username=" + user,
+                        "spring.datasource.password=" + password,
+                        // The schema is the one loaded above, even in an H2 database
+                        "spring.jpa.hibernate.ddl-auto=none", "spring.sql.init.mode=never",
+                        "paymybuddy.billing.batch-size=" + batchSize)
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        billingService = context.getBean(BillingService.class);
+        billingSummaryService = context.getBean(BillingSummaryService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private boolean isLoaded(JdbcTemplate jdbcTemplate) {
+        try {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM billing", Long.class) == billings;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void load(SingleConnectionDataSource dataSource) throws SQLException, IOException {
+        Connection connection = dataSource.getConnection();
+        boolean postgres = BenchmarkDatabase.isPostgres(connection);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        BenchmarkDatabase.recreateSchema(connection);
+
+        // Billing x is the fee of transaction x, sent by user 1 to user 2 on day MOD(x, DAYS)
+        jdbcTemplate.update("INSERT INTO user_account (id, email, password, first_name, last_name, balance) " +
+                "SELECT x, 'user' || x || '@example.com', 'password', 'First' || x, 'Last' || x, 0 " +
+                BenchmarkDatabase.series(postgres, 1, 2));
+        String day = BenchmarkDatabase.after2020(postgres, "MOD(x, " + DAYS + ")", "DAY");
+        for (long from = 1; from <= billings; from += LOAD_BATCH) {
+            long to = Math.min(billings, from + LOAD_BATCH - 1);
+            jdbcTemplate.update("INSERT INTO transaction (id, sender_id, receiver_id, amount, fee, description, date) " +
+                    "SELECT x, 1, 2, 1 + MOD(x, 10000) / 100.0, 0.01, 'Payment', " + day + " " +
+                    BenchmarkDatabase.series(postgres, from, to));
+            jdbcTemplate.update("INSERT INTO billing (id, transaction_id, amount, date, processed, fee_percentage, description) " +
+                    "SELECT x, x, 0.01, " + day + ", FALSE, 0.5, 'Fee' " +
+                    BenchmarkDatabase.series(postgres, from, to));
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetBillings() {
+        jdbcTemplate.update("UPDATE billing SET processed = FALSE WHERE processed = TRUE");
+        billingSummaryService.rebuildAll();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printThroughput() {
+        System.out.printf("%nbatch size %d: %d billings in %.1f s, %.0f rows/s%n", batchSize, processed,
+                elapsedNanos / 1e9, processed / (elapsedNanos / 1e9));
+    }
+
+    @Benchmark
+    public long processUnprocessedBillings() {
+        long start = System.nanoTime();
+        processed = billingService.processUnprocessedBillings();
+        elapsedNanos = System.nanoTime() - start;
+        return processed;
+    }
+}
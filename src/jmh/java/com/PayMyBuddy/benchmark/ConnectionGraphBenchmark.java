@@ -0,0 +1,91 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.service.ConnectionGraph;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contact check of a transfer in the ConnectionGraph, with 10 million contacts by default
+ * (200,000 owners of 50 contacts). The setup prints the heap taken by the graph per contact,
+ * so the fork needs a heap of about 1 GB: add -Djmh.args="ConnectionGraphBenchmark -jvmArgs -Xmx2g"
+ * if the default heap of the machine is smaller.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionGraphBenchmark {
+
+    private static final int DEGREE = 50;
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10000000"})
+    private int edges;
+
+    private ConnectionGraph connectionGraph;
+    private long[] owners;
+    private long[] friends;
+    private long[] strangers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int ownerCount = edges / DEGREE;
+        long heapBefore = usedHeap();
+        connectionGraph = new ConnectionGraph(null,
+                InMemoryRepositories.of(PlatformTransactionManager.class, Map.of()), new SimpleMeterRegistry());
+        connectionGraph.rebuild(source -> {
+            for (long owner = 1; owner <= ownerCount; owner++) {
+                for (int i = 0; i < DEGREE; i++) {
+                    source.accept(owner, friendOf(owner, i, ownerCount));
+                }
+            }
+        });
+        long heapAfter = usedHeap();
+        System.out.printf("%nConnection graph: %,d contacts, %.1f bytes per contact%n",
+                connectionGraph.edgeCount(), (heapAfter - heapBefore) / (double) connectionGraph.edgeCount());
+
+        // Contacts that exist, and pairs that do not, drawn once so that the lookups do not allocate
+        SplittableRandom random = new SplittableRandom(42);
+        owners = new long[LOOKUPS];
+        friends = new long[LOOKUPS];
+        strangers = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            owners[i] = 1 + random.nextInt(ownerCount);
+            friends[i] = friendOf(owners[i], random.nextInt(DEGREE), ownerCount);
+            strangers[i] = ownerCount + 1 + random.nextInt(ownerCount);
+        }
+    }
+
+    // Friends spread over the whole ID range, the same for each run
+    private static long friendOf(long owner, int index, int ownerCount) {
+        return 1 + (owner * 7919 + index * 104_729L) % ownerCount;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public boolean existingContact() {
+        int i = next++ & (LOOKUPS - 1);
+        return connectionGraph.isConnected(owners[i], friends[i]);
+    }
+
+    @Benchmark
+    public boolean unknownContact() {
+        int i = next++ & (LOOKUPS - 1);
+        return connectionGraph.isConnected(owners[i], strangers[i]);
+    }
+}
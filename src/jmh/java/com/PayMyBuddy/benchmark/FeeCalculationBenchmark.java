@@ -0,0 +1,62 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.model.FeeRate;
+import com.PayMyBuddy.model.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the fee calculation done on every transfer, compared with the former BigDecimal
+ * calculation, plus the bulk calculation over 1,000 amounts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeeCalculationBenchmark {
+
+    @Param({"12.34", "1000.00", "98765.43"})
+    private String amount;
+
+    private BigDecimal amountValue;
+    private BigDecimal feePercentage;
+    private Money money;
+    private FeeRate feeRate;
+    private long[] amounts;
+    private long[] fees;
+
+    @Setup
+    public void setUp() {
+        amountValue = new BigDecimal(amount);
+        feePercentage = new BigDecimal("0.5");
+        money = Money.of(amountValue);
+        feeRate = FeeRate.ofPercentage(feePercentage);
+        amounts = new long[1000];
+        fees = new long[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = money.cents() + i;
+        }
+    }
+
+    // Former Billing.calculateFee, whose result was rounded to the cent by the DECIMAL(19, 2) column
+    @Benchmark
+    public BigDecimal bigDecimalFee() {
+        return amountValue.multiply(feePercentage.divide(new BigDecimal("100")));
+    }
+
+    @Benchmark
+    public long feeRateCents() {
+        return feeRate.feeOf(money.cents());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public long[] feeRateBulk() {
+        feeRate.feesOf(amounts, fees);
+        return fees;
+    }
+}
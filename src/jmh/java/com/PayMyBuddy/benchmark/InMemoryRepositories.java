@@ -0,0 +1,27 @@
+package com.PayMyBuddy.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds in-memory stand-ins of the Spring Data repositories, so that the services can be
+ * benchmarked without a database. Only the methods given are implemented, any other call fails.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T of(Class<T> repositoryType, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> {
+                    Function<Object[], Object> implementation = methods.get(method.getName());
+                    if (implementation == null) {
+                        throw new UnsupportedOperationException(repositoryType.getSimpleName() + "." + method.getName());
+                    }
+                    return implementation.apply(args);
+                });
+    }
+}
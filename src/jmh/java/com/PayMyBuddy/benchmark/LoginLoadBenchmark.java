@@ -0,0 +1,88 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.config.BoundedPasswordEncoder;
+import com.PayMyBuddy.config.PasswordHashingRejectedException;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins and transfers running together: 6 threads check BCrypt passwords (strength 10) while
+ * 2 threads make in-memory transfers. With direct hashing every login thread takes a core, as the
+ * request threads did; with bounded hashing at most half of the cores hash and the logins beyond
+ * the queue (2 waiting) are refused at once.
+ * <p>
+ * Compare the transfer time of the two modes, and the logins per second:
+ * the accepted counter of an iteration divided by its time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class LoginLoadBenchmark {
+
+    @Param({"direct", "bounded"})
+    private String hashing;
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+    private TransactionService transactionService;
+    private BigDecimal amount;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = hashing.equals("bounded")
+                ? new BoundedPasswordEncoder(10, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 2,
+                        new SimpleMeterRegistry())
+                : new BCryptPasswordEncoder(10);
+        hash = new BCryptPasswordEncoder(10).encode("password");
+        transactionService = TransferBenchmark.inMemoryTransactionService(false);
+        amount = new BigDecimal("125.40");
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (passwordEncoder instanceof BoundedPasswordEncoder boundedPasswordEncoder) {
+            boundedPasswordEncoder.shutdown();
+        }
+    }
+
+    /**
+     * Logins of one thread, accepted or refused by the hashing pool.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class LoginCounters {
+        public long accepted;
+        public long rejected;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public boolean login(LoginCounters counters) {
+        try {
+            boolean matches = passwordEncoder.matches("password", hash);
+            counters.accepted++;
+            return matches;
+        } catch (PasswordHashingRejectedException e) {
+            counters.rejected++;
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public Transaction transfer() {
+        return transactionService.makeTransaction(1L, 2L, amount, "Restaurant");
+    }
+}
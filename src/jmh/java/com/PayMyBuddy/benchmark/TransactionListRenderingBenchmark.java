@@ -0,0 +1,102 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.Application;
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.ConnectionView;
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserAccount;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the transactions page with a 1,000-row history through the application's
+ * own Thymeleaf view resolver, layout and security dialect included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionListRenderingBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private View view;
+    private Map<String, Object> model;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=warn",
+                        // devtools would otherwise turn the template cache off
+                        "spring.devtools.restart.enabled=false", "spring.devtools.add-properties=false")
+                .run();
+        view = context.getBean(ThymeleafViewResolver.class).resolveViewName("transactions", Locale.FRANCE);
+
+        UserAccount account = new UserAccount();
+        account.setId(1L);
+        account.setEmail("john.doe@example.com");
+        account.setPassword("password");
+        account.setFirstName("John");
+        account.setLastName("Doe");
+        AuthenticatedUser user = new AuthenticatedUser(account, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+        LocalDateTime date = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<TransactionView> transactions = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add(new TransactionView((long) ROWS - i, "Contact " + (i % 50), i % 3 == 0,
+                    Money.ofCents(i * 100L + 25), Money.ofCents(5), date.minusMinutes(i),
+                    i % 4 == 0 ? null : "Payment " + i));
+        }
+
+        model = new HashMap<>();
+        model.put("user", user);
+        model.put("connections", List.of(new ConnectionView(1L, 2L, "Jane Smith", "jane.smith@example.com")));
+        model.put("transactions", transactions);
+        model.put("hasMore", true);
+        model.put("nextDate", date.minusMinutes(ROWS));
+        model.put("nextId", 1L);
+        model.put("firstPage", true);
+
+        if (!renderTransactions().contains("Payment " + (ROWS - 1))) {
+            throw new IllegalStateException("The transactions page was not rendered with all its rows");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Benchmark
+    public String renderTransactions() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(
+                ((WebApplicationContext) context).getServletContext(), "GET", "/transactions");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        view.render(model, request, response);
+        return response.getContentAsString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.dto.UserAccountSummary;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingDailySummaryRepository;
+import com.PayMyBuddy.repository.BillingOutboxRepository;
+import com.PayMyBuddy.repository.BillingRepository;
+import com.PayMyBuddy.repository.BillingSummaryDeltaRepository;
+import com.PayMyBuddy.repository.ConnectionRepository;
+import com.PayMyBuddy.repository.TransactionRepository;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import com.PayMyBuddy.repository.UserFeedRepository;
+import com.PayMyBuddy.repository.UserStatsRepository;
+import com.PayMyBuddy.service.BillingSummaryService;
+import com.PayMyBuddy.service.ConnectionGraph;
+import com.PayMyBuddy.service.TransactionService;
+import com.PayMyBuddy.service.UserLookupService;
+import com.PayMyBuddy.service.UserStatsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of TransactionService.makeTransaction outside of the database: validation, fee
+ * calculation and the creation of the transaction and of its billing. The repositories are
+ * in-memory stand-ins, so the result is the CPU cost added to the SQL round trips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    @Param({"false", "true"})
+    private boolean asyncBilling;
+
+    private TransactionService transactionService;
+    private BigDecimal amount;
+
+    @Setup
+    public void setUp() {
+        transactionService = inMemoryTransactionService(asyncBilling);
+        amount = new BigDecimal("125.40");
+    }
+
+    /**
+     * TransactionService over in-memory repositories, where account 1 is connected to account 2.
+     */
+    static TransactionService inMemoryTransactionService(boolean asyncBilling) {
+        UserAccount sender = user(1L, "sender@example.com");
+        UserAccount receiver = user(2L, "receiver@example.com");
+        Map<Long, UserAccount> users = Map.of(1L, sender, 2L, receiver);
+        AtomicLong transactionIds = new AtomicLong();
+
+        UserAccountRepository userAccountRepository = InMemoryRepositories.of(UserAccountRepository.class,
+                Map.of("findSummaryById", args -> Optional.ofNullable(users.get((Long) args[0]))
+                                .map(user -> new UserAccountSummary(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName())),
+                        "getReferenceById", args -> users.get((Long) args[0]),
+                        "debit", args -> 1,
+                        "credit", args -> 1));
+        ConnectionRepository connectionRepository = InMemoryRepositories.of(ConnectionRepository.class,
+                Map.of("existsByOwnerIdAndFriendId", args -> args[0].equals(1L) && args[1].equals(2L)));
+        // Without a CacheManager every lookup goes to the repositories, as on a cache miss
+        UserLookupService userLookupService = new UserLookupService(userAccountRepository, connectionRepository,
+                InMemoryRepositories.of(ObjectProvider.class, Map.of("getIfAvailable", args -> null)));
+        TransactionRepository transactionRepository = InMemoryRepositories.of(TransactionRepository.class,
+                Map.of("save", args -> {
+                    Transaction transaction = (Transaction) args[0];
+                    transaction.setId(transactionIds.incrementAndGet());
+                    return transaction;
+                }));
+        UserFeedRepository userFeedRepository = InMemoryRepositories.of(UserFeedRepository.class,
+                Map.of("insertTransfers", args -> null));
+        BillingRepository billingRepository = InMemoryRepositories.of(BillingRepository.class,
+                Map.of("save", args -> args[0]));
+        BillingOutboxRepository billingOutboxRepository = InMemoryRepositories.of(BillingOutboxRepository.class,
+                Map.of("save", args -> args[0]));
+        UserStatsRepository userStatsRepository = InMemoryRepositories.of(UserStatsRepository.class,
+                Map.of("addSent", args -> 1, "addReceived", args -> 1));
+        // Only the rebuild uses the transaction manager, never a transfer
+        UserStatsService userStatsService = new UserStatsService(userStatsRepository,
+                InMemoryRepositories.of(PlatformTransactionManager.class, Map.of()));
+        BillingSummaryService billingSummaryService = new BillingSummaryService(
+                InMemoryRepositories.of(BillingDailySummaryRepository.class, Map.of("addAll", args -> new int[]{1})),
+                InMemoryRepositories.of(BillingSummaryDeltaRepository.class, Map.of("save", args -> args[0])),
+                billingRepository, InMemoryRepositories.of(PlatformTransactionManager.class, Map.of()));
+        // The contact is found in the graph, loaded from a source instead of the database
+        ConnectionGraph connectionGraph = new ConnectionGraph(null,
+                InMemoryRepositories.of(PlatformTransactionManager.class, Map.of()), new SimpleMeterRegistry());
+        connectionGraph.rebuild(edges -> edges.accept(1L, 2L));
+
+        TransactionService transactionService = new TransactionService(transactionRepository, userFeedRepository,
+                userAccountRepository, userLookupService, connectionGraph, billingRepository, billingOutboxRepository,
+                userStatsService, billingSummaryService, new SimpleMeterRegistry());
+        transactionService.setFeePercentage(new BigDecimal("0.5"));
+        ReflectionTestUtils.setField(transactionService, "asyncBilling", asyncBilling);
+        return transactionService;
+    }
+
+    private static UserAccount user(Long id, String email) {
+        UserAccount user = new UserAccount();
+        user.setId(id);
+        user.setEmail(email);
+        user.setFirstName("First");
+        user.setLastName("Last");
+        return user;
+    }
+
+    @Benchmark
+    public Transaction makeTransaction() {
+        return transactionService.makeTransaction(1L, 2L, amount, "Restaurant");
+    }
+}
@@ -0,0 +1,155 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.repository.UserFeedRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of a user's history read from the transaction table ("sender = ? OR receiver = ?",
+ * as the history was read before user_feed existed) and from user_feed (UserFeedRepository), on
+ * 50 million transactions between 100,000 users by default, so about 1,000 per user.
+ * <p>
+ * The setup loads the schema and the rows into the database of the url parameter, an empty
+ * PostgreSQL database by default, and keeps them for the next runs with the same parameters:
+ * <pre>
+ * createdb paymybuddy_bench
+ * mvn -Pbenchmarks -DskipTests verify -Djmh.args="UserFeedQueryBenchmark -p user=postgres -p password=..."
+ * </pre>
+ * For a quick run without PostgreSQL:
+ * -p url=jdbc:h2:mem:feed;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1 -p transactions=1000000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserFeedQueryBenchmark {
+
+    private static final int PAGE_SIZE = 21;
+    private static final long LOAD_BATCH = 1_000_000;
+
+    private static final String TRANSACTION_TABLE_PAGE =
+            "SELECT t.id, CASE WHEN r.id = ? THEN s.first_name || ' ' || s.last_name " +
+            "ELSE r.first_name || ' ' || r.last_name END, r.id = ?, t.amount, t.fee, t.date, t.description " +
+            "FROM transaction t JOIN user_account s ON s.id = t.sender_id JOIN user_account r ON r.id = t.receiver_id " +
+            "WHERE t.sender_id = ? OR t.receiver_id = ? ORDER BY t.date DESC, t.id DESC LIMIT " + PAGE_SIZE;
+    private static final String USER_FEED_PAGE =
+            "SELECT f.transaction_id, c.first_name || ' ' || c.last_name, f.incoming, f.amount, f.fee, f.date, f.description " +
+            "FROM user_feed f JOIN user_account c ON c.id = f.counterparty_id " +
+            "WHERE f.user_id = ? ORDER BY f.date DESC, f.transaction_id DESC LIMIT " + PAGE_SIZE;
+
+    @Param({"jdbc:postgresql://localhost:5432/paymybuddy_bench"})
+    private String url;
+
+    @Param({"postgres"})
+    private String user;
+
+    @Param({""})
+    private String password;
+
+    @Param({"50000000"})
+    private long transactions;
+
+    @Param({"100000"})
+    private int users;
+
+    private SingleConnectionDataSource dataSource;
+    private PreparedStatement transactionTablePage;
+    private PreparedStatement userFeedPage;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        dataSource = new SingleConnectionDataSource(url, user, password, true);
+        Connection connection = dataSource.getConnection();
+        if (!isLoaded()) {
+            load(connection);
+        }
+        transactionTablePage = connection.prepareStatement(TRANSACTION_TABLE_PAGE);
+        userFeedPage = connection.prepareStatement(USER_FEED_PAGE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    private boolean isLoaded() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_account", Long.class) == users
+                    && jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_feed", Long.class) == 2 * transactions;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void load(Connection connection) throws SQLException, IOException {
+        boolean postgres = BenchmarkDatabase.isPostgres(connection);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        BenchmarkDatabase.recreateSchema(connection);
+
+        // Each transaction x is sent by a pseudo-random user to another one, one second after x - 1
+        jdbcTemplate.update("INSERT INTO user_account (id, email, password, first_name, last_name, balance) " +
+                "SELECT x, 'user' || x || '@example.com', 'password', 'First' || x, 'Last' || x, 0 " +
+                BenchmarkDatabase.series(postgres, 1, users));
+        for (long from = 1; from <= transactions; from += LOAD_BATCH) {
+            long to = Math.min(transactions, from + LOAD_BATCH - 1);
+            jdbcTemplate.update("INSERT INTO transaction (id, sender_id, receiver_id, amount, fee, description, date) " +
+                    "SELECT x, 1 + MOD(x * 7919, " + users + "), " +
+                    "1 + MOD(MOD(x * 7919, " + users + ") + 1 + MOD(x, " + (users - 1) + "), " + users + "), " +
+                    "1 + MOD(x, 10000) / 100.0, 0.01, 'Payment', " + BenchmarkDatabase.after2020(postgres, "x", "SECOND") + " " +
+                    BenchmarkDatabase.series(postgres, from, to));
+        }
+
+        // The feed is filled with the backfill query of the application
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        for (long from = 1; from <= transactions; from += LOAD_BATCH) {
+            namedParameterJdbcTemplate.update(UserFeedRepository.INSERT_MISSING,
+                    new MapSqlParameterSource("fromId", from).addValue("toId", from + LOAD_BATCH));
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private long nextUser() {
+        return 1 + random.nextInt(users);
+    }
+
+    @Benchmark
+    public int transactionTable() throws SQLException {
+        long userId = nextUser();
+        for (int i = 1; i <= 4; i++) {
+            transactionTablePage.setLong(i, userId);
+        }
+        return countRows(transactionTablePage);
+    }
+
+    @Benchmark
+    public int userFeed() throws SQLException {
+        userFeedPage.setLong(1, nextUser());
+        return countRows(userFeedPage);
+    }
+
+    private static int countRows(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getString(2);
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,124 @@
+package com.PayMyBuddy.benchmark;
+
+import com.PayMyBuddy.config.ConnectionLimitingDataSource;
+import com.PayMyBuddy.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 2,000 sessions sending a transfer at the same time, served by 200 platform threads (the Tomcat
+ * default) or by one virtual thread each. A request waits waitMillis outside of the database (network,
+ * rendering) and holds a connection for queryMillis, through a {@link ConnectionLimitingDataSource}
+ * of the given number of connections, around an in-memory transfer.
+ * <p>
+ * The score is the time to serve the 2,000 sessions; the teardown prints the sessions per second
+ * and the p99 latency. The virtual mode needs Java 21: run with mvn -Pbenchmarks,java21.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadSessionsBenchmark {
+
+    private static final int SESSIONS = 2000;
+    private static final int TOMCAT_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"10", "50"})
+    private int connections;
+
+    @Param({"2"})
+    private int queryMillis;
+
+    @Param({"5"})
+    private int waitMillis;
+
+    private ExecutorService executor;
+    private DataSource dataSource;
+    private TransactionService transactionService;
+    private BigDecimal amount;
+    private long[] latencies;
+    private final List<Long> batchNanos = new ArrayList<>();
+    private final List<Long> p99Nanos = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        executor = threads.equals("virtual")
+                // Java 21 API, called by reflection so that the benchmarks still compile on Java 17
+                ? (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)
+                : Executors.newFixedThreadPool(TOMCAT_THREADS);
+        DataSource pool = InMemoryRepositories.of(DataSource.class, Map.of("getConnection",
+                args -> InMemoryRepositories.of(Connection.class, Map.of("close", closeArgs -> null))));
+        dataSource = new ConnectionLimitingDataSource(pool, connections, TimeUnit.MINUTES.toMillis(1));
+        transactionService = TransferBenchmark.inMemoryTransactionService(false);
+        amount = new BigDecimal("125.40");
+        latencies = new long[SESSIONS];
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+        long batch = median(batchNanos);
+        System.out.printf("%n%s threads, %d connections: %.0f sessions/s, p99 %.1f ms%n", threads, connections,
+                SESSIONS / (batch / 1e9), median(p99Nanos) / 1e6);
+    }
+
+    private static long median(List<Long> values) {
+        return values.stream().sorted().skip(values.size() / 2).findFirst().orElse(0L);
+    }
+
+    @Benchmark
+    public long sessions() throws InterruptedException {
+        CountDownLatch served = new CountDownLatch(SESSIONS);
+        long start = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i++) {
+            int session = i;
+            executor.execute(() -> {
+                try {
+                    request();
+                    latencies[session] = System.nanoTime() - start;
+                } finally {
+                    served.countDown();
+                }
+            });
+        }
+        served.await();
+        long batch = System.nanoTime() - start;
+
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        batchNanos.add(batch);
+        p99Nanos.add(sorted[(int) (SESSIONS * 0.99) - 1]);
+        return batch;
+    }
+
+    private void request() {
+        try {
+            Thread.sleep(waitMillis);
+            try (Connection connection = dataSource.getConnection()) {
+                Thread.sleep(queryMillis);
+                transactionService.makeTransaction(1L, 2L, amount, "Restaurant");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
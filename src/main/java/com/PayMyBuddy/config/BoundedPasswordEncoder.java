@@ -0,0 +1,153 @@
+package com.PayMyBuddy.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt encoder whose hashes run on a small dedicated pool instead of the request threads, so
+ * that a burst of logins or registrations takes at most that many cores and leaves the others to
+ * the transfers. The request thread waits for its hash; when the queue of the pool is full the
+ * hash is refused at once with a {@link PasswordHashingRejectedException}.
+ * <p>
+ * The BCrypt strength is either fixed, or calibrated at startup to the highest strength whose hash
+ * takes at most a target time on this machine. Hashes made with a lower strength are upgraded at
+ * the next login (see {@link #upgradeEncoding(String)}).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    // Bounds of BCryptPasswordEncoder, and the strength below which a calibration never goes
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 31;
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final Counter rejected;
+
+    /**
+     * @param strength the BCrypt strength (log2 of the rounds)
+     * @param threads the number of hashes computed at the same time
+     * @param queueCapacity the number of hashes waiting for a thread before the next ones are refused
+     */
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        // executor.* meters (queued, active, completed) tagged name=passwordHashing
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "passwordHashing");
+        this.rejected = Counter.builder("paymybuddy.password.hash.rejected")
+                .description("Password hashes refused because the hashing queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Finds the highest strength whose hash takes at most the target time, from one timed hash
+     * at the lowest strength: each strength above doubles the time.
+     * @param targetMillis the time a hash should take
+     * @param maxStrength the highest strength returned
+     * @return a strength between 10 and maxStrength
+     */
+    public static int calibrate(long targetMillis, int maxStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        // The first hash also loads and compiles the BCrypt code: keep the fastest of three
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        int strength = MIN_STRENGTH;
+        long target = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        while (strength < Math.min(maxStrength, MAX_STRENGTH) && nanos * 2 <= target) {
+            strength++;
+            nanos *= 2;
+        }
+        logger.info("BCrypt strength calibrated to {}: about {} ms per hash (target {} ms)",
+                strength, TimeUnit.NANOSECONDS.toMillis(nanos), targetMillis);
+        return strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @return true when the hash was made with a lower strength, so that DaoAuthenticationProvider
+     * stores a new hash through the UserDetailsPasswordService after a successful login
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Callable<T> hash) {
+        Future<T> result;
+        try {
+            result = executor.submit(hash);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many password checks in progress, please try again", e);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the hashing threads, called by Spring when the context closes.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "password-hash-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.PayMyBuddy.config;
+
+import com.PayMyBuddy.service.UserLookupService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Local caches of UserLookupService and UserDetailsCache, bounded in size and in age. The age bounds how long
+     * another instance of the application may see a profile or contact change made elsewhere; the login
+     * cache has its own, shorter age, as a password changed elsewhere keeps working until it expires.
+     * Hits and misses are published by Spring Boot as the cache.gets meter, tagged by cache and result.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${paymybuddy.cache.max-size:10000}") long maxSize,
+                                     @Value("${paymybuddy.cache.ttl-minutes:10}") long ttlMinutes,
+                                     @Value("${paymybuddy.cache.user-details-ttl-minutes:2}") long userDetailsTtlMinutes) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats());
+        // Misses are not cached: an account created later must be found at once
+        cacheManager.setAllowNullValues(false);
+        // Caches created at startup, so that their meters are registered
+        cacheManager.setCacheNames(List.of(UserLookupService.USERS_BY_ID, UserLookupService.USERS_BY_EMAIL,
+                UserLookupService.CONNECTIONS));
+        cacheManager.registerCustomCache(UserLookupService.USER_DETAILS, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(userDetailsTtlMinutes))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
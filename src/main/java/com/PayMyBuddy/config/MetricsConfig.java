@@ -0,0 +1,20 @@
+package com.PayMyBuddy.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Records the service methods annotated with @Timed.
+     * Repository calls and the connection pool are measured by Spring Boot itself
+     * (spring.data.repository.invocations and hikaricp.* meters).
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -1,7 +1,11 @@
 package com.PayMyBuddy.config;
 
 import com.PayMyBuddy.service.CustomUserDetailsService;
+import com.PayMyBuddy.service.UserDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,7 +14,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -21,16 +24,37 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    /**
+     * BCrypt hashing on a dedicated pool, off the request threads. The strength is calibrated at
+     * startup to about paymybuddy.password.target-hash-ms per hash, unless paymybuddy.password.strength
+     * sets it. By default half of the cores hash, so a burst of logins cannot starve the transfers.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${paymybuddy.password.strength:0}") int strength,
+            @Value("${paymybuddy.password.target-hash-ms:250}") long targetHashMillis,
+            @Value("${paymybuddy.password.max-strength:14}") int maxStrength,
+            @Value("${paymybuddy.password.threads:0}") int threads,
+            @Value("${paymybuddy.password.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        int hashingThreads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int bcryptStrength = strength > 0 ? strength : BoundedPasswordEncoder.calibrate(targetHashMillis, maxStrength);
+        return new BoundedPasswordEncoder(bcryptStrength, hashingThreads, queueCapacity, meterRegistry);
     }
 
+    /**
+     * Checks the login passwords, and stores a new hash through CustomUserDetailsService when
+     * the stored one was made with a lower strength than the current one. The accounts are read
+     * through UserDetailsCache: a login whose password does not match the cached hash reads the
+     * account again before failing.
+     */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder, UserDetailsCache userDetailsCache) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(customUserDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserCache(userDetailsCache);
+        authProvider.setUserDetailsPasswordService(customUserDetailsService);
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -40,15 +64,16 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider) throws Exception {
         http
             .csrf(AbstractHttpConfigurer::disable) // Désactiver CSRF pour simplifier les tests API
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/", "/api/users/register", "/api/login", "/login", "/register", "/css/**", "/js/**").permitAll() // Endpoints et ressources publics
+                .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll() // Supervision, sur le port de management
                 .requestMatchers("/profile", "/profile/update", "/profile/change-password").authenticated() // Pages de profil
                 .anyRequest().authenticated() // Toutes les autres requêtes nécessitent une authentification
             )
-            .authenticationProvider(authenticationProvider())
+            .authenticationProvider(authenticationProvider)
             .formLogin(form -> form
                 .loginPage("/login")
                 .defaultSuccessUrl("/dashboard", true)
@@ -0,0 +1,56 @@
+package com.PayMyBuddy.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reports the virtual threads that stay pinned to their carrier thread, typically blocking inside
+ * a synchronized block or method, from the jdk.VirtualThreadPinned JFR event of Java 21. Each pin
+ * longer than the threshold increments paymybuddy.virtual.pinned and is logged with its top frames.
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 5;
+
+    private final RecordingStream stream;
+    private final Counter pinned;
+
+    public VirtualThreadPinningMonitor(Duration threshold, MeterRegistry meterRegistry) {
+        this.pinned = Counter.builder("paymybuddy.virtual.pinned")
+                .description("Virtual threads pinned to their carrier thread longer than the threshold")
+                .register(meterRegistry);
+        this.stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::report);
+        stream.startAsync();
+    }
+
+    private void report(RecordedEvent event) {
+        pinned.increment();
+        if (logger.isWarnEnabled()) {
+            List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+            logger.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frames.stream()
+                    .limit(LOGGED_FRAMES)
+                    .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                            + ":" + frame.getLineNumber())
+                    .collect(Collectors.joining(" < ")));
+        }
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
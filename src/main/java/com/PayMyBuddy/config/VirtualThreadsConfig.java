@@ -0,0 +1,68 @@
+package com.PayMyBuddy.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Safety limits of the virtual thread mode, active with spring.threads.virtual.enabled=true on
+ * Java 21 (build with the java21 Maven profile). Spring Boot then runs the Tomcat requests and the
+ * scheduled jobs (billing outbox, summaries, stats checks) on virtual threads; the blocking JDBC
+ * calls stay bounded by the connection pool, which this configuration protects.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    /**
+     * Puts the Hikari pool behind a {@link ConnectionLimitingDataSource} with as many permits as
+     * connections (or paymybuddy.virtual-threads.max-connections), waiting at most the pool timeout.
+     */
+    @Bean
+    static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${paymybuddy.virtual-threads.max-connections:0}") int maxConnections) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikariDataSource) {
+                    int permits = maxConnections > 0 ? maxConnections : hikariDataSource.getMaximumPoolSize();
+                    return new ConnectionLimitingDataSource(hikariDataSource, permits,
+                            hikariDataSource.getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Publishes paymybuddy.db.connection.waiting, the threads waiting for a connection permit.
+     */
+    @Bean
+    public MeterBinder connectionLimitMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConnectionLimitingDataSource limitedDataSource) {
+                Gauge.builder("paymybuddy.db.connection.waiting", limitedDataSource,
+                                ConnectionLimitingDataSource::getWaitingThreads)
+                        .description("Threads waiting for a database connection permit")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${paymybuddy.virtual-threads.pinned-threshold-ms:20}") long thresholdMillis,
+            MeterRegistry meterRegistry) {
+        return new VirtualThreadPinningMonitor(Duration.ofMillis(thresholdMillis), meterRegistry);
+    }
+}
@@ -1,49 +1,108 @@
 package com.PayMyBuddy.controller;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
 import com.PayMyBuddy.model.Billing;
-import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.BillingExportService;
 import com.PayMyBuddy.service.BillingService;
 import com.PayMyBuddy.service.TransactionService;
 import com.PayMyBuddy.util.AuthenticationUtils;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
 
 @Controller
 public class BillingController {
 
+    static final int PAGE_SIZE = 20;
+    // Period shown when none is given: the last 30 days, today included
+    static final int DEFAULT_PERIOD_DAYS = 30;
+
     private final BillingService billingService;
+    private final BillingExportService billingExportService;
     private final TransactionService transactionService;
     private final AuthenticationUtils authenticationUtils;
 
     @Autowired
-    public BillingController(BillingService billingService, TransactionService transactionService, AuthenticationUtils authenticationUtils) {
+    public BillingController(BillingService billingService, BillingExportService billingExportService,
+                             TransactionService transactionService, AuthenticationUtils authenticationUtils) {
         this.billingService = billingService;
+        this.billingExportService = billingExportService;
         this.transactionService = transactionService;
         this.authenticationUtils = authenticationUtils;
     }
 
     /**
-     * Displays the billings page for the authenticated user.
+     * Displays one page of the billings of a period, newest first.
+     * @param processed the processed flag to filter on (optional, all the billings by default)
+     * @param from the first day of the period (optional)
+     * @param to the last day of the period, included (optional, today by default)
+     * @param page the page number, from 0
      * @param model the model to add attributes to
      * @return the billings view name
      */
     @GetMapping("/billings")
-    public String billingsPage(Model model) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+    public String billingsPage(@RequestParam(value = "processed", required = false) Boolean processed,
+                               @RequestParam(value = "from", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(value = "to", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               @RequestParam(value = "page", defaultValue = "0") int page,
+                               Model model) {
+        AuthenticatedUser user = authenticationUtils.getAuthenticatedUser();
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_PERIOD_DAYS - 1);
 
-        // Get all billings (for now, we'll show all billings)
-        List<Billing> allBillings = billingService.findAll();
+        Slice<Billing> billings = billingService.findPage(processed, start.atStartOfDay(), end.atTime(LocalTime.MAX),
+                Math.max(page, 0), PAGE_SIZE);
 
         model.addAttribute("user", user);
-        model.addAttribute("billings", allBillings);
+        model.addAttribute("billings", billings.getContent());
+        model.addAttribute("processed", processed);
+        model.addAttribute("from", start);
+        model.addAttribute("to", end);
+        model.addAttribute("page", billings.getNumber());
+        model.addAttribute("hasMore", billings.hasNext());
 
         return "billings";
     }
 
+    /**
+     * Downloads the fees billed per day and per fee percentage over a period, as CSV.
+     * The totals are summed by the database and streamed to the response.
+     * @param from the first day of the period
+     * @param to the last day of the period, included
+     * @param response the response to write the file to
+     */
+    @GetMapping("/billings/export")
+    public void exportDailyFeeTotals(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     HttpServletResponse response) throws IOException {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The end of the period is before its start");
+        }
+
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"fees-" + from + "-" + to + ".csv\"");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        billingExportService.writeDailyFeeTotalsCsv(from, to, writer);
+    }
+
     /**
      * Handles marking a billing as processed.
      * @param id the billing ID
@@ -1,6 +1,7 @@
 package com.PayMyBuddy.controller;
 
-import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.UserAccountSummary;
 import com.PayMyBuddy.service.ConnectionService;
 import com.PayMyBuddy.service.UserAccountService;
 import com.PayMyBuddy.util.AuthenticationUtils;
@@ -32,10 +33,10 @@ public class ConnectionController {
      */
     @GetMapping("/connections")
     public String connectionsPage(Model model) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+        AuthenticatedUser user = authenticationUtils.getAuthenticatedUser();
 
         model.addAttribute("user", user);
-        model.addAttribute("connections", connectionService.findByOwnerId(user.getId()));
+        model.addAttribute("connections", connectionService.findViewsByOwnerId(user.getId()));
 
         return "connections";
     }
@@ -48,7 +49,7 @@ public class ConnectionController {
      */
     @PostMapping("/connections/add")
     public String addConnection(@ModelAttribute("email") String friendEmail) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+        AuthenticatedUser user = authenticationUtils.getAuthenticatedUser();
 
         // Check if the user is trying to add their own email address
         if (user.getEmail().equals(friendEmail)) {
@@ -56,10 +57,10 @@ public class ConnectionController {
         }
 
         try {
-            UserAccount friend = userAccountService.findByEmail(friendEmail)
+            UserAccountSummary friend = userAccountService.findSummaryByEmail(friendEmail)
                     .orElseThrow(() -> new IllegalArgumentException("Contact not found"));
 
-            connectionService.createConnection(user.getId(), friend.getId());
+            connectionService.createConnection(user.getId(), friend.id());
             return "redirect:/connections?success";
         } catch (IllegalArgumentException e) {
             // Encode the error message for the URL
@@ -76,11 +77,11 @@ public class ConnectionController {
      */
     @PostMapping("/connections/delete/{id}")
     public String deleteConnection(@PathVariable Long id) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+        Long userId = authenticationUtils.getCurrentUserId();
 
         try {
             connectionService.findById(id).ifPresentOrElse(connection -> {
-                if (!connection.getOwner().getId().equals(user.getId())) {
+                if (!connection.getOwner().getId().equals(userId)) {
                     throw new IllegalArgumentException("You are not authorized to delete this connection");
                 }
                 connectionService.deleteConnection(id);
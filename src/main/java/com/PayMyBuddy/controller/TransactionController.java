@@ -1,43 +1,108 @@
 package com.PayMyBuddy.controller;
 
-import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.BulkTransferLine;
+import com.PayMyBuddy.dto.BulkTransferReport;
+import com.PayMyBuddy.dto.ConnectionView;
+import com.PayMyBuddy.dto.TransactionPage;
+import com.PayMyBuddy.service.BulkTransferService;
 import com.PayMyBuddy.service.ConnectionService;
+import com.PayMyBuddy.service.PageDataLoader;
+import com.PayMyBuddy.service.TransactionExportService;
 import com.PayMyBuddy.service.TransactionService;
+import com.PayMyBuddy.service.TransferIdempotencyService;
 import com.PayMyBuddy.util.AuthenticationUtils;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 @Controller
 public class TransactionController {
 
+    static final int PAGE_SIZE = 20;
+
     private final TransactionService transactionService;
     private final ConnectionService connectionService;
+    private final TransferIdempotencyService transferIdempotencyService;
+    private final BulkTransferService bulkTransferService;
+    private final TransactionExportService transactionExportService;
     private final AuthenticationUtils authenticationUtils;
+    private final PageDataLoader pageDataLoader;
 
     @Autowired
-    public TransactionController(TransactionService transactionService, ConnectionService connectionService, AuthenticationUtils authenticationUtils) {
+    public TransactionController(TransactionService transactionService, ConnectionService connectionService,
+                                 TransferIdempotencyService transferIdempotencyService,
+                                 BulkTransferService bulkTransferService,
+                                 TransactionExportService transactionExportService,
+                                 AuthenticationUtils authenticationUtils,
+                                 PageDataLoader pageDataLoader) {
         this.transactionService = transactionService;
         this.connectionService = connectionService;
+        this.transferIdempotencyService = transferIdempotencyService;
+        this.bulkTransferService = bulkTransferService;
+        this.transactionExportService = transactionExportService;
         this.authenticationUtils = authenticationUtils;
+        this.pageDataLoader = pageDataLoader;
     }
 
     /**
      * Displays the transactions page, optionally pre-selecting a contact.
+     * The history is paginated: the before/beforeId cursor selects the page following
+     * the transaction with that date and ID.
      * @param contactId the ID of the contact to pre-select (optional)
+     * @param before the date of the last transaction of the previous page (optional)
+     * @param beforeId the ID of the last transaction of the previous page (optional)
      * @param model the model to add attributes to
      * @return the transactions view name
      */
     @GetMapping("/transactions")
-    public String transactionsPage(@RequestParam(value = "contactId", required = false) Long contactId, Model model) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+    public String transactionsPage(@RequestParam(value = "contactId", required = false) Long contactId,
+                                   @RequestParam(value = "before", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                                   @RequestParam(value = "beforeId", required = false) Long beforeId,
+                                   Model model) {
+        AuthenticatedUser user = authenticationUtils.getAuthenticatedUser();
+        Long userId = user.getId();
+        // The history and the contacts of the form are read at the same time
+        PageDataLoader.Page pageData = pageDataLoader.page();
+        Supplier<TransactionPage> history = pageData.load("transactions.history",
+                () -> transactionService.findPageByUser(userId, before, beforeId, PAGE_SIZE),
+                new TransactionPage(List.of(), false));
+        Supplier<List<ConnectionView>> connections = pageData.load("transactions.connections",
+                () -> connectionService.findViewsByOwnerId(userId), List.of());
+        TransactionPage page = history.get();
 
         model.addAttribute("user", user);
-        model.addAttribute("connections", connectionService.findByOwnerId(user.getId()));
-        model.addAttribute("transactions", transactionService.findByUser(user));
+        model.addAttribute("connections", connections.get());
+        model.addAttribute("transactions", page.transactions());
+        model.addAttribute("hasMore", page.hasMore());
+        model.addAttribute("nextDate", page.nextDate());
+        model.addAttribute("nextId", page.nextId());
+        model.addAttribute("firstPage", before == null || beforeId == null);
+        model.addAttribute("partial", pageData.isPartial());
+        // Jeton du formulaire d'envoi : un double clic ou un renvoi ne crée qu'un transfert
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
         if (contactId != null) {
             model.addAttribute("contactId", contactId);
         }
@@ -46,23 +111,91 @@ public class TransactionController {
 
     /**
      * Handles sending money to a contact.
+     * When an idempotency key is given, as the Idempotency-Key header or the idempotencyKey
+     * form token, a repeated request returns the first result without a second transfer.
      * @param receiverId the ID of the contact to send money to
      * @param amount the amount to send
      * @param description the description of the transaction
+     * @param idempotencyHeader the Idempotency-Key header (optional)
+     * @param idempotencyToken the idempotency token of the form (optional)
      * @return redirect to transactions page with success or error message
      */
     @PostMapping("/transactions/send")
     public String sendMoney(@ModelAttribute("receiverId") Long receiverId,
                            @ModelAttribute("amount") Double amount,
-                           @ModelAttribute("description") String description) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+                           @ModelAttribute("description") String description,
+                           @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
+                           @RequestParam(value = "idempotencyKey", required = false) String idempotencyToken) {
+        Long userId = authenticationUtils.getCurrentUserId();
+        String idempotencyKey = idempotencyHeader != null ? idempotencyHeader : idempotencyToken;
 
         try {
-            transactionService.makeTransaction(user.getId(), receiverId, new BigDecimal(amount), description);
+            if (idempotencyKey != null) {
+                transferIdempotencyService.send(userId, idempotencyKey, receiverId, new BigDecimal(amount), description);
+            } else {
+                transactionService.makeTransaction(userId, receiverId, new BigDecimal(amount), description);
+            }
             return "redirect:/transactions?success";
         } catch (IllegalArgumentException e) {
             String errorMessage = java.net.URLEncoder.encode(e.getMessage(), java.nio.charset.StandardCharsets.UTF_8);
             return "redirect:/transactions?error=" + errorMessage;
         }
     }
+
+    /**
+     * Sends money to many contacts at once, from a JSON array of lines.
+     * @param transfers the receiver email, amount and description of each transfer
+     * @return the result of each line
+     */
+    @PostMapping(value = "/transactions/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public BulkTransferReport sendBulk(@RequestBody List<BulkTransferLine> transfers) {
+        try {
+            return bulkTransferService.send(authenticationUtils.getCurrentUserId(), transfers);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends money to many contacts at once, from an uploaded CSV file (email,amount[,description]).
+     * @param file the CSV file
+     * @return the result of each line
+     */
+    @PostMapping(value = "/transactions/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public BulkTransferReport sendBulkCsv(@RequestParam("file") MultipartFile file) throws IOException {
+        List<BulkTransferLine> transfers;
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            transfers = bulkTransferService.parseCsv(reader);
+        }
+        return sendBulk(transfers);
+    }
+
+    /**
+     * Downloads the whole transaction history of the current user, oldest first.
+     * The rows are streamed to the response as they are read from the database.
+     * @param format csv (default) or ndjson, one JSON object per line
+     * @param response the response to write the file to
+     */
+    @GetMapping("/transactions/export")
+    public void exportTransactions(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                   HttpServletResponse response) throws IOException {
+        Long userId = authenticationUtils.getCurrentUserId();
+
+        switch (format) {
+            case "csv" -> {
+                response.setContentType("text/csv;charset=UTF-8");
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions.csv\"");
+                Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+                transactionExportService.writeCsv(userId, writer);
+            }
+            case "ndjson" -> {
+                response.setContentType("application/x-ndjson");
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions.ndjson\"");
+                transactionExportService.writeNdjson(userId, response.getOutputStream());
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format: " + format);
+        }
+    }
 }
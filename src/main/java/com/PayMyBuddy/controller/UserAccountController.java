@@ -1,35 +1,45 @@
 package com.PayMyBuddy.controller;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.TransactionPage;
 import com.PayMyBuddy.model.UserAccount;
-import com.PayMyBuddy.service.ConnectionService;
+import com.PayMyBuddy.model.UserStats;
+import com.PayMyBuddy.service.PageDataLoader;
 import com.PayMyBuddy.service.TransactionService;
 import com.PayMyBuddy.service.UserAccountService;
+import com.PayMyBuddy.service.UserStatsService;
 import com.PayMyBuddy.util.AuthenticationUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Controller
 public class UserAccountController {
 
+    static final int RECENT_TRANSACTIONS = 5;
+
     private final UserAccountService userAccountService;
-    private final ConnectionService connectionService;
     private final TransactionService transactionService;
+    private final UserStatsService userStatsService;
     private final AuthenticationUtils authenticationUtils;
+    private final PageDataLoader pageDataLoader;
 
     @Autowired
-    public UserAccountController(UserAccountService userAccountService, ConnectionService connectionService,
-                                TransactionService transactionService, AuthenticationUtils authenticationUtils) {
+    public UserAccountController(UserAccountService userAccountService, TransactionService transactionService,
+                                UserStatsService userStatsService, AuthenticationUtils authenticationUtils,
+                                PageDataLoader pageDataLoader) {
         this.userAccountService = userAccountService;
-        this.connectionService = connectionService;
         this.transactionService = transactionService;
+        this.userStatsService = userStatsService;
         this.authenticationUtils = authenticationUtils;
+        this.pageDataLoader = pageDataLoader;
     }
 
     /**
@@ -86,10 +96,22 @@ public class UserAccountController {
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
         try {
-            UserAccount user = authenticationUtils.getCurrentUser();
+            AuthenticatedUser user = authenticationUtils.getAuthenticatedUser();
+            Long userId = user.getId();
+            // The counters and the recent transactions are read at the same time
+            PageDataLoader.Page page = pageDataLoader.page();
+            Supplier<UserStats> stats = page.load("dashboard.stats",
+                    () -> userStatsService.getStats(userId), UserStats.empty(userId));
+            Supplier<TransactionPage> recent = page.load("dashboard.transactions",
+                    () -> transactionService.findPageByUser(userId, null, null, RECENT_TRANSACTIONS),
+                    new TransactionPage(List.of(), false));
+
+            TransactionPage transactions = recent.get();
             model.addAttribute("user", user);
-            model.addAttribute("connections", connectionService.findByOwnerId(user.getId()));
-            model.addAttribute("transactions", transactionService.findByUser(user));
+            model.addAttribute("stats", stats.get());
+            model.addAttribute("transactions", transactions.transactions());
+            model.addAttribute("hasMore", transactions.hasMore());
+            model.addAttribute("partial", page.isPartial());
             return "dashboard";
         } catch (IllegalArgumentException e) {
             return "redirect:/login?error=usernotfound";
@@ -103,7 +125,7 @@ public class UserAccountController {
      */
     @GetMapping("/profile")
     public String profilePage(Model model) {
-        UserAccount user = authenticationUtils.getCurrentUser();
+        AuthenticatedUser user = authenticationUtils.getAuthenticatedUser();
         model.addAttribute("user", user);
         return "profile";
     }
@@ -134,13 +156,8 @@ public class UserAccountController {
             user.setEmail(email);
             userAccountService.save(user);
 
-            if (!authenticationUtils.getCurrentUserEmail().equals(email)) {
-                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-                Authentication newAuth = new UsernamePasswordAuthenticationToken(
-                        email, auth.getCredentials(), auth.getAuthorities()
-                );
-                SecurityContextHolder.getContext().setAuthentication(newAuth);
-            }
+            // The principal caches the email and names: replace it with the updated values
+            authenticationUtils.refreshAuthenticatedUser(user);
 
             return "redirect:/profile?success";
         } catch (Exception e) {
@@ -0,0 +1,46 @@
+package com.PayMyBuddy.dto;
+
+import com.PayMyBuddy.model.UserAccount;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal stored in the security context after login.
+ * It carries what the pages need to know about the current user (id, email and names),
+ * so that resolving the current user does not require a database query on every request.
+ */
+@Getter
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+
+    public AuthenticatedUser(UserAccount userAccount, Collection<? extends GrantedAuthority> authorities) {
+        super(userAccount.getEmail(), userAccount.getPassword(), true, true, true, true, authorities);
+        this.id = userAccount.getId();
+        this.firstName = userAccount.getFirstName();
+        this.lastName = userAccount.getLastName();
+    }
+
+    private AuthenticatedUser(AuthenticatedUser user, String password) {
+        super(user.getUsername(), password, true, true, true, true, user.getAuthorities());
+        this.id = user.id;
+        this.firstName = user.firstName;
+        this.lastName = user.lastName;
+    }
+
+    /**
+     * @return the same user with another password hash, after it was upgraded at login
+     */
+    public AuthenticatedUser withPassword(String password) {
+        return new AuthenticatedUser(this, password);
+    }
+
+    public String getEmail() {
+        return getUsername();
+    }
+}
@@ -0,0 +1,12 @@
+package com.PayMyBuddy.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of a bulk transfer: a contact, identified by email, and the amount to send.
+ * The amount is null when the line of the file could not be read as a number.
+ */
+public record BulkTransferLine(String receiverEmail,
+                               BigDecimal amount,
+                               String description) {
+}
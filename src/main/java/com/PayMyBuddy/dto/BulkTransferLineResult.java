@@ -0,0 +1,26 @@
+package com.PayMyBuddy.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one line of a bulk transfer: the transaction created, or why the line was rejected.
+ * @param line the line number, starting at 1
+ */
+public record BulkTransferLineResult(int line,
+                                     String receiverEmail,
+                                     BigDecimal amount,
+                                     Long transactionId,
+                                     String error) {
+
+    public static BulkTransferLineResult accepted(int line, BulkTransferLine transfer, Long transactionId) {
+        return new BulkTransferLineResult(line, transfer.receiverEmail(), transfer.amount(), transactionId, null);
+    }
+
+    public static BulkTransferLineResult rejected(int line, BulkTransferLine transfer, String error) {
+        return new BulkTransferLineResult(line, transfer.receiverEmail(), transfer.amount(), null, error);
+    }
+
+    public boolean isAccepted() {
+        return error == null;
+    }
+}
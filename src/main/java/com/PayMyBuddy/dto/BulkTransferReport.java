@@ -0,0 +1,14 @@
+package com.PayMyBuddy.dto;
+
+import java.util.List;
+
+/**
+ * Result of a bulk transfer, with one entry per line in the order of the request.
+ */
+public record BulkTransferReport(int accepted, int rejected, List<BulkTransferLineResult> lines) {
+
+    public static BulkTransferReport of(List<BulkTransferLineResult> lines) {
+        int accepted = (int) lines.stream().filter(BulkTransferLineResult::isAccepted).count();
+        return new BulkTransferReport(accepted, lines.size() - accepted, lines);
+    }
+}
@@ -0,0 +1,10 @@
+package com.PayMyBuddy.dto;
+
+/**
+ * Read-only row of a user's contact list.
+ */
+public record ConnectionView(Long id,
+                             Long friendId,
+                             String friendName,
+                             String friendEmail) {
+}
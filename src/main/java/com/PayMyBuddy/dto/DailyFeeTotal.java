@@ -0,0 +1,17 @@
+package com.PayMyBuddy.dto;
+
+import com.PayMyBuddy.model.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Fees billed on one day at one fee percentage, summed by the database.
+ * @param billingCount the number of billings summed
+ * @param total the sum of their amounts
+ */
+public record DailyFeeTotal(LocalDate day,
+                            BigDecimal feePercentage,
+                            long billingCount,
+                            Money total) {
+}
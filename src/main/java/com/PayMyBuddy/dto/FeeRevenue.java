@@ -0,0 +1,27 @@
+package com.PayMyBuddy.dto;
+
+import com.PayMyBuddy.model.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Fees billed over one day, week or month at one fee percentage.
+ * @param periodStart the first day of the period (a Monday for a week, the 1st for a month)
+ * @param billingCount the number of billings
+ * @param total the sum of their amounts
+ * @param processedCount the number of those billings already processed
+ * @param processedTotal the sum of their amounts
+ */
+public record FeeRevenue(LocalDate periodStart,
+                         BigDecimal feePercentage,
+                         long billingCount,
+                         Money total,
+                         long processedCount,
+                         Money processedTotal) {
+
+    public FeeRevenue plus(long billingCount, Money total, long processedCount, Money processedTotal) {
+        return new FeeRevenue(periodStart, feePercentage, this.billingCount + billingCount, this.total.plus(total),
+                this.processedCount + processedCount, this.processedTotal.plus(processedTotal));
+    }
+}
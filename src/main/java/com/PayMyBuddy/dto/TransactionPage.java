@@ -0,0 +1,23 @@
+package com.PayMyBuddy.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One page of a user's transaction history, newest first.
+ * The cursor of the next page is the (date, id) of the last transaction of this one.
+ */
+public record TransactionPage(List<TransactionView> transactions, boolean hasMore) {
+
+    public LocalDateTime nextDate() {
+        return hasMore ? last().date() : null;
+    }
+
+    public Long nextId() {
+        return hasMore ? last().id() : null;
+    }
+
+    private TransactionView last() {
+        return transactions.get(transactions.size() - 1);
+    }
+}
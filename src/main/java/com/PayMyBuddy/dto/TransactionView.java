@@ -0,0 +1,19 @@
+package com.PayMyBuddy.dto;
+
+import com.PayMyBuddy.model.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of a user's transaction history, seen from that user's side.
+ * @param counterpartyName full name of the other user of the transaction
+ * @param incoming true if the user received the money, false if they sent it
+ */
+public record TransactionView(Long id,
+                              String counterpartyName,
+                              boolean incoming,
+                              Money amount,
+                              Money fee,
+                              LocalDateTime date,
+                              String description) {
+}
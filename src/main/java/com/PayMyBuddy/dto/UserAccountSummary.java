@@ -0,0 +1,11 @@
+package com.PayMyBuddy.dto;
+
+/**
+ * Identity of a user account, without its balance or password, which can be kept in a cache:
+ * it only changes when the profile is edited.
+ */
+public record UserAccountSummary(Long id,
+                                 String email,
+                                 String firstName,
+                                 String lastName) {
+}
@@ -15,15 +15,16 @@ import java.time.LocalDateTime;
 public class Billing {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "billing_id_seq")
+    @SequenceGenerator(name = "billing_id_seq", sequenceName = "billing_id_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "transaction_id", nullable = false)
     private Transaction transaction;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(nullable = false)
     private LocalDateTime date;
@@ -37,8 +38,25 @@ public class Billing {
     @Column(nullable = false)
     private String description;
 
-    // Method to calculate the fee based on the amount and fee percentage
-    public static BigDecimal calculateFee(BigDecimal amount, BigDecimal feePercentage) {
-        return amount.multiply(feePercentage.divide(new BigDecimal("100")));
+    // Creates the unprocessed billing of a transaction, whose receiver must be loaded
+    public static Billing forTransaction(Transaction transaction, BigDecimal feePercentage, LocalDateTime date) {
+        return forTransaction(transaction, transaction.getReceiver().getEmail(), feePercentage, date);
+    }
+
+    // Same, with the email of the receiver already known
+    public static Billing forTransaction(Transaction transaction, String receiverEmail, BigDecimal feePercentage,
+                                         LocalDateTime date) {
+        Billing billing = new Billing();
+        billing.setTransaction(transaction);
+        billing.setAmount(transaction.getFee());
+        billing.setDate(date);
+        billing.setProcessed(false);
+        billing.setFeePercentage(feePercentage);
+        billing.setDescription(describeFee(transaction.getAmount(), receiverEmail));
+        return billing;
+    }
+
+    public static String describeFee(Money amount, String receiverEmail) {
+        return "Transaction fee for transferring " + amount + " to " + receiverEmail;
     }
 }
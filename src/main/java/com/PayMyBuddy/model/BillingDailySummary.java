@@ -0,0 +1,46 @@
+package com.PayMyBuddy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Fees billed on one day at one fee percentage, kept up to date by BillingSummaryService as
+ * billings are created and processed, so that revenue reports never read the billing table.
+ */
+@Entity
+@Table(name = "billing_daily_summary")
+@IdClass(BillingDailySummary.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingDailySummary {
+
+    @Id
+    @Column(name = "billing_day")
+    private LocalDate billingDay;
+
+    @Id
+    @Column(name = "fee_percentage", precision = 5, scale = 2)
+    private BigDecimal feePercentage;
+
+    @Column(name = "billing_count", nullable = false)
+    private long billingCount;
+
+    @Column(name = "sum_amount", nullable = false)
+    private Money sumAmount;
+
+    @Column(name = "processed_count", nullable = false)
+    private long processedCount;
+
+    @Column(name = "processed_amount", nullable = false)
+    private Money processedAmount;
+
+    public record Key(LocalDate billingDay, BigDecimal feePercentage) implements Serializable {
+    }
+}
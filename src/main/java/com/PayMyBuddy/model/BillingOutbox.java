@@ -0,0 +1,35 @@
+package com.PayMyBuddy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Billing still to be created for a transaction, written in the same database transaction
+ * as the transfer and turned into a {@link Billing} by the BillingOutboxWorker.
+ */
+@Entity
+@Table(name = "billing_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "billing_outbox_id_seq")
+    @SequenceGenerator(name = "billing_outbox_id_seq", sequenceName = "billing_outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "fee_percentage", nullable = false)
+    private BigDecimal feePercentage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
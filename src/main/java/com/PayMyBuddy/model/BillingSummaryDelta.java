@@ -0,0 +1,45 @@
+package com.PayMyBuddy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Change of the totals of one day and fee percentage not yet added to its {@link BillingDailySummary}.
+ * Synchronous transfers append one instead of updating the row of the day, which every one of
+ * them would otherwise wait for; BillingSummaryService folds them into the rows in batches.
+ */
+@Entity
+@Table(name = "billing_summary_delta")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingSummaryDelta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "billing_summary_delta_id_seq")
+    @SequenceGenerator(name = "billing_summary_delta_id_seq", sequenceName = "billing_summary_delta_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "billing_day", nullable = false)
+    private LocalDate billingDay;
+
+    @Column(name = "fee_percentage", nullable = false, precision = 5, scale = 2)
+    private BigDecimal feePercentage;
+
+    @Column(name = "billing_count", nullable = false)
+    private long billingCount;
+
+    @Column(name = "sum_amount", nullable = false)
+    private Money sumAmount;
+
+    @Column(name = "processed_count", nullable = false)
+    private long processedCount;
+
+    @Column(name = "processed_amount", nullable = false)
+    private Money processedAmount;
+}
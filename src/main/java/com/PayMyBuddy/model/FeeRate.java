@@ -0,0 +1,63 @@
+package com.PayMyBuddy.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Fee rate in basis points (1 bp = 0.01 %), derived once from the configured percentage so
+ * that the fee of a transfer is computed with integer arithmetic only.
+ * @param basisPoints the rate in basis points, 50 for 0.5 %
+ */
+public record FeeRate(int basisPoints) {
+
+    private static final long BASIS_POINTS_PER_UNIT = 10_000;
+
+    public FeeRate {
+        if (basisPoints < 0 || basisPoints > BASIS_POINTS_PER_UNIT) {
+            throw new IllegalArgumentException("The fee rate must be between 0 and 100 %");
+        }
+    }
+
+    /**
+     * @param percentage the rate in percent, e.g. 0.5
+     * @return the rate
+     * @throws IllegalArgumentException if the percentage has more than two decimals
+     */
+    public static FeeRate ofPercentage(BigDecimal percentage) {
+        try {
+            return new FeeRate(percentage.movePointRight(2).intValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The fee percentage must have at most two decimals: " + percentage);
+        }
+    }
+
+    public BigDecimal toPercentage() {
+        return BigDecimal.valueOf(basisPoints, 2);
+    }
+
+    public Money feeOf(Money amount) {
+        return Money.ofCents(feeOf(amount.cents()));
+    }
+
+    /**
+     * Fee of an amount in cents, rounded half-up to the cent.
+     * @param amountInCents the amount, not negative
+     * @return the fee in cents
+     */
+    public long feeOf(long amountInCents) {
+        return (Math.multiplyExact(amountInCents, basisPoints) + BASIS_POINTS_PER_UNIT / 2) / BASIS_POINTS_PER_UNIT;
+    }
+
+    /**
+     * Computes the fees of many amounts at once, without allocating.
+     * @param amountsInCents the amounts, not negative
+     * @param feesInCents receives the fee of each amount, at the same index
+     */
+    public void feesOf(long[] amountsInCents, long[] feesInCents) {
+        if (feesInCents.length < amountsInCents.length) {
+            throw new IllegalArgumentException("The fee array is shorter than the amount array");
+        }
+        for (int i = 0; i < amountsInCents.length; i++) {
+            feesInCents[i] = feeOf(amountsInCents[i]);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.PayMyBuddy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency key sent with a transfer, and the transaction it created. A request repeated
+ * with the same key gets this transaction back instead of making a second transfer.
+ */
+@Entity
+@Table(name = "idempotency_record")
+@IdClass(IdempotencyRecord.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    // Null until the transfer is made, in the same database transaction
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public record Key(Long userId, String idempotencyKey) implements Serializable {
+    }
+}
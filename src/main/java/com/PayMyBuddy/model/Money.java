@@ -0,0 +1,58 @@
+package com.PayMyBuddy.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money in euros, held as a number of cents so that the arithmetic is exact and
+ * does not allocate. Stored as DECIMAL(19, 2) through {@link MoneyConverter}.
+ * @param cents the amount in cents
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    /**
+     * Converts a decimal amount, rounded half-up to the cent like PostgreSQL does when it
+     * stores a value in a DECIMAL(19, 2) column.
+     * @param amount the amount in euros
+     * @return the amount
+     * @throws ArithmeticException if the amount does not fit in a long number of cents
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public static Money ofCents(long cents) {
+        return new Money(cents);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(cents, other.cents));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    // Plain decimal form, e.g. "12.30"
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
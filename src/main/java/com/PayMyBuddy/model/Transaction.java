@@ -5,7 +5,6 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -15,19 +14,22 @@ import java.time.LocalDateTime;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids are taken 50 at a time from the sequence so that inserts can be batched;
+    // allocationSize must stay equal to the INCREMENT BY of the sequence
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_id_seq")
+    @SequenceGenerator(name = "transaction_id_seq", sequenceName = "transaction_id_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private UserAccount sender;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receiver_id", nullable = false)
     private UserAccount receiver;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(nullable = false)
     private LocalDateTime date;
@@ -35,5 +37,5 @@ public class Transaction {
     private String description;
 
     @Column(nullable = false)
-    private BigDecimal fee;
+    private Money fee;
 }
\ No newline at end of file
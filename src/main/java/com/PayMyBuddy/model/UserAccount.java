@@ -3,7 +3,9 @@ package com.PayMyBuddy.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -15,7 +17,8 @@ import java.util.Set;
 public class UserAccount {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_account_id_seq")
+    @SequenceGenerator(name = "user_account_id_seq", sequenceName = "user_account_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -30,12 +33,23 @@ public class UserAccount {
     @Column(nullable = false)
     private String lastName;
 
+    // Only moved by the atomic updates of UserAccountRepository, never written back from the entity
+    @Column(nullable = false, updatable = false)
+    private Money balance = Money.ZERO;
+
+    // Collections are left out of equals/hashCode/toString so that they are never walked implicitly
     @OneToMany(mappedBy = "owner")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Connection> connections = new HashSet<>();
 
     @OneToMany(mappedBy = "sender")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Transaction> sentTransactions = new HashSet<>();
 
     @OneToMany(mappedBy = "receiver")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Transaction> receivedTransactions = new HashSet<>();
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.PayMyBuddy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One transaction seen from one of its two users: every transaction has a row for its sender
+ * and a row for its receiver, written in the same database transaction. The history of a user
+ * is then a range of the primary key, already in (date, transaction) order, instead of the
+ * "sender = ? OR receiver = ?" query over two indexes of the transaction table.
+ */
+@Entity
+@Table(name = "user_feed")
+@IdClass(UserFeedEntry.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserFeedEntry {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "date")
+    private LocalDateTime date;
+
+    @Id
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    // True if the user received the money, false if they sent it
+    @Column(nullable = false)
+    private boolean incoming;
+
+    @Column(name = "counterparty_id", nullable = false)
+    private Long counterpartyId;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(nullable = false)
+    private Money fee;
+
+    private String description;
+
+    public record Key(Long userId, LocalDateTime date, Long transactionId) implements Serializable {
+    }
+}
@@ -0,0 +1,45 @@
+package com.PayMyBuddy.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of a user shown on the dashboard, kept up to date by UserStatsService on each
+ * connection and transfer so that the dashboard reads a single row.
+ */
+@Entity
+@Table(name = "user_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "connection_count", nullable = false)
+    private long connectionCount;
+
+    @Column(name = "sent_count", nullable = false)
+    private long sentCount;
+
+    @Column(name = "received_count", nullable = false)
+    private long receivedCount;
+
+    @Column(name = "sent_total", nullable = false)
+    private Money sentTotal;
+
+    @Column(name = "received_total", nullable = false)
+    private Money receivedTotal;
+
+    public static UserStats empty(Long userId) {
+        return new UserStats(userId, 0, 0, 0, Money.ZERO, Money.ZERO);
+    }
+
+    public long getTransactionCount() {
+        return sentCount + receivedCount;
+    }
+}
@@ -0,0 +1,58 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.BillingDailySummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BillingDailySummaryRepository
+        extends JpaRepository<BillingDailySummary, BillingDailySummary.Key>, BillingDailySummaryRepositoryCustom {
+
+    // Totals computed from the billing table, for the billing_daily_summary row "s" of the day [:start, :end)
+    String BILLINGS_OF_ROW = "FROM billing b WHERE b.date >= :start AND b.date < :end AND b.fee_percentage = s.fee_percentage";
+    // Deltas of the row "s" still to be folded into it
+    String PENDING_OF_ROW = "FROM billing_summary_delta d WHERE d.billing_day = s.billing_day AND d.fee_percentage = s.fee_percentage";
+
+    List<BillingDailySummary> findByBillingDayBetweenOrderByBillingDayAscFeePercentageAsc(LocalDate from, LocalDate to);
+
+    /**
+     * Recomputes one row from the billings of its day, given as [start, end), less the deltas
+     * that have not been folded into it yet.
+     */
+    @Modifying
+    @Query(value = "UPDATE billing_daily_summary s SET " +
+            "billing_count = (SELECT COUNT(*) " + BILLINGS_OF_ROW + ") " +
+            "- (SELECT COALESCE(SUM(d.billing_count), 0) " + PENDING_OF_ROW + "), " +
+            "sum_amount = (SELECT COALESCE(SUM(b.amount), 0) " + BILLINGS_OF_ROW + ") " +
+            "- (SELECT COALESCE(SUM(d.sum_amount), 0) " + PENDING_OF_ROW + "), " +
+            "processed_count = (SELECT COUNT(*) " + BILLINGS_OF_ROW + " AND b.processed = TRUE) " +
+            "- (SELECT COALESCE(SUM(d.processed_count), 0) " + PENDING_OF_ROW + "), " +
+            "processed_amount = (SELECT COALESCE(SUM(b.amount), 0) " + BILLINGS_OF_ROW + " AND b.processed = TRUE) " +
+            "- (SELECT COALESCE(SUM(d.processed_amount), 0) " + PENDING_OF_ROW + ") " +
+            "WHERE s.billing_day = :day AND s.fee_percentage = :feePercentage", nativeQuery = true)
+    int recompute(@Param("day") LocalDate day, @Param("feePercentage") BigDecimal feePercentage,
+                  @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Backfill
+
+    @Modifying
+    @Query(value = "DELETE FROM billing_daily_summary WHERE billing_day BETWEEN :from AND :to", nativeQuery = true)
+    int deleteBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO billing_daily_summary " +
+            "(billing_day, fee_percentage, billing_count, sum_amount, processed_count, processed_amount) " +
+            "SELECT CAST(b.date AS DATE), b.fee_percentage, COUNT(*), SUM(b.amount), " +
+            "SUM(CASE WHEN b.processed THEN 1 ELSE 0 END), SUM(CASE WHEN b.processed THEN b.amount ELSE 0 END) " +
+            "FROM billing b WHERE b.date >= :start AND b.date < :end " +
+            "GROUP BY CAST(b.date AS DATE), b.fee_percentage", nativeQuery = true)
+    int insertFromBillings(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
@@ -0,0 +1,54 @@
+package com.PayMyBuddy.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Batch update of the billing_daily_summary rows.
+ */
+public interface BillingDailySummaryRepositoryCustom {
+
+    /**
+     * Change of the totals of one day and fee percentage.
+     */
+    record Delta(LocalDate billingDay, BigDecimal feePercentage, long billingCount, BigDecimal sumAmount,
+                 long processedCount, BigDecimal processedAmount) {
+    }
+
+    /**
+     * Adds the deltas to the totals, in one JDBC batch and in the order given.
+     * @return the number of rows updated by each delta, 0 when the row does not exist yet
+     */
+    int[] addAll(List<Delta> deltas);
+
+    /**
+     * Creates the empty row of a day and fee percentage, unless it exists. The INSERT runs under a
+     * savepoint: if a concurrent transaction creates the same row first, the primary key violation
+     * is rolled back to the savepoint and leaves the current transaction usable.
+     * @return true if the row was created, false if it already existed
+     */
+    boolean insertMissing(LocalDate billingDay, BigDecimal feePercentage);
+
+    /**
+     * Sums the given billings per day and fee percentage, as processed billings.
+     * @return one delta per day and fee percentage, with the processed totals only
+     */
+    List<Delta> sumProcessed(Collection<Long> billingIds);
+
+    /**
+     * Sums the given billing_summary_delta rows per day and fee percentage.
+     * @return one delta per day and fee percentage, in (day, fee percentage) order
+     */
+    List<Delta> sumPending(Collection<Long> deltaIds);
+
+    /**
+     * Sums the billing_summary_delta rows of a period, not folded into the summary yet, per day
+     * and fee percentage.
+     * @param from the first day of the period
+     * @param to the last day of the period, included
+     * @return one delta per day and fee percentage, in (day, fee percentage) order
+     */
+    List<Delta> sumPendingBetween(LocalDate from, LocalDate to);
+}
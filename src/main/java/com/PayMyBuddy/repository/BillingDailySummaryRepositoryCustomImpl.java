@@ -0,0 +1,112 @@
+package com.PayMyBuddy.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+class BillingDailySummaryRepositoryCustomImpl implements BillingDailySummaryRepositoryCustom {
+
+    private static final String SUM_PENDING =
+            "SELECT billing_day, fee_percentage, SUM(billing_count) AS billing_count, SUM(sum_amount) AS sum_amount, " +
+            "SUM(processed_count) AS processed_count, SUM(processed_amount) AS processed_amount FROM billing_summary_delta ";
+    private static final String BY_ROW = " GROUP BY billing_day, fee_percentage ORDER BY billing_day, fee_percentage";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    BillingDailySummaryRepositoryCustomImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    @Override
+    public int[] addAll(List<Delta> deltas) {
+        return namedParameterJdbcTemplate.getJdbcTemplate().batchUpdate(
+                "UPDATE billing_daily_summary SET billing_count = billing_count + ?, sum_amount = sum_amount + ?, " +
+                "processed_count = processed_count + ?, processed_amount = processed_amount + ? " +
+                "WHERE billing_day = ? AND fee_percentage = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Delta delta = deltas.get(i);
+                        statement.setLong(1, delta.billingCount());
+                        statement.setBigDecimal(2, delta.sumAmount());
+                        statement.setLong(3, delta.processedCount());
+                        statement.setBigDecimal(4, delta.processedAmount());
+                        statement.setDate(5, Date.valueOf(delta.billingDay()));
+                        statement.setBigDecimal(6, delta.feePercentage());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return deltas.size();
+                    }
+                });
+    }
+
+    @Override
+    public boolean insertMissing(LocalDate billingDay, BigDecimal feePercentage) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("day", Date.valueOf(billingDay))
+                .addValue("feePercentage", feePercentage);
+        JdbcTemplate jdbcTemplate = namedParameterJdbcTemplate.getJdbcTemplate();
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                int inserted = namedParameterJdbcTemplate.update(
+                        "INSERT INTO billing_daily_summary " +
+                        "(billing_day, fee_percentage, billing_count, sum_amount, processed_count, processed_amount) " +
+                        "SELECT CAST(:day AS DATE), CAST(:feePercentage AS DECIMAL(5, 2)), 0, 0, 0, 0 WHERE NOT EXISTS " +
+                        "(SELECT 1 FROM billing_daily_summary x WHERE x.billing_day = :day AND x.fee_percentage = :feePercentage)",
+                        parameters);
+                connection.releaseSavepoint(savepoint);
+                return inserted == 1;
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                return false;
+            }
+        }));
+    }
+
+    @Override
+    public List<Delta> sumProcessed(Collection<Long> billingIds) {
+        return namedParameterJdbcTemplate.query(
+                "SELECT CAST(date AS DATE) AS billing_day, fee_percentage, COUNT(*) AS billing_count, SUM(amount) AS sum_amount " +
+                "FROM billing WHERE id IN (:ids) GROUP BY CAST(date AS DATE), fee_percentage",
+                new MapSqlParameterSource("ids", billingIds),
+                (resultSet, rowNum) -> new Delta(resultSet.getDate("billing_day").toLocalDate(),
+                        resultSet.getBigDecimal("fee_percentage"), 0, BigDecimal.ZERO,
+                        resultSet.getLong("billing_count"), resultSet.getBigDecimal("sum_amount")));
+    }
+
+    @Override
+    public List<Delta> sumPending(Collection<Long> deltaIds) {
+        return namedParameterJdbcTemplate.query(SUM_PENDING + "WHERE id IN (:ids)" + BY_ROW,
+                new MapSqlParameterSource("ids", deltaIds), BillingDailySummaryRepositoryCustomImpl::mapDelta);
+    }
+
+    @Override
+    public List<Delta> sumPendingBetween(LocalDate from, LocalDate to) {
+        return namedParameterJdbcTemplate.query(SUM_PENDING + "WHERE billing_day BETWEEN :from AND :to" + BY_ROW,
+                new MapSqlParameterSource("from", Date.valueOf(from)).addValue("to", Date.valueOf(to)),
+                BillingDailySummaryRepositoryCustomImpl::mapDelta);
+    }
+
+    private static Delta mapDelta(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Delta(resultSet.getDate("billing_day").toLocalDate(), resultSet.getBigDecimal("fee_percentage"),
+                resultSet.getLong("billing_count"), resultSet.getBigDecimal("sum_amount"),
+                resultSet.getLong("processed_count"), resultSet.getBigDecimal("processed_amount"));
+    }
+}
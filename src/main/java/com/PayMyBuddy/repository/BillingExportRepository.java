@@ -0,0 +1,51 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.dto.DailyFeeTotal;
+import com.PayMyBuddy.model.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Aggregates of the billings for the accounting exports, computed by the database and read
+ * row by row from a cursor like {@link TransactionExportRepository}.
+ */
+@Repository
+public class BillingExportRepository {
+
+    private static final String SELECT_DAILY_FEE_TOTALS =
+            "SELECT CAST(date AS DATE) AS billing_day, fee_percentage, COUNT(*) AS billing_count, SUM(amount) AS total " +
+            "FROM billing WHERE date >= ? AND date < ? " +
+            "GROUP BY CAST(date AS DATE), fee_percentage " +
+            "ORDER BY billing_day, fee_percentage";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BillingExportRepository(DataSource dataSource,
+                                   @Value("${paymybuddy.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Passes the fee totals of each day and fee percentage of the period, oldest day first.
+     * @param start the first instant of the period, included
+     * @param end the end of the period, excluded
+     */
+    public void forEachDailyFeeTotal(LocalDateTime start, LocalDateTime end, Consumer<DailyFeeTotal> action) {
+        jdbcTemplate.query(SELECT_DAILY_FEE_TOTALS, resultSet -> {
+            action.accept(new DailyFeeTotal(
+                    resultSet.getDate("billing_day").toLocalDate(),
+                    resultSet.getBigDecimal("fee_percentage"),
+                    resultSet.getLong("billing_count"),
+                    Money.of(resultSet.getBigDecimal("total"))));
+        }, Timestamp.valueOf(start), Timestamp.valueOf(end));
+    }
+}
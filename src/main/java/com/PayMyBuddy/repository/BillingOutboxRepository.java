@@ -0,0 +1,21 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.BillingOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BillingOutboxRepository extends JpaRepository<BillingOutbox, Long> {
+
+    /**
+     * Claims the oldest pending entries by locking their rows until the end of the transaction.
+     * Rows already locked by another worker are skipped instead of waited for.
+     */
+    @Query(value = "SELECT id FROM billing_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> claimIds(@Param("limit") int limit);
+}
@@ -2,7 +2,13 @@ package com.PayMyBuddy.repository;
 
 import com.PayMyBuddy.model.Billing;
 import com.PayMyBuddy.model.Transaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -10,7 +16,50 @@ import java.util.List;
 
 @Repository
 public interface BillingRepository extends JpaRepository<Billing, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"transaction", "transaction.sender", "transaction.receiver"})
+    List<Billing> findAll();
+
     List<Billing> findByProcessed(Boolean processed);
+
+    @EntityGraph(attributePaths = {"transaction", "transaction.sender", "transaction.receiver"})
     List<Billing> findByDateBetween(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Page of the billings of a period, for the billings view. A Slice only reads one row more
+     * than the page to know whether another one follows, without counting the whole period.
+     */
+    @EntityGraph(attributePaths = {"transaction", "transaction.sender", "transaction.receiver"})
+    Slice<Billing> findByDateBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"transaction", "transaction.sender", "transaction.receiver"})
+    Slice<Billing> findByProcessedAndDateBetween(Boolean processed, LocalDateTime start, LocalDateTime end, Pageable pageable);
+
     List<Billing> findByTransaction(Transaction transaction);
+
+    long countByProcessed(Boolean processed);
+
+    @Query("SELECT MIN(b.date) FROM Billing b")
+    LocalDateTime findFirstDate();
+
+    /**
+     * Claims the next chunk of unprocessed billings by locking their rows until the end of the
+     * transaction. Rows already locked by another processor are skipped instead of waited for.
+     */
+    @Query(value = "SELECT id FROM billing WHERE processed = FALSE ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> claimUnprocessedIds(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Billing b SET b.processed = true WHERE b.id IN :ids")
+    int markAsProcessed(@Param("ids") List<Long> ids);
+
+    /**
+     * Marks one billing as processed unless it already is. Concurrent calls for the same billing
+     * are serialized by the row lock of the UPDATE, so only one of them sees the row change.
+     * @return 1 if this call processed the billing, 0 if it was already processed or does not exist
+     */
+    @Modifying
+    @Query("UPDATE Billing b SET b.processed = true WHERE b.id = :id AND b.processed = false")
+    int markAsProcessedIfUnprocessed(@Param("id") Long id);
 }
@@ -0,0 +1,21 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.BillingSummaryDelta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BillingSummaryDeltaRepository extends JpaRepository<BillingSummaryDelta, Long> {
+
+    /**
+     * Claims the oldest deltas by locking their rows until the end of the transaction.
+     * Rows already locked by another instance folding them are skipped instead of waited for.
+     */
+    @Query(value = "SELECT id FROM billing_summary_delta ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> claimIds(@Param("limit") int limit);
+}
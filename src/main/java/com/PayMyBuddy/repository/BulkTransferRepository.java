@@ -0,0 +1,174 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * JDBC statements of the bulk transfers. The rows of a whole bulk transfer are written with one
+ * batch per table instead of one statement per row and entity.
+ * The ids are taken from the sequences of the entities like the pooled optimizer of Hibernate does:
+ * each nextval reserves the block of {@link #ID_BLOCK} ids up to the value returned, so these rows
+ * cannot collide with the ones inserted through JPA and a block serves 50 rows.
+ */
+@Repository
+public class BulkTransferRepository {
+
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO transaction (id, sender_id, receiver_id, amount, date, description, fee) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_BILLING =
+            "INSERT INTO billing (id, transaction_id, amount, date, processed, fee_percentage, description) " +
+            "VALUES (?, ?, ?, ?, FALSE, ?, ?)";
+    private static final String INSERT_BILLING_OUTBOX =
+            "INSERT INTO billing_outbox (id, transaction_id, fee_percentage, created_at) " +
+            "VALUES (?, ?, ?, ?)";
+
+    // INCREMENT BY of the sequences, equal to the allocationSize of the entities
+    static final int ID_BLOCK = 50;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BulkTransferRepository(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.jdbcTemplate = namedParameterJdbcTemplate.getJdbcTemplate();
+    }
+
+    /**
+     * Locks the accounts in account ID order, like the single transfers, until the end of the transaction.
+     * @return the balance of each account found
+     */
+    public Map<Long, Money> lockAccounts(Collection<Long> accountIds) {
+        Map<Long, Money> balances = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                "SELECT id, balance FROM user_account WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("ids", accountIds),
+                resultSet -> {
+                    balances.put(resultSet.getLong("id"), Money.of(resultSet.getBigDecimal("balance")));
+                });
+        return balances;
+    }
+
+    /**
+     * Credits the accounts, already locked, in account ID order.
+     * @param credits the amount to add to each account
+     */
+    public void credit(SortedMap<Long, Money> credits) {
+        List<Map.Entry<Long, Money>> entries = List.copyOf(credits.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE user_account SET balance = balance + ? WHERE id = ?", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setBigDecimal(1, entries.get(i).getValue().toBigDecimal());
+                statement.setLong(2, entries.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    /**
+     * Inserts the transactions of a bulk transfer, all made by the same sender at the same date.
+     * @return the IDs of the transactions, in the order of the arrays
+     */
+    public long[] insertTransactions(Long senderId, long[] receiverIds, long[] amountsInCents, long[] feesInCents,
+                                     String[] descriptions, LocalDateTime date) {
+        long[] ids = reserveIds("transaction_id_seq", receiverIds.length);
+        Timestamp timestamp = Timestamp.valueOf(date);
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setLong(1, ids[i]);
+                statement.setLong(2, senderId);
+                statement.setLong(3, receiverIds[i]);
+                statement.setBigDecimal(4, Money.ofCents(amountsInCents[i]).toBigDecimal());
+                statement.setTimestamp(5, timestamp);
+                statement.setString(6, descriptions[i]);
+                statement.setBigDecimal(7, Money.ofCents(feesInCents[i]).toBigDecimal());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.length;
+            }
+        });
+        return ids;
+    }
+
+    public void insertBillings(long[] transactionIds, long[] feesInCents, BigDecimal feePercentage,
+                               String[] descriptions, LocalDateTime date) {
+        long[] ids = reserveIds("billing_id_seq", transactionIds.length);
+        Timestamp timestamp = Timestamp.valueOf(date);
+        jdbcTemplate.batchUpdate(INSERT_BILLING, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setLong(1, ids[i]);
+                statement.setLong(2, transactionIds[i]);
+                statement.setBigDecimal(3, Money.ofCents(feesInCents[i]).toBigDecimal());
+                statement.setTimestamp(4, timestamp);
+                statement.setBigDecimal(5, feePercentage);
+                statement.setString(6, descriptions[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return transactionIds.length;
+            }
+        });
+    }
+
+    public void insertBillingOutbox(long[] transactionIds, BigDecimal feePercentage, LocalDateTime date) {
+        long[] ids = reserveIds("billing_outbox_id_seq", transactionIds.length);
+        Timestamp timestamp = Timestamp.valueOf(date);
+        jdbcTemplate.batchUpdate(INSERT_BILLING_OUTBOX, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                statement.setLong(1, ids[i]);
+                statement.setLong(2, transactionIds[i]);
+                statement.setBigDecimal(3, feePercentage);
+                statement.setTimestamp(4, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return transactionIds.length;
+            }
+        });
+    }
+
+    /**
+     * Reserves ids from a pooled sequence: each nextval gives the block of ID_BLOCK ids up to its value.
+     * The ids left in the last block are lost, as the ones of a Hibernate block at shutdown.
+     * @return count ids, in ascending order
+     */
+    long[] reserveIds(String sequence, int count) {
+        long[] ids = new long[count];
+        int reserved = 0;
+        while (reserved < count) {
+            long high = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+            for (long id = Math.max(1, high - ID_BLOCK + 1); id <= high && reserved < count; id++) {
+                ids[reserved++] = id;
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,45 @@
+package com.PayMyBuddy.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Reads every contact as a pair of account IDs, to load the ConnectionGraph. The rows are
+ * fetched from a server-side cursor, fetchSize at a time: call it from a (read-only) transaction.
+ */
+@Repository
+public class ConnectionEdgeRepository {
+
+    // Owner then friend order, read from the index of the UNIQUE (owner_id, friend_id) constraint
+    private static final String SELECT_EDGES = "SELECT owner_id, friend_id FROM connection ORDER BY owner_id, friend_id";
+
+    /**
+     * Receives the contacts one by one, without boxing the IDs.
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(long ownerId, long friendId);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ConnectionEdgeRepository(DataSource dataSource,
+                                    @Value("${paymybuddy.connections.graph.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Passes each contact, ordered by owner ID then friend ID.
+     */
+    public void forEachEdge(EdgeConsumer action) {
+        jdbcTemplate.query(SELECT_EDGES, resultSet -> {
+            action.accept(resultSet.getLong(1), resultSet.getLong(2));
+        });
+    }
+}
@@ -1,16 +1,37 @@
 package com.PayMyBuddy.repository;
 
+import com.PayMyBuddy.dto.ConnectionView;
 import com.PayMyBuddy.model.Connection;
 import com.PayMyBuddy.model.UserAccount;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ConnectionRepository extends JpaRepository<Connection, Long> {
+    @EntityGraph(attributePaths = "friend")
     List<Connection> findByOwner(UserAccount owner);
+
+    @EntityGraph(attributePaths = "friend")
+    List<Connection> findByOwnerId(Long ownerId);
+
+    @Query("SELECT new com.PayMyBuddy.dto.ConnectionView(c.id, f.id, CONCAT(f.firstName, ' ', f.lastName), f.email) " +
+            "FROM Connection c JOIN c.friend f WHERE c.owner.id = :ownerId")
+    List<ConnectionView> findViewsByOwnerId(@Param("ownerId") Long ownerId);
+
+    // Contacts of a user among the given emails, in a single query for a whole bulk transfer
+    @Query("SELECT new com.PayMyBuddy.dto.ConnectionView(c.id, f.id, CONCAT(f.firstName, ' ', f.lastName), f.email) " +
+            "FROM Connection c JOIN c.friend f WHERE c.owner.id = :ownerId AND f.email IN :emails")
+    List<ConnectionView> findViewsByOwnerIdAndFriendEmailIn(@Param("ownerId") Long ownerId,
+                                                             @Param("emails") Collection<String> emails);
+
     Optional<Connection> findByOwnerAndFriend(UserAccount owner, UserAccount friend);
     boolean existsByOwnerAndFriend(UserAccount owner, UserAccount friend);
+    boolean existsByOwnerIdAndFriendId(Long ownerId, Long friendId);
 }
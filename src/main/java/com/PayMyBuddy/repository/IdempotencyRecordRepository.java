@@ -0,0 +1,32 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    /**
+     * Reserves a key. Always an INSERT, so that a second request with the same key fails on the
+     * primary key, after waiting for the first one to commit or roll back.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_record (user_id, idempotency_key, created_at) VALUES (:userId, :key, :createdAt)",
+            nativeQuery = true)
+    int reserve(@Param("userId") Long userId, @Param("key") String key, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query(value = "UPDATE idempotency_record SET transaction_id = :transactionId WHERE user_id = :userId AND idempotency_key = :key",
+            nativeQuery = true)
+    int complete(@Param("userId") Long userId, @Param("key") String key, @Param("transactionId") Long transactionId);
+
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_record WHERE created_at < :before", nativeQuery = true)
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,58 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+/**
+ * Reads a user's whole transaction history row by row, for the exports. The rows are fetched
+ * from a server-side cursor, fetchSize at a time, and never collected in a list.
+ * PostgreSQL only opens a cursor inside a transaction: call it from a (read-only) transaction.
+ */
+@Repository
+public class TransactionExportRepository {
+
+    private static final String SELECT_BY_USER =
+            "SELECT t.id, t.date, t.amount, t.fee, t.description, t.receiver_id, " +
+            "s.first_name AS sender_first_name, s.last_name AS sender_last_name, " +
+            "r.first_name AS receiver_first_name, r.last_name AS receiver_last_name " +
+            "FROM transaction t JOIN user_account s ON s.id = t.sender_id JOIN user_account r ON r.id = t.receiver_id " +
+            "WHERE t.sender_id = ? OR t.receiver_id = ? " +
+            "ORDER BY t.date, t.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TransactionExportRepository(DataSource dataSource,
+                                       @Value("${paymybuddy.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Passes each transaction of the user, oldest first, seen from the user's side.
+     * @param action called once per row, before the next row is read
+     */
+    public void forEachByUser(Long userId, Consumer<TransactionView> action) {
+        jdbcTemplate.query(SELECT_BY_USER, resultSet -> {
+            boolean incoming = resultSet.getLong("receiver_id") == userId;
+            String counterpartyName = incoming
+                    ? resultSet.getString("sender_first_name") + " " + resultSet.getString("sender_last_name")
+                    : resultSet.getString("receiver_first_name") + " " + resultSet.getString("receiver_last_name");
+            action.accept(new TransactionView(
+                    resultSet.getLong("id"),
+                    counterpartyName,
+                    incoming,
+                    Money.of(resultSet.getBigDecimal("amount")),
+                    Money.of(resultSet.getBigDecimal("fee")),
+                    resultSet.getTimestamp("date").toLocalDateTime(),
+                    resultSet.getString("description")));
+        }, userId, userId);
+    }
+}
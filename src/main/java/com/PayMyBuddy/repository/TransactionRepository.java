@@ -2,15 +2,27 @@ package com.PayMyBuddy.repository;
 
 import com.PayMyBuddy.model.Transaction;
 import com.PayMyBuddy.model.UserAccount;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
     List<Transaction> findBySender(UserAccount sender);
     List<Transaction> findByReceiver(UserAccount receiver);
+    @EntityGraph(attributePaths = {"sender", "receiver"})
     List<Transaction> findBySenderOrReceiverOrderByDateDesc(UserAccount sender, UserAccount receiver);
+    @EntityGraph(attributePaths = {"receiver"})
+    List<Transaction> findByIdIn(Collection<Long> ids);
+
+    @Query("SELECT MIN(t.id) FROM Transaction t")
+    Long findFirstId();
+
+    @Query("SELECT MAX(t.id) FROM Transaction t")
+    Long findLastId();
 }
@@ -1,13 +1,62 @@
 package com.PayMyBuddy.repository;
 
+import com.PayMyBuddy.dto.UserAccountSummary;
 import com.PayMyBuddy.model.UserAccount;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
 public interface UserAccountRepository extends JpaRepository<UserAccount, Long> {
     Optional<UserAccount> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Read-only lookups, cached by UserLookupService
+
+    @Query("SELECT new com.PayMyBuddy.dto.UserAccountSummary(u.id, u.email, u.firstName, u.lastName) " +
+            "FROM UserAccount u WHERE u.id = :id")
+    Optional<UserAccountSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT new com.PayMyBuddy.dto.UserAccountSummary(u.id, u.email, u.firstName, u.lastName) " +
+            "FROM UserAccount u WHERE u.email = :email")
+    Optional<UserAccountSummary> findSummaryByEmail(@Param("email") String email);
+
+    /**
+     * Reads the email stored in the database, without flushing a pending change of the entity
+     * first, so that the caches can evict the email it is about to replace.
+     */
+    @Query("SELECT u.email FROM UserAccount u WHERE u.id = :id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    Optional<String> findStoredEmailById(@Param("id") Long id);
+
+    /**
+     * Replaces the password hash only, without touching the balance moved by concurrent transfers.
+     * @return 1 if the account was updated
+     */
+    @Modifying
+    @Query(value = "UPDATE user_account SET password = :password WHERE email = :email", nativeQuery = true)
+    int updatePassword(@Param("email") String email, @Param("password") String password);
+
+    // Balance moves, each locking the account row until the end of the transaction
+
+    /**
+     * Withdraws an amount from a balance, unless the balance is too low.
+     * @return 1 if the balance was debited, 0 if it is too low or the account does not exist
+     */
+    @Modifying
+    @Query(value = "UPDATE user_account SET balance = balance - :amount WHERE id = :id AND balance >= :amount",
+            nativeQuery = true)
+    int debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "UPDATE user_account SET balance = balance + :amount WHERE id = :id", nativeQuery = true)
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,61 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.UserFeedEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserFeedRepository extends JpaRepository<UserFeedEntry, UserFeedEntry.Key>, UserFeedRepositoryCustom {
+
+    // History rows of the user_feed entries "f", with c the other user of the transaction
+    String FEED_VIEW = "SELECT new com.PayMyBuddy.dto.TransactionView(f.transactionId, " +
+            "CONCAT(c.firstName, ' ', c.lastName), f.incoming, f.amount, f.fee, f.date, f.description) " +
+            "FROM UserFeedEntry f JOIN UserAccount c ON c.id = f.counterpartyId ";
+
+    // Rows of the transactions [:fromId, :toId) missing from user_feed, for each side of the transaction
+    String INSERT_MISSING = "INSERT INTO user_feed " +
+            "(user_id, date, transaction_id, incoming, counterparty_id, amount, fee, description) " +
+            "SELECT t.sender_id, t.date, t.id, FALSE, t.receiver_id, t.amount, t.fee, t.description " +
+            "FROM transaction t WHERE t.id >= :fromId AND t.id < :toId AND NOT EXISTS (SELECT 1 FROM user_feed f " +
+            "WHERE f.user_id = t.sender_id AND f.date = t.date AND f.transaction_id = t.id) " +
+            "UNION ALL " +
+            "SELECT t.receiver_id, t.date, t.id, TRUE, t.sender_id, t.amount, t.fee, t.description " +
+            "FROM transaction t WHERE t.id >= :fromId AND t.id < :toId AND NOT EXISTS (SELECT 1 FROM user_feed f " +
+            "WHERE f.user_id = t.receiver_id AND f.date = t.date AND f.transaction_id = t.id)";
+
+    /**
+     * First page of a user's history, newest first: one range of the primary key, read backwards.
+     */
+    @Query(FEED_VIEW + "WHERE f.userId = :userId ORDER BY f.date DESC, f.transactionId DESC")
+    List<TransactionView> findViewsByUser(@Param("userId") Long userId, Limit limit);
+
+    /**
+     * Next page of a user's history: the transactions strictly older than the (date, id) cursor.
+     * The "date <= :date" bound lets the database start the range at the cursor.
+     */
+    @Query(FEED_VIEW + "WHERE f.userId = :userId AND f.date <= :date " +
+            "AND (f.date < :date OR f.transactionId < :id) " +
+            "ORDER BY f.date DESC, f.transactionId DESC")
+    List<TransactionView> findViewsByUserBefore(@Param("userId") Long userId,
+                                                @Param("date") LocalDateTime date,
+                                                @Param("id") Long id,
+                                                Limit limit);
+
+    // Backfill
+
+    /**
+     * Writes the rows of the transactions [fromId, toId) that user_feed does not have yet.
+     * @return the number of rows written
+     */
+    @Modifying
+    @Query(value = INSERT_MISSING, nativeQuery = true)
+    int insertMissing(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
@@ -0,0 +1,21 @@
+package com.PayMyBuddy.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Batch insert of the user_feed rows of new transfers.
+ */
+public interface UserFeedRepositoryCustom {
+
+    /**
+     * Writes the two rows of each transfer, sender side and receiver side, in one JDBC batch.
+     * The transfers share their sender and date, as those of a bulk transfer.
+     * @param transactionIds the ID of each transaction
+     * @param receiverIds the ID of the receiver of each transfer
+     * @param amountsInCents the amount of each transfer
+     * @param feesInCents the fee of each transfer
+     * @param descriptions the description of each transfer
+     */
+    void insertTransfers(Long senderId, long[] transactionIds, long[] receiverIds, long[] amountsInCents,
+                         long[] feesInCents, String[] descriptions, LocalDateTime date);
+}
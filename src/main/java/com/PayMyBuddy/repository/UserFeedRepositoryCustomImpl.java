@@ -0,0 +1,51 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+class UserFeedRepositoryCustomImpl implements UserFeedRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserFeedRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertTransfers(Long senderId, long[] transactionIds, long[] receiverIds, long[] amountsInCents,
+                                long[] feesInCents, String[] descriptions, LocalDateTime date) {
+        Timestamp timestamp = Timestamp.valueOf(date);
+        jdbcTemplate.batchUpdate("INSERT INTO user_feed " +
+                        "(user_id, date, transaction_id, incoming, counterparty_id, amount, fee, description) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        // Even rows for the sender, odd rows for the receiver of transfer i / 2
+                        int transfer = i / 2;
+                        boolean incoming = i % 2 == 1;
+                        statement.setLong(1, incoming ? receiverIds[transfer] : senderId);
+                        statement.setTimestamp(2, timestamp);
+                        statement.setLong(3, transactionIds[transfer]);
+                        statement.setBoolean(4, incoming);
+                        statement.setLong(5, incoming ? senderId : receiverIds[transfer]);
+                        statement.setBigDecimal(6, Money.ofCents(amountsInCents[transfer]).toBigDecimal());
+                        statement.setBigDecimal(7, Money.ofCents(feesInCents[transfer]).toBigDecimal());
+                        statement.setString(8, descriptions[transfer]);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return 2 * transactionIds.length;
+                    }
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long>, UserStatsRepositoryCustom {
+
+    // Values of the counters computed from the source tables, for the user_stats row "s"
+    String CONNECTION_COUNT = "(SELECT COUNT(*) FROM connection c WHERE c.owner_id = s.user_id)";
+    String SENT_COUNT = "(SELECT COUNT(*) FROM transaction t WHERE t.sender_id = s.user_id)";
+    String SENT_TOTAL = "(SELECT COALESCE(SUM(t.amount), 0) FROM transaction t WHERE t.sender_id = s.user_id)";
+    String RECEIVED_COUNT = "(SELECT COUNT(*) FROM transaction t WHERE t.receiver_id = s.user_id)";
+    String RECEIVED_TOTAL = "(SELECT COALESCE(SUM(t.amount), 0) FROM transaction t WHERE t.receiver_id = s.user_id)";
+
+    // Incremental updates, returning 0 when the user has no row yet
+
+    @Modifying
+    @Query(value = "UPDATE user_stats SET connection_count = connection_count + :delta WHERE user_id = :userId",
+            nativeQuery = true)
+    int addConnections(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = "UPDATE user_stats SET sent_count = sent_count + 1, sent_total = sent_total + :amount " +
+            "WHERE user_id = :userId", nativeQuery = true)
+    int addSent(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = "UPDATE user_stats SET received_count = received_count + 1, received_total = received_total + :amount " +
+            "WHERE user_id = :userId", nativeQuery = true)
+    int addReceived(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    // Rebuild and consistency check
+
+    @Query(value = "SELECT id FROM user_account WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findUserIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Locks the rows before they are recomputed: transfers committed before the lock are
+     * counted by the recompute, the others wait for it and are added on top.
+     */
+    @Query(value = "SELECT user_id FROM user_stats WHERE user_id IN (:userIds) ORDER BY user_id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockForUpdate(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "UPDATE user_stats s SET connection_count = " + CONNECTION_COUNT +
+            ", sent_count = " + SENT_COUNT + ", sent_total = " + SENT_TOTAL +
+            ", received_count = " + RECEIVED_COUNT + ", received_total = " + RECEIVED_TOTAL +
+            " WHERE s.user_id IN (:userIds)", nativeQuery = true)
+    int recompute(@Param("userIds") Collection<Long> userIds);
+
+    @Query(value = "SELECT u.id FROM user_account u LEFT JOIN user_stats s ON s.user_id = u.id " +
+            "WHERE u.id IN (:userIds) AND (s.user_id IS NULL" +
+            " OR s.connection_count <> " + CONNECTION_COUNT +
+            " OR s.sent_count <> " + SENT_COUNT + " OR s.sent_total <> " + SENT_TOTAL +
+            " OR s.received_count <> " + RECEIVED_COUNT + " OR s.received_total <> " + RECEIVED_TOTAL +
+            ") ORDER BY u.id", nativeQuery = true)
+    List<Long> findInconsistentUserIds(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,32 @@
+package com.PayMyBuddy.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Batch update of the user_stats counters, for the bulk transfers, and creation of the
+ * missing rows.
+ */
+public interface UserStatsRepositoryCustom {
+
+    /**
+     * Change of the counters of one user.
+     */
+    record Delta(Long userId, long sentCount, BigDecimal sentTotal, long receivedCount, BigDecimal receivedTotal) {
+    }
+
+    /**
+     * Adds the deltas to the counters, in one JDBC batch and in the order given.
+     * @return the number of rows updated by each delta, 0 when the user has no row yet
+     */
+    int[] addAll(List<Delta> deltas);
+
+    /**
+     * Creates the empty rows of the users who have none. The INSERT runs under a savepoint: if a
+     * concurrent transaction creates one of the rows first, the primary key violation is rolled
+     * back to the savepoint and the INSERT runs again, skipping the row now committed.
+     * @return the number of rows created
+     */
+    int insertMissing(Collection<Long> userIds);
+}
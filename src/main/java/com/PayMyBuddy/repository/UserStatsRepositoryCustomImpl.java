@@ -0,0 +1,71 @@
+package com.PayMyBuddy.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Collection;
+import java.util.List;
+
+class UserStatsRepositoryCustomImpl implements UserStatsRepositoryCustom {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    UserStatsRepositoryCustomImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    @Override
+    public int[] addAll(List<Delta> deltas) {
+        return namedParameterJdbcTemplate.getJdbcTemplate().batchUpdate("UPDATE user_stats SET sent_count = sent_count + ?, sent_total = sent_total + ?, " +
+                "received_count = received_count + ?, received_total = received_total + ? WHERE user_id = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Delta delta = deltas.get(i);
+                        statement.setLong(1, delta.sentCount());
+                        statement.setBigDecimal(2, delta.sentTotal());
+                        statement.setLong(3, delta.receivedCount());
+                        statement.setBigDecimal(4, delta.receivedTotal());
+                        statement.setLong(5, delta.userId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return deltas.size();
+                    }
+                });
+    }
+
+    @Override
+    public int insertMissing(Collection<Long> userIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("userIds", userIds);
+        return namedParameterJdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Integer>) connection -> {
+            // The row that collided is committed when the violation is raised, so the next attempt
+            // skips it: each user can collide once at most
+            for (int attempt = 0; ; attempt++) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    int inserted = namedParameterJdbcTemplate.update(
+                            "INSERT INTO user_stats (user_id, connection_count, sent_count, received_count, sent_total, received_total) " +
+                            "SELECT u.id, 0, 0, 0, 0, 0 FROM user_account u WHERE u.id IN (:userIds) " +
+                            "AND NOT EXISTS (SELECT 1 FROM user_stats x WHERE x.user_id = u.id)", parameters);
+                    connection.releaseSavepoint(savepoint);
+                    return inserted;
+                } catch (DuplicateKeyException e) {
+                    connection.rollback(savepoint);
+                    if (attempt == userIds.size()) {
+                        throw e;
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.repository.BillingExportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Writes the accounting exports of the billings, for the finance reconciliation.
+ * The totals are summed by the database and each row is written as soon as it is read.
+ */
+@Service
+public class BillingExportService {
+
+    static final String FEE_TOTALS_CSV_HEADER = "day,fee_percentage,billings,total";
+
+    private final BillingExportRepository billingExportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public BillingExportService(BillingExportRepository billingExportRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.billingExportRepository = billingExportRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes the fees billed per day and per fee percentage as CSV.
+     * @param from the first day of the period
+     * @param to the last day of the period, included
+     */
+    public void writeDailyFeeTotalsCsv(LocalDate from, LocalDate to, Writer writer) throws IOException {
+        writer.write(FEE_TOTALS_CSV_HEADER);
+        writer.write('\n');
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> billingExportRepository.forEachDailyFeeTotal(
+                    from.atStartOfDay(), to.plusDays(1).atStartOfDay(), total -> {
+                        try {
+                            writer.write(total.day().toString());
+                            writer.write(',');
+                            writer.write(total.feePercentage().toPlainString());
+                            writer.write(',');
+                            writer.write(String.valueOf(total.billingCount()));
+                            writer.write(',');
+                            writer.write(total.total().toString());
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,99 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.BillingOutbox;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.repository.BillingOutboxRepository;
+import com.PayMyBuddy.repository.BillingRepository;
+import com.PayMyBuddy.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the billings of the transfers made with paymybuddy.billing.async=true.
+ * Each batch of outbox entries is turned into billings and deleted in a single transaction,
+ * so an entry is never lost nor billed twice, even if the application stops in between.
+ */
+@Component
+@ConditionalOnProperty(name = "paymybuddy.billing.async", havingValue = "true")
+public class BillingOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingOutboxWorker.class);
+
+    private final BillingOutboxRepository billingOutboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final BillingRepository billingRepository;
+    private final BillingSummaryService billingSummaryService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${paymybuddy.billing.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    public BillingOutboxWorker(
+            BillingOutboxRepository billingOutboxRepository,
+            TransactionRepository transactionRepository,
+            BillingRepository billingRepository,
+            BillingSummaryService billingSummaryService,
+            PlatformTransactionManager transactionManager) {
+        this.billingOutboxRepository = billingOutboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.billingRepository = billingRepository;
+        this.billingSummaryService = billingSummaryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Drains the outbox, one batch per transaction, until a batch comes back incomplete.
+     * @return the number of billings created
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.billing.outbox.poll-delay-ms:500}",
+            fixedDelayString = "${paymybuddy.billing.outbox.poll-delay-ms:500}")
+    public long drain() {
+        long created = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> materializeNextBatch());
+            created += batch;
+        } while (batch == batchSize);
+
+        if (created > 0) {
+            logger.debug("Billing outbox: {} billings created", created);
+        }
+        return created;
+    }
+
+    private int materializeNextBatch() {
+        List<Long> ids = billingOutboxRepository.claimIds(batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<BillingOutbox> entries = billingOutboxRepository.findAllById(ids);
+        Map<Long, Transaction> transactions = transactionRepository
+                .findByIdIn(entries.stream().map(BillingOutbox::getTransactionId).toList())
+                .stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+
+        List<Billing> billings = entries.stream()
+                .map(entry -> Billing.forTransaction(transactions.get(entry.getTransactionId()),
+                        entry.getFeePercentage(), entry.getCreatedAt()))
+                .toList();
+        billingRepository.saveAll(billings);
+        billingSummaryService.recordCreated(billings);
+        billingOutboxRepository.deleteAllByIdInBatch(ids);
+        return ids.size();
+    }
+}
@@ -1,24 +1,46 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.FeeRevenue;
 import com.PayMyBuddy.model.Billing;
 import com.PayMyBuddy.model.Transaction;
 import com.PayMyBuddy.repository.BillingRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class BillingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BillingService.class);
+
     private final BillingRepository billingRepository;
+    private final BillingSummaryService billingSummaryService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${paymybuddy.billing.batch-size:1000}")
+    private int batchSize;
 
     @Autowired
-    public BillingService(BillingRepository billingRepository) {
+    public BillingService(BillingRepository billingRepository, BillingSummaryService billingSummaryService,
+                          PlatformTransactionManager transactionManager) {
         this.billingRepository = billingRepository;
+        this.billingSummaryService = billingSummaryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public List<Billing> findAll() {
@@ -37,38 +59,115 @@ public class BillingService {
         return billingRepository.findByDateBetween(start, end);
     }
 
+    /**
+     * Finds one page of the billings of a period, newest first.
+     * @param processed the processed flag to filter on, or null for all the billings
+     * @param start the start of the period, included
+     * @param end the end of the period, included
+     * @param page the page number, from 0
+     * @param size the number of billings per page
+     */
+    public Slice<Billing> findPage(Boolean processed, LocalDateTime start, LocalDateTime end, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "date", "id"));
+        if (processed == null) {
+            return billingRepository.findByDateBetween(start, end, pageRequest);
+        }
+        return billingRepository.findByProcessedAndDateBetween(processed, start, end, pageRequest);
+    }
+
     public List<Billing> findByTransaction(Transaction transaction) {
         return billingRepository.findByTransaction(transaction);
     }
 
+    /**
+     * Saves a billing. A new billing is added to the daily summary; changes to an existing one
+     * go through markAsProcessed and delete, which keep the summary up to date.
+     */
     @Transactional
     public Billing save(Billing billing) {
-        return billingRepository.save(billing);
+        boolean created = billing.getId() == null;
+        Billing saved = billingRepository.save(billing);
+        if (created) {
+            billingSummaryService.recordCreated(List.of(saved));
+        }
+        return saved;
     }
 
+    /**
+     * Marks a billing as processed. The flag is switched by a conditional UPDATE rather than read
+     * then written, so a billing processed by two requests at once is added to the processed
+     * totals of the summary only once.
+     */
     @Transactional
     public Billing markAsProcessed(Long id) {
+        boolean changed = billingRepository.markAsProcessedIfUnprocessed(id) == 1;
         Billing billing = billingRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Billing not found"));
 
+        // The bulk UPDATE bypasses the persistence context, which may hold the billing already
         billing.setProcessed(true);
-        return billingRepository.save(billing);
+        if (changed) {
+            billingSummaryService.recordProcessed(List.of(id));
+        }
+        return billing;
     }
 
     @Transactional
     public void delete(Long id) {
-        billingRepository.deleteById(id);
+        billingRepository.findById(id).ifPresent(billing -> {
+            billingRepository.delete(billing);
+            billingSummaryService.recordDeleted(billing);
+        });
     }
 
-    @Transactional
-    public List<Billing> processUnprocessedBillings() {
-        List<Billing> unprocessedBillings = billingRepository.findByProcessed(false);
+    /**
+     * Sums the fees billed per day, week or month and per fee percentage, from the daily summary.
+     * @param from the first day of the period
+     * @param to the last day of the period, included
+     * @param unit DAYS, WEEKS (starting on Monday) or MONTHS
+     * @return the revenue of each period and fee percentage, oldest first
+     */
+    public List<FeeRevenue> findFeeRevenue(LocalDate from, LocalDate to, ChronoUnit unit) {
+        return billingSummaryService.findRevenue(from, to, unit);
+    }
 
-        for (Billing billing : unprocessedBillings) {
-            billing.setProcessed(true);
-            billingRepository.save(billing);
-        }
+    /**
+     * Marks the unprocessed billings as processed, in chunks of at most batchSize rows.
+     * Each chunk is claimed and updated with a single bulk UPDATE in its own transaction, so
+     * memory use and transaction size stay bounded. If the run stops, the committed chunks
+     * remain processed and the next run resumes with the rows left.
+     * The run stops once as many rows as the backlog counted at its start have been processed,
+     * so a steady flow of new billings cannot keep it running forever.
+     * @return the number of billings processed
+     */
+    @Timed(value = "paymybuddy.billing.process", description = "Time taken to process the unprocessed billings")
+    public long processUnprocessedBillings() {
+        long backlog = billingRepository.countByProcessed(false);
+        long processed = 0;
+        long start = System.nanoTime();
+
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> processNextChunk());
+            processed += chunk;
+            if (chunk > 0) {
+                logger.info("Billing processing: {}/{} billings processed", processed, backlog);
+            }
+        } while (chunk > 0 && processed < backlog);
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Billing processing done: {} billings in {} ms ({} rows/s)",
+                processed, elapsedMillis, processed * 1000 / elapsedMillis);
+        return processed;
+    }
 
-        return unprocessedBillings;
+    private int processNextChunk() {
+        List<Long> ids = billingRepository.claimUnprocessedIds(batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int processed = billingRepository.markAsProcessed(ids);
+        billingSummaryService.recordProcessed(ids);
+        return processed;
     }
 }
@@ -0,0 +1,313 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.FeeRevenue;
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.BillingDailySummary;
+import com.PayMyBuddy.model.BillingSummaryDelta;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.repository.BillingDailySummaryRepository;
+import com.PayMyBuddy.repository.BillingDailySummaryRepositoryCustom.Delta;
+import com.PayMyBuddy.repository.BillingRepository;
+import com.PayMyBuddy.repository.BillingSummaryDeltaRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Maintains the billing_daily_summary rollup. The totals of a day are updated in the transaction
+ * that creates, processes or deletes its billings, so that revenue reports read one row per day.
+ * Synchronous transfers are the exception: updating the row of the day in each of them would
+ * serialize their commits on that row, so they append a billing_summary_delta row instead, folded
+ * into the summary every few seconds. The reports add the deltas not folded yet.
+ */
+@Service
+public class BillingSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingSummaryService.class);
+
+    // Rows always updated in (day, fee percentage) order, so that two transactions cannot deadlock
+    private static final Comparator<BillingDailySummary.Key> KEY_ORDER =
+            Comparator.comparing(BillingDailySummary.Key::billingDay).thenComparing(BillingDailySummary.Key::feePercentage);
+
+    private final BillingDailySummaryRepository billingDailySummaryRepository;
+    private final BillingSummaryDeltaRepository billingSummaryDeltaRepository;
+    private final BillingRepository billingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${paymybuddy.fee.percentage:0.5}")
+    private BigDecimal feePercentage;
+
+    @Value("${paymybuddy.billing.summary.backfill:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${paymybuddy.billing.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    public BillingSummaryService(BillingDailySummaryRepository billingDailySummaryRepository,
+                                 BillingSummaryDeltaRepository billingSummaryDeltaRepository,
+                                 BillingRepository billingRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.billingDailySummaryRepository = billingDailySummaryRepository;
+        this.billingSummaryDeltaRepository = billingSummaryDeltaRepository;
+        this.billingRepository = billingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds new billings, already saved, to the totals of their day.
+     */
+    @Transactional
+    public void recordCreated(Collection<Billing> billings) {
+        apply(deltasOf(billings));
+    }
+
+    /**
+     * Queues new billings, already saved, for the totals of their day: one billing_summary_delta
+     * row is appended per day and fee percentage, and added to the summary later by foldPending.
+     */
+    @Transactional
+    public void queueCreated(Collection<Billing> billings) {
+        for (Delta delta : deltasOf(billings)) {
+            billingSummaryDeltaRepository.save(new BillingSummaryDelta(null, delta.billingDay(), delta.feePercentage(),
+                    delta.billingCount(), Money.of(delta.sumAmount()), delta.processedCount(), Money.of(delta.processedAmount())));
+        }
+    }
+
+    // Totals of the billings per day and fee percentage, in (day, fee percentage) order
+    private static List<Delta> deltasOf(Collection<Billing> billings) {
+        SortedMap<BillingDailySummary.Key, long[]> totals = new TreeMap<>(KEY_ORDER);
+        for (Billing billing : billings) {
+            long[] total = totals.computeIfAbsent(keyOf(billing), key -> new long[4]);
+            total[0]++;
+            total[1] += billing.getAmount().cents();
+            if (billing.getProcessed()) {
+                total[2]++;
+                total[3] += billing.getAmount().cents();
+            }
+        }
+
+        List<Delta> deltas = new ArrayList<>(totals.size());
+        for (Map.Entry<BillingDailySummary.Key, long[]> entry : totals.entrySet()) {
+            long[] total = entry.getValue();
+            deltas.add(new Delta(entry.getKey().billingDay(), entry.getKey().feePercentage(),
+                    total[0], Money.ofCents(total[1]).toBigDecimal(), total[2], Money.ofCents(total[3]).toBigDecimal()));
+        }
+        return deltas;
+    }
+
+    /**
+     * Adds the unprocessed billings of a bulk transfer, written with JDBC, to the totals of their day.
+     * @param amountsInCents the amount of each billing
+     */
+    @Transactional
+    public void recordCreated(LocalDateTime date, BigDecimal feePercentage, long[] amountsInCents) {
+        long total = 0;
+        for (long amount : amountsInCents) {
+            total += amount;
+        }
+        apply(List.of(new Delta(date.toLocalDate(), feePercentage, amountsInCents.length,
+                Money.ofCents(total).toBigDecimal(), 0, BigDecimal.ZERO)));
+    }
+
+    /**
+     * Moves billings that were unprocessed to the processed totals of their day.
+     * @param billingIds the IDs of the billings, all processed by the current transaction
+     */
+    @Transactional
+    public void recordProcessed(Collection<Long> billingIds) {
+        // The billings are read with JDBC: they must be written first if created by this transaction
+        billingDailySummaryRepository.flush();
+        List<Delta> deltas = new ArrayList<>(billingDailySummaryRepository.sumProcessed(billingIds));
+        deltas.sort(Comparator.comparing(Delta::billingDay).thenComparing(Delta::feePercentage));
+        apply(deltas);
+    }
+
+    @Transactional
+    public void recordDeleted(Billing billing) {
+        BigDecimal amount = billing.getAmount().toBigDecimal();
+        boolean processed = billing.getProcessed();
+        apply(List.of(new Delta(billing.getDate().toLocalDate(), billing.getFeePercentage(), -1, amount.negate(),
+                processed ? -1 : 0, processed ? amount.negate() : BigDecimal.ZERO)));
+    }
+
+    private static BillingDailySummary.Key keyOf(Billing billing) {
+        return new BillingDailySummary.Key(billing.getDate().toLocalDate(), billing.getFeePercentage());
+    }
+
+    private void apply(List<Delta> deltas) {
+        int[] updated = billingDailySummaryRepository.addAll(deltas);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                repair(deltas.get(i));
+            }
+        }
+    }
+
+    /**
+     * Folds the queued deltas into the billing_daily_summary rows, one batch per transaction, until
+     * a batch comes back incomplete. Deltas claimed by another instance at the same time are skipped.
+     * @return the number of deltas folded
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.billing.summary.fold-delay-ms:2000}",
+            fixedDelayString = "${paymybuddy.billing.summary.fold-delay-ms:2000}")
+    public long foldPending() {
+        long folded = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> foldNextBatch());
+            folded += batch;
+        } while (batch == batchSize);
+        return folded;
+    }
+
+    private int foldNextBatch() {
+        List<Long> ids = billingSummaryDeltaRepository.claimIds(batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // Deleted before being applied: a row recomputed by apply must not subtract them any more
+        List<Delta> deltas = billingDailySummaryRepository.sumPending(ids);
+        billingSummaryDeltaRepository.deleteAllByIdInBatch(ids);
+        apply(deltas);
+        return ids.size();
+    }
+
+    private void repair(Delta delta) {
+        LocalDate day = delta.billingDay();
+        billingDailySummaryRepository.flush();
+        if (billingDailySummaryRepository.insertMissing(day, delta.feePercentage())) {
+            // Totals of the new row read from the billing table, which already includes the current change,
+            // less the deltas not folded yet
+            billingDailySummaryRepository.recompute(day, delta.feePercentage(), day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        } else {
+            // Row created meanwhile by another transaction, which could not see the current change
+            billingDailySummaryRepository.addAll(List.of(delta));
+        }
+    }
+
+    /**
+     * Creates the row of the next day at the current fee percentage every evening, so that the
+     * first transfers of the day only have to update it.
+     */
+    @Scheduled(cron = "${paymybuddy.billing.summary.prepare-cron:0 0 23 * * *}")
+    public void prepareNextDay() {
+        transactionTemplate.executeWithoutResult(status ->
+                billingDailySummaryRepository.insertMissing(LocalDate.now().plusDays(1), feePercentage));
+    }
+
+    /**
+     * Recomputes the rows of a period from the billing table, one month per transaction. The deltas
+     * not folded yet are subtracted, since foldPending will add them.
+     * @param from the first day of the period
+     * @param to the last day of the period, included
+     * @return the number of rows written
+     */
+    public long rebuild(LocalDate from, LocalDate to) {
+        long rows = 0;
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusMonths(1).withDayOfMonth(1)) {
+            LocalDate monthStart = start;
+            LocalDate monthEnd = start.withDayOfMonth(start.lengthOfMonth()).isBefore(to)
+                    ? start.withDayOfMonth(start.lengthOfMonth()) : to;
+            rows += transactionTemplate.execute(status -> {
+                billingDailySummaryRepository.deleteBetween(monthStart, monthEnd);
+                int inserted = billingDailySummaryRepository.insertFromBillings(monthStart.atStartOfDay(),
+                        monthEnd.plusDays(1).atStartOfDay());
+                apply(billingDailySummaryRepository.sumPendingBetween(monthStart, monthEnd).stream()
+                        .map(BillingSummaryService::negate)
+                        .toList());
+                return inserted;
+            });
+        }
+        return rows;
+    }
+
+    private static Delta negate(Delta delta) {
+        return new Delta(delta.billingDay(), delta.feePercentage(), -delta.billingCount(), delta.sumAmount().negate(),
+                -delta.processedCount(), delta.processedAmount().negate());
+    }
+
+    /**
+     * Backfills the rollup from the first billing to today.
+     * @return the number of rows written
+     */
+    public long rebuildAll() {
+        LocalDateTime firstDate = billingRepository.findFirstDate();
+        if (firstDate == null) {
+            return 0;
+        }
+        long rows = rebuild(firstDate.toLocalDate(), LocalDate.now());
+        logger.info("Billing daily summary rebuilt from {}: {} rows", firstDate.toLocalDate(), rows);
+        return rows;
+    }
+
+    /**
+     * Backfill command: started with --paymybuddy.billing.summary.backfill=true, the application
+     * rebuilds the whole rollup once it is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Sums the fees of a period per day, week (from Monday) or month, and per fee percentage, from
+     * the summary rows and the deltas not folded into them yet.
+     * @param from the first day of the period
+     * @param to the last day of the period, included
+     * @param unit DAYS, WEEKS or MONTHS
+     * @return the revenue of each period and fee percentage, oldest first
+     */
+    public List<FeeRevenue> findRevenue(LocalDate from, LocalDate to, ChronoUnit unit) {
+        SortedMap<BillingDailySummary.Key, FeeRevenue> revenues = new TreeMap<>(KEY_ORDER);
+        for (BillingDailySummary day : billingDailySummaryRepository
+                .findByBillingDayBetweenOrderByBillingDayAscFeePercentageAsc(from, to)) {
+            LocalDate periodStart = periodStart(day.getBillingDay(), unit);
+            add(revenues, new FeeRevenue(periodStart, day.getFeePercentage(), day.getBillingCount(), day.getSumAmount(),
+                    day.getProcessedCount(), day.getProcessedAmount()));
+        }
+        for (Delta delta : billingDailySummaryRepository.sumPendingBetween(from, to)) {
+            LocalDate periodStart = periodStart(delta.billingDay(), unit);
+            add(revenues, new FeeRevenue(periodStart, delta.feePercentage(), delta.billingCount(), Money.of(delta.sumAmount()),
+                    delta.processedCount(), Money.of(delta.processedAmount())));
+        }
+        return List.copyOf(revenues.values());
+    }
+
+    private static void add(SortedMap<BillingDailySummary.Key, FeeRevenue> revenues, FeeRevenue added) {
+        revenues.merge(new BillingDailySummary.Key(added.periodStart(), added.feePercentage()), added,
+                (revenue, more) -> revenue.plus(more.billingCount(), more.total(), more.processedCount(), more.processedTotal()));
+    }
+
+    private static LocalDate periodStart(LocalDate day, ChronoUnit unit) {
+        return switch (unit) {
+            case DAYS -> day;
+            case WEEKS -> day.with(DayOfWeek.MONDAY);
+            case MONTHS -> day.withDayOfMonth(1);
+            default -> throw new IllegalArgumentException("Unsupported revenue period: " + unit);
+        };
+    }
+}
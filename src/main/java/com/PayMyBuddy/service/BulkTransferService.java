@@ -0,0 +1,257 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.BulkTransferLine;
+import com.PayMyBuddy.dto.BulkTransferLineResult;
+import com.PayMyBuddy.dto.BulkTransferReport;
+import com.PayMyBuddy.dto.ConnectionView;
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.FeeRate;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.repository.BulkTransferRepository;
+import com.PayMyBuddy.repository.ConnectionRepository;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import com.PayMyBuddy.repository.UserFeedRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Sends money from one user to many contacts in a single operation, for payroll-style payouts.
+ * <p>
+ * Whatever the number of lines, the receivers are checked with one query, the accounts are
+ * locked with one query, and the transactions, billings, balances and counters are written
+ * with one JDBC batch each. Each line is accepted or rejected on its own: the lines are
+ * accepted in order while the balance of the sender covers them.
+ */
+@Service
+public class BulkTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkTransferService.class);
+
+    private final TransactionService transactionService;
+    private final UserStatsService userStatsService;
+    private final BillingSummaryService billingSummaryService;
+    private final ConnectionRepository connectionRepository;
+    private final UserAccountRepository userAccountRepository;
+    private final BulkTransferRepository bulkTransferRepository;
+    private final UserFeedRepository userFeedRepository;
+
+    @Value("${paymybuddy.bulk.max-lines:10000}")
+    private int maxLines;
+
+    @Autowired
+    public BulkTransferService(TransactionService transactionService,
+                               UserStatsService userStatsService,
+                               BillingSummaryService billingSummaryService,
+                               ConnectionRepository connectionRepository,
+                               UserAccountRepository userAccountRepository,
+                               BulkTransferRepository bulkTransferRepository,
+                               UserFeedRepository userFeedRepository) {
+        this.transactionService = transactionService;
+        this.userStatsService = userStatsService;
+        this.billingSummaryService = billingSummaryService;
+        this.connectionRepository = connectionRepository;
+        this.userAccountRepository = userAccountRepository;
+        this.bulkTransferRepository = bulkTransferRepository;
+        this.userFeedRepository = userFeedRepository;
+    }
+
+    /**
+     * Reads a CSV file with one transfer per line: email,amount[,description].
+     * A header line starting with "email" and blank lines are skipped. The description is the
+     * rest of the line and may contain commas. An amount that is not a number is kept as null,
+     * so that the line is reported as rejected instead of failing the whole file.
+     * @param csv the content of the file
+     * @return the transfers, in the order of the file
+     */
+    public List<BulkTransferLine> parseCsv(Reader csv) throws IOException {
+        List<BulkTransferLine> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(csv);
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || (first && line.trim().toLowerCase().startsWith("email"))) {
+                first = false;
+                continue;
+            }
+            first = false;
+
+            String[] columns = line.split(",", 3);
+            String description = columns.length > 2 ? unquote(columns[2].trim()) : null;
+            lines.add(new BulkTransferLine(columns[0].trim(), parseAmount(columns.length > 1 ? columns[1] : null),
+                    description == null || description.isEmpty() ? null : description));
+        }
+        return lines;
+    }
+
+    private static BigDecimal parseAmount(String amount) {
+        try {
+            return amount == null ? null : new BigDecimal(amount.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1).replace("\"\"", "\"")
+                : value;
+    }
+
+    /**
+     * Sends the transfers of a bulk operation.
+     * @param senderId the ID of the sender
+     * @param transfers the transfers, at most paymybuddy.bulk.max-lines
+     * @return the result of each line, in the same order
+     * @throws IllegalArgumentException if there are too many lines or the sender does not exist
+     */
+    @Transactional
+    @Timed(value = "paymybuddy.transfer.bulk", description = "Time taken to make a bulk transfer")
+    public BulkTransferReport send(Long senderId, List<BulkTransferLine> transfers) {
+        if (transfers.size() > maxLines) {
+            throw new IllegalArgumentException("A bulk transfer is limited to " + maxLines + " lines");
+        }
+
+        // Tous les destinataires en une seule requête
+        Set<String> emails = new HashSet<>();
+        for (BulkTransferLine transfer : transfers) {
+            if (transfer.receiverEmail() != null) {
+                emails.add(transfer.receiverEmail());
+            }
+        }
+        Map<String, Long> contacts = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (ConnectionView contact : connectionRepository.findViewsByOwnerIdAndFriendEmailIn(senderId, emails)) {
+                contacts.put(contact.friendEmail(), contact.friendId());
+            }
+        }
+
+        BulkTransferLineResult[] results = new BulkTransferLineResult[transfers.size()];
+        long[] receiverIds = new long[transfers.size()];
+        long[] amounts = new long[transfers.size()];
+        int valid = 0;
+        int[] validLines = new int[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            BulkTransferLine transfer = transfers.get(i);
+            Long receiverId = contacts.get(transfer.receiverEmail());
+            Money amount = toMoney(transfer.amount());
+            if (amount == null || !amount.isPositive()) {
+                results[i] = BulkTransferLineResult.rejected(i + 1, transfer, "The amount must be greater than zero");
+            } else if (receiverId == null) {
+                results[i] = BulkTransferLineResult.rejected(i + 1, transfer, "You are not connected to this user");
+            } else {
+                validLines[valid] = i;
+                receiverIds[valid] = receiverId;
+                amounts[valid] = amount.cents();
+                valid++;
+            }
+        }
+
+        // Frais de toutes les lignes en un seul passage
+        FeeRate feeRate = transactionService.getFeeRate();
+        long[] fees = new long[valid];
+        feeRate.feesOf(Arrays.copyOf(amounts, valid), fees);
+
+        // Verrouille l'expéditeur et les destinataires dans l'ordre des identifiants
+        Set<Long> accountIds = new TreeSet<>();
+        accountIds.add(senderId);
+        for (int i = 0; i < valid; i++) {
+            accountIds.add(receiverIds[i]);
+        }
+        Money balance = bulkTransferRepository.lockAccounts(accountIds).get(senderId);
+        if (balance == null) {
+            throw new IllegalArgumentException("Sender not found");
+        }
+
+        // Accepte les lignes dans l'ordre tant que le solde les couvre
+        long available = balance.cents();
+        int accepted = 0;
+        for (int i = 0; i < valid; i++) {
+            long cost = amounts[i] + fees[i];
+            if (cost <= available) {
+                available -= cost;
+                validLines[accepted] = validLines[i];
+                receiverIds[accepted] = receiverIds[i];
+                amounts[accepted] = amounts[i];
+                fees[accepted] = fees[i];
+                accepted++;
+            } else {
+                int line = validLines[i];
+                results[line] = BulkTransferLineResult.rejected(line + 1, transfers.get(line), "Insufficient balance");
+            }
+        }
+
+        if (accepted > 0) {
+            long[] transactionIds = write(senderId, transfers, balance.cents() - available,
+                    Arrays.copyOf(validLines, accepted), Arrays.copyOf(receiverIds, accepted),
+                    Arrays.copyOf(amounts, accepted), Arrays.copyOf(fees, accepted), feeRate);
+            for (int i = 0; i < accepted; i++) {
+                int line = validLines[i];
+                results[line] = BulkTransferLineResult.accepted(line + 1, transfers.get(line), transactionIds[i]);
+            }
+        }
+
+        BulkTransferReport report = BulkTransferReport.of(List.of(results));
+        logger.info("Bulk transfer of user {}: {} lines accepted, {} rejected", senderId, report.accepted(), report.rejected());
+        return report;
+    }
+
+    private static Money toMoney(BigDecimal amount) {
+        try {
+            return amount == null ? null : Money.of(amount);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    // Writes the accepted lines, the accounts being already locked
+    private long[] write(Long senderId, List<BulkTransferLine> transfers, long totalCost, int[] lines,
+                         long[] receiverIds, long[] amounts, long[] fees, FeeRate feeRate) {
+        LocalDateTime date = LocalDateTime.now();
+        String[] descriptions = new String[lines.length];
+        SortedMap<Long, Money> credits = new TreeMap<>();
+        for (int i = 0; i < lines.length; i++) {
+            descriptions[i] = transfers.get(lines[i]).description();
+            credits.merge(receiverIds[i], Money.ofCents(amounts[i]), Money::plus);
+        }
+
+        userAccountRepository.debit(senderId, Money.ofCents(totalCost).toBigDecimal());
+        bulkTransferRepository.credit(credits);
+        long[] transactionIds = bulkTransferRepository.insertTransactions(senderId, receiverIds, amounts, fees, descriptions, date);
+        userFeedRepository.insertTransfers(senderId, transactionIds, receiverIds, amounts, fees, descriptions, date);
+
+        if (transactionService.isAsyncBilling()) {
+            bulkTransferRepository.insertBillingOutbox(transactionIds, feeRate.toPercentage(), date);
+        } else {
+            String[] billingDescriptions = new String[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                billingDescriptions[i] = Billing.describeFee(Money.ofCents(amounts[i]), transfers.get(lines[i]).receiverEmail());
+            }
+            bulkTransferRepository.insertBillings(transactionIds, fees, feeRate.toPercentage(), billingDescriptions, date);
+            billingSummaryService.recordCreated(date, feeRate.toPercentage(), fees);
+        }
+
+        userStatsService.recordTransfers(senderId, receiverIds, amounts);
+        return transactionIds;
+    }
+}
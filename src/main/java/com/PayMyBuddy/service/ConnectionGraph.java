@@ -0,0 +1,355 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository.EdgeConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of the contacts, so that a transfer checks that its sender and receiver are
+ * connected without a query. Each owner has the sorted array of the IDs of its friends, found
+ * through an open-addressing table keyed by owner ID: a contact takes 8 bytes, plus about
+ * 40 bytes per owner. A check is a hash probe and a binary search, without allocation.
+ * <p>
+ * The graph is loaded once the application is ready, then follows the changes committed by
+ * ConnectionService. It only answers "connected" for contacts it holds: until it is loaded, and
+ * for contacts created by another instance of the application, the callers check the database.
+ * A contact removed by another instance is only seen at the next reload, every
+ * paymybuddy.connections.graph.refresh-minutes, the same age as the contact cache of UserLookupService.
+ */
+@Component
+public class ConnectionGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionGraph.class);
+
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final ConnectionEdgeRepository connectionEdgeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Readers try without locking and only take the read lock when a writer got in meanwhile
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by lock, replaced by a bigger table when full
+    private Table table = new Table(16);
+    private volatile long edgeCount;
+    private volatile boolean loaded;
+
+    // Changes committed while a load reads the connection table, replayed on the loaded graph
+    private List<Change> pending;
+
+    @Value("${paymybuddy.connections.graph.enabled:true}")
+    private boolean enabled;
+
+    private record Change(long ownerId, long friendId, boolean added) {
+    }
+
+    @Autowired
+    public ConnectionGraph(ConnectionEdgeRepository connectionEdgeRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.connectionEdgeRepository = connectionEdgeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        Gauge.builder("paymybuddy.connections.graph.edges", this, ConnectionGraph::edgeCount)
+                .description("Contacts held by the in-memory connection graph")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return true once the graph holds every contact of the database
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return true if the owner has the friend among their contacts, false if the graph does not know it
+     */
+    public boolean isConnected(long ownerId, long friendId) {
+        long stamp = lock.tryOptimisticRead();
+        boolean connected = table.contains(ownerId, friendId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                connected = table.contains(ownerId, friendId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return connected;
+    }
+
+    /**
+     * Adds a contact once the current transaction commits, or right away without transaction.
+     */
+    public void addAfterCommit(long ownerId, long friendId) {
+        afterCommit(() -> apply(new Change(ownerId, friendId, true)));
+    }
+
+    /**
+     * Removes a contact once the current transaction commits, or right away without transaction.
+     */
+    public void removeAfterCommit(long ownerId, long friendId) {
+        afterCommit(() -> apply(new Change(ownerId, friendId, false)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void apply(Change change) {
+        long stamp = lock.writeLock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            }
+            applyLocked(change);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void applyLocked(Change change) {
+        long[] friends = table.friendsOf(change.ownerId());
+        if (friends == null) {
+            friends = NO_FRIENDS;
+        }
+        int index = Arrays.binarySearch(friends, change.friendId());
+        if (change.added() && index < 0) {
+            int insertAt = -index - 1;
+            long[] updated = new long[friends.length + 1];
+            System.arraycopy(friends, 0, updated, 0, insertAt);
+            updated[insertAt] = change.friendId();
+            System.arraycopy(friends, insertAt, updated, insertAt + 1, friends.length - insertAt);
+            table = table.put(change.ownerId(), updated);
+            edgeCount++;
+        } else if (!change.added() && index >= 0) {
+            long[] updated = new long[friends.length - 1];
+            System.arraycopy(friends, 0, updated, 0, index);
+            System.arraycopy(friends, index + 1, updated, index, updated.length - index);
+            table = table.put(change.ownerId(), updated);
+            edgeCount--;
+        }
+    }
+
+    /**
+     * Loads the graph from the connection table once the application is ready, unless
+     * paymybuddy.connections.graph.enabled is false.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long edges = rebuild(edgeConsumer ->
+                transactionTemplate.executeWithoutResult(status -> connectionEdgeRepository.forEachEdge(edgeConsumer)));
+        logger.info("Connection graph loaded: {} contacts in {} ms", edges,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Reloads the graph from the connection table, to drop the contacts removed by another instance
+     * of the application. Transfers keep reading the previous graph until the new one replaces it,
+     * so both are in memory meanwhile.
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.connections.graph.refresh-minutes:10}",
+            fixedDelayString = "${paymybuddy.connections.graph.refresh-minutes:10}", timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        load();
+    }
+
+    /**
+     * Replaces the graph with the contacts passed by the source, then replays the changes
+     * committed meanwhile. The contacts are best passed ordered by owner, as the database gives them.
+     * @param source passes every contact to the given consumer
+     * @return the number of contacts in the graph
+     */
+    public long rebuild(Consumer<EdgeConsumer> source) {
+        long stamp = lock.writeLock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        Builder builder = new Builder();
+        boolean built = false;
+        try {
+            source.accept(builder::add);
+            builder.flush();
+            built = true;
+        } finally {
+            stamp = lock.writeLock();
+            try {
+                List<Change> changes = pending;
+                pending = null;
+                if (built) {
+                    table = builder.table;
+                    edgeCount = builder.edges;
+                    changes.forEach(this::applyLocked);
+                    loaded = true;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        return edgeCount;
+    }
+
+    // Collects the friends of one owner at a time, then stores them sorted and without duplicates
+    private static final class Builder {
+
+        private Table table = new Table(1024);
+        private long edges;
+        private long owner;
+        private long[] friends = new long[64];
+        private int friendCount;
+
+        void add(long ownerId, long friendId) {
+            if (ownerId != owner) {
+                flush();
+                owner = ownerId;
+            }
+            if (friendCount == friends.length) {
+                friends = Arrays.copyOf(friends, friendCount * 2);
+            }
+            friends[friendCount++] = friendId;
+        }
+
+        void flush() {
+            if (friendCount == 0) {
+                return;
+            }
+            long[] known = table.friendsOf(owner);
+            int knownCount = known == null ? 0 : known.length;
+            if (known != null) {
+                // Owner met again: the source was not ordered by owner
+                if (friendCount + knownCount > friends.length) {
+                    friends = Arrays.copyOf(friends, friendCount + knownCount);
+                }
+                System.arraycopy(known, 0, friends, friendCount, knownCount);
+                friendCount += knownCount;
+            }
+            Arrays.sort(friends, 0, friendCount);
+            int distinct = 0;
+            for (int i = 0; i < friendCount; i++) {
+                if (distinct == 0 || friends[i] != friends[distinct - 1]) {
+                    friends[distinct++] = friends[i];
+                }
+            }
+            table = table.put(owner, Arrays.copyOf(friends, distinct));
+            edges += distinct - knownCount;
+            friendCount = 0;
+        }
+    }
+
+    /**
+     * Open-addressing table from owner ID to friends, with linear probing. Account IDs start at 1,
+     * so 0 marks a free slot. Owners are never removed: an owner without friends keeps an empty array.
+     */
+    private static final class Table {
+
+        private final long[] owners;
+        private final long[][] friends;
+        private int size;
+
+        Table(int capacity) {
+            owners = new long[capacity];
+            friends = new long[capacity][];
+        }
+
+        private int slot(long ownerId) {
+            long hash = ownerId * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (owners.length - 1);
+        }
+
+        // May run while a writer changes the table: the caller validates its stamp and reads again
+        long[] friendsOf(long ownerId) {
+            int mask = owners.length - 1;
+            for (int i = slot(ownerId); ; i = (i + 1) & mask) {
+                long owner = owners[i];
+                if (owner == ownerId) {
+                    return friends[i];
+                }
+                if (owner == 0) {
+                    return null;
+                }
+            }
+        }
+
+        boolean contains(long ownerId, long friendId) {
+            long[] ownerFriends = friendsOf(ownerId);
+            return ownerFriends != null && Arrays.binarySearch(ownerFriends, friendId) >= 0;
+        }
+
+        /**
+         * @return this table, or a bigger copy when more than two thirds of the slots were used
+         */
+        Table put(long ownerId, long[] ownerFriends) {
+            Table target = size * 3 >= owners.length * 2 ? grow() : this;
+            target.store(ownerId, ownerFriends);
+            return target;
+        }
+
+        private void store(long ownerId, long[] ownerFriends) {
+            int mask = owners.length - 1;
+            for (int i = slot(ownerId); ; i = (i + 1) & mask) {
+                if (owners[i] == ownerId) {
+                    friends[i] = ownerFriends;
+                    return;
+                }
+                if (owners[i] == 0) {
+                    // The friends first, so that a reader finding the owner never sees it without them
+                    friends[i] = ownerFriends;
+                    owners[i] = ownerId;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        private Table grow() {
+            Table bigger = new Table(owners.length * 2);
+            for (int i = 0; i < owners.length; i++) {
+                if (owners[i] != 0) {
+                    bigger.store(owners[i], friends[i]);
+                }
+            }
+            return bigger;
+        }
+    }
+}
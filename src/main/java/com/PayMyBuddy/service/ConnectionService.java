@@ -1,11 +1,14 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.ConnectionView;
 import com.PayMyBuddy.model.Connection;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.repository.ConnectionRepository;
 import com.PayMyBuddy.repository.UserAccountRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,11 +19,19 @@ public class ConnectionService {
 
     private final ConnectionRepository connectionRepository;
     private final UserAccountRepository userAccountRepository;
+    private final UserStatsService userStatsService;
+    private final UserLookupService userLookupService;
+    private final ConnectionGraph connectionGraph;
 
     @Autowired
-    public ConnectionService(ConnectionRepository connectionRepository, UserAccountRepository userAccountRepository) {
+    public ConnectionService(ConnectionRepository connectionRepository, UserAccountRepository userAccountRepository,
+                             UserStatsService userStatsService, UserLookupService userLookupService,
+                             ConnectionGraph connectionGraph) {
         this.connectionRepository = connectionRepository;
         this.userAccountRepository = userAccountRepository;
+        this.userStatsService = userStatsService;
+        this.userLookupService = userLookupService;
+        this.connectionGraph = connectionGraph;
     }
 
     public List<Connection> findAll() {
@@ -32,9 +43,16 @@ public class ConnectionService {
     }
 
     public List<Connection> findByOwnerId(Long ownerId) {
-        UserAccount owner = userAccountRepository.findById(ownerId)
-                .orElseThrow(() -> new IllegalArgumentException("Owner user not found"));
-        return connectionRepository.findByOwner(owner);
+        return connectionRepository.findByOwnerId(ownerId);
+    }
+
+    /**
+     * Returns the contact list of a user as read-only rows, without loading the user entities.
+     * @param ownerId the ID of the user whose contacts are read
+     * @return the user's contacts
+     */
+    public List<ConnectionView> findViewsByOwnerId(Long ownerId) {
+        return connectionRepository.findViewsByOwnerId(ownerId);
     }
 
     public Optional<Connection> findById(Long id) {
@@ -42,6 +60,7 @@ public class ConnectionService {
     }
 
     @Transactional
+    @Timed(value = "paymybuddy.connection.create", description = "Time taken to create a connection")
     public Connection createConnection(Long ownerId, Long friendId) {
         // Vérifier que les deux utilisateurs existent
         UserAccount owner = userAccountRepository.findById(ownerId)
@@ -50,8 +69,11 @@ public class ConnectionService {
         UserAccount friend = userAccountRepository.findById(friendId)
                 .orElseThrow(() -> new IllegalArgumentException("Friend user not found"));
 
-        // Check if the connection already exists
-        if (connectionRepository.existsByOwnerAndFriend(owner, friend)) {
+        // Check if the connection already exists, without query once the graph is loaded and does not hold it.
+        // The graph may still hold a contact removed by another instance, so a contact it holds is checked again
+        boolean exists = (!connectionGraph.isLoaded() || connectionGraph.isConnected(ownerId, friendId))
+                && connectionRepository.existsByOwnerAndFriend(owner, friend);
+        if (exists) {
             throw new IllegalArgumentException("This connection already exists");
         }
 
@@ -64,12 +86,28 @@ public class ConnectionService {
         connection.setOwner(owner);
         connection.setFriend(friend);
 
-        return connectionRepository.save(connection);
+        // Written at once, so that a contact created meanwhile by another instance, which the graph
+        // does not hold, fails here on the unique (owner, friend) constraint
+        Connection savedConnection;
+        try {
+            savedConnection = connectionRepository.saveAndFlush(connection);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("This connection already exists");
+        }
+        userStatsService.recordConnectionAdded(ownerId);
+        userLookupService.evictConnection(ownerId, friendId);
+        connectionGraph.addAfterCommit(ownerId, friendId);
+        return savedConnection;
     }
 
     @Transactional
     public void deleteConnection(Long id) {
-        connectionRepository.deleteById(id);
+        connectionRepository.findById(id).ifPresent(connection -> {
+            connectionRepository.delete(connection);
+            userStatsService.recordConnectionRemoved(connection.getOwner().getId());
+            userLookupService.evictConnection(connection.getOwner().getId(), connection.getFriend().getId());
+            connectionGraph.removeAfterCommit(connection.getOwner().getId(), connection.getFriend().getId());
+        });
     }
 
     @Transactional
@@ -84,6 +122,9 @@ public class ConnectionService {
 
         if (connection.isPresent()) {
             connectionRepository.delete(connection.get());
+            userStatsService.recordConnectionRemoved(ownerId);
+            userLookupService.evictConnection(ownerId, friendId);
+            connectionGraph.removeAfterCommit(ownerId, friendId);
         } else {
             throw new IllegalArgumentException("The connection does not exist");
         }
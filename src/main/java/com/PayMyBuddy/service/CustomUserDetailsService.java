@@ -1,27 +1,34 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.repository.UserAccountRepository;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    // By default, all users have the role "USER": one list shared by every principal
+    private static final List<GrantedAuthority> USER_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
 
     private final UserAccountRepository userAccountRepository;
+    private final UserLookupService userLookupService;
 
     @Autowired
-    public CustomUserDetailsService(UserAccountRepository userAccountRepository) {
+    public CustomUserDetailsService(UserAccountRepository userAccountRepository, UserLookupService userLookupService) {
         this.userAccountRepository = userAccountRepository;
+        this.userLookupService = userLookupService;
     }
 
     @Override
@@ -29,21 +36,29 @@ public class CustomUserDetailsService implements UserDetailsService {
         UserAccount userAccount = userAccountRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
 
-        // By default, all users have the role "USER"
-        List<GrantedAuthority> authorities = new ArrayList<>();
-        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-
         // For a more complex system, you might want to store roles in the database
         // and load them here
 
-        return new User(
-                userAccount.getEmail(),
-                userAccount.getPassword(),
-                true,           // enabled
-                true,           // accountNonExpired
-                true,           // credentialsNonExpired
-                true,           // accountNonLocked
-                authorities
-        );
+        // The principal keeps the user's id and names for the rest of the session
+        return new AuthenticatedUser(userAccount, USER_AUTHORITIES);
+    }
+
+    /**
+     * Stores the new hash of a password checked at login, when the stored one was made with a
+     * lower BCrypt strength than the current one (see BoundedPasswordEncoder).
+     * @param user the authenticated user
+     * @param newPassword the new hash
+     * @return the user with the new hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userAccountRepository.updatePassword(user.getUsername(), newPassword);
+        // The login has already cached the principal with the former hash
+        userLookupService.evictUserDetails(user.getUsername());
+        if (user instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.withPassword(newPassword);
+        }
+        return User.withUserDetails(user).password(newPassword).build();
     }
 }
@@ -0,0 +1,136 @@
+package com.PayMyBuddy.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent queries of a page at the same time, so that the page waits for the
+ * slowest of them instead of their sum. A query that fails or does not finish within
+ * paymybuddy.pages.timeout-ms of the page start is replaced by its fallback value, and the
+ * page is rendered with what it has, marked as partial.
+ * <p>
+ * The queries run on a bounded pool; when its queue is full a query runs on the request
+ * thread itself, as before. The queries must not depend on the request thread: pass them
+ * the IDs they need, not the security context.
+ * <p>
+ * A late query is not left running for nothing: its thread is interrupted, and each query runs
+ * in a transaction whose timeout is the time left before the deadline, which Spring and
+ * Hibernate pass to the JDBC statements as their query timeout, so the database cancels it too.
+ */
+@Component
+public class PageDataLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageDataLoader.class);
+
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final long timeoutNanos;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public PageDataLoader(@Value("${paymybuddy.pages.threads:16}") int threads,
+                          @Value("${paymybuddy.pages.queue-capacity:100}") int queueCapacity,
+                          @Value("${paymybuddy.pages.timeout-ms:2000}") long timeoutMillis,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "page-data-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "pageData");
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Starts the loading of a page: its queries share one deadline.
+     */
+    public Page page() {
+        return new Page(System.nanoTime() + timeoutNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public final class Page {
+
+        private final long deadline;
+        private volatile boolean partial;
+
+        private Page(long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Starts a query of the page.
+         * @param name the name of the query, for the logs and the paymybuddy.page.partial meter
+         * @param query the query, run on the pool
+         * @param fallback the value used if the query fails or is late
+         * @return the result of the query, waiting for it until the deadline of the page
+         */
+        public <T> Supplier<T> load(String name, Supplier<T> query, T fallback) {
+            // A FutureTask, whose cancel interrupts the thread running the query
+            Future<T> result = executor.submit(() -> inTransaction(query));
+            return () -> {
+                try {
+                    return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    result.cancel(true);
+                    return fallBack(name, "timeout", fallback, null);
+                } catch (ExecutionException e) {
+                    return fallBack(name, "error", fallback, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return fallBack(name, "interrupted", fallback, null);
+                }
+            };
+        }
+
+        // The transaction timeout has a precision of one second: rounded up, so as not to fail a query in time
+        private <T> T inTransaction(Supplier<T> query) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            transactionTemplate.setTimeout((int) Math.max(1, (remainingMillis + 999) / 1000));
+            return transactionTemplate.execute(status -> query.get());
+        }
+
+        private <T> T fallBack(String name, String reason, T fallback, Throwable cause) {
+            partial = true;
+            meterRegistry.counter("paymybuddy.page.partial", "query", name, "reason", reason).increment();
+            logger.warn("Page query {} replaced by its fallback ({})", name, reason, cause);
+            return fallback;
+        }
+
+        /**
+         * @return true if a query read so far was replaced by its fallback
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+    }
+}
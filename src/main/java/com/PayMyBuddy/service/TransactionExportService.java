@@ -0,0 +1,113 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.repository.TransactionExportRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Writes a user's transaction history as CSV or NDJSON (one JSON object per line).
+ * Each row is written as soon as it is read, so memory use does not depend on the number of transactions.
+ */
+@Service
+public class TransactionExportService {
+
+    static final String CSV_HEADER = "id,date,direction,counterparty,amount,fee,description";
+
+    private final TransactionExportRepository transactionExportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    // The response stream is closed by the servlet container, not by the generator
+    private final JsonFactory jsonFactory = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+
+    @Autowired
+    public TransactionExportService(TransactionExportRepository transactionExportRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.transactionExportRepository = transactionExportRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void writeCsv(Long userId, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        forEachTransaction(userId, transaction -> {
+            try {
+                writer.write(String.valueOf(transaction.id()));
+                writer.write(',');
+                writer.write(transaction.date().toString());
+                writer.write(',');
+                writer.write(direction(transaction));
+                writer.write(',');
+                writer.write(csvField(transaction.counterpartyName()));
+                writer.write(',');
+                writer.write(transaction.amount().toString());
+                writer.write(',');
+                writer.write(transaction.fee().toString());
+                writer.write(',');
+                writer.write(csvField(transaction.description()));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    public void writeNdjson(Long userId, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+            // Each object is ended by its own line break instead of the default space separator
+            generator.setRootValueSeparator(null);
+            forEachTransaction(userId, transaction -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", transaction.id());
+                    generator.writeStringField("date", transaction.date().toString());
+                    generator.writeStringField("direction", direction(transaction));
+                    generator.writeStringField("counterparty", transaction.counterpartyName());
+                    generator.writeNumberField("amount", transaction.amount().toBigDecimal());
+                    generator.writeNumberField("fee", transaction.fee().toBigDecimal());
+                    generator.writeStringField("description", transaction.description());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    // Runs the export in a read-only transaction, which PostgreSQL needs to stream the rows from a cursor
+    private void forEachTransaction(Long userId, Consumer<TransactionView> action) throws IOException {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> transactionExportRepository.forEachByUser(userId, action));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String direction(TransactionView transaction) {
+        return transaction.incoming() ? "received" : "sent";
+    }
+
+    // Quotes the field when it contains a separator, a quote or a line break (RFC 4180)
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,15 +1,26 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.TransactionPage;
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.dto.UserAccountSummary;
 import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.BillingOutbox;
+import com.PayMyBuddy.model.FeeRate;
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.Transaction;
 import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingOutboxRepository;
 import com.PayMyBuddy.repository.BillingRepository;
-import com.PayMyBuddy.repository.ConnectionRepository;
 import com.PayMyBuddy.repository.TransactionRepository;
 import com.PayMyBuddy.repository.UserAccountRepository;
+import com.PayMyBuddy.repository.UserFeedRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -21,23 +32,61 @@ import java.util.Optional;
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final UserFeedRepository userFeedRepository;
     private final UserAccountRepository userAccountRepository;
-    private final ConnectionRepository connectionRepository;
+    private final UserLookupService userLookupService;
+    private final ConnectionGraph connectionGraph;
     private final BillingRepository billingRepository;
+    private final BillingOutboxRepository billingOutboxRepository;
+    private final UserStatsService userStatsService;
+    private final BillingSummaryService billingSummaryService;
+    private final MeterRegistry meterRegistry;
 
-    @Value("${paymybuddy.fee.percentage:0.5}")
-    private BigDecimal feePercentage;
+    private FeeRate feeRate;
+
+    // When true the billing is only queued in the outbox and created by BillingOutboxWorker
+    @Value("${paymybuddy.billing.async:false}")
+    private boolean asyncBilling;
 
     @Autowired
     public TransactionService(
             TransactionRepository transactionRepository,
+            UserFeedRepository userFeedRepository,
             UserAccountRepository userAccountRepository,
-            ConnectionRepository connectionRepository,
-            BillingRepository billingRepository) {
+            UserLookupService userLookupService,
+            ConnectionGraph connectionGraph,
+            BillingRepository billingRepository,
+            BillingOutboxRepository billingOutboxRepository,
+            UserStatsService userStatsService,
+            BillingSummaryService billingSummaryService,
+            MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
+        this.userFeedRepository = userFeedRepository;
         this.userAccountRepository = userAccountRepository;
-        this.connectionRepository = connectionRepository;
+        this.userLookupService = userLookupService;
+        this.connectionGraph = connectionGraph;
         this.billingRepository = billingRepository;
+        this.billingOutboxRepository = billingOutboxRepository;
+        this.userStatsService = userStatsService;
+        this.billingSummaryService = billingSummaryService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Sets the fee percentage taken on each transfer, converted once into a {@link FeeRate}.
+     * @param feePercentage the percentage, with at most two decimals
+     */
+    @Value("${paymybuddy.fee.percentage:0.5}")
+    public void setFeePercentage(BigDecimal feePercentage) {
+        this.feeRate = FeeRate.ofPercentage(feePercentage);
+    }
+
+    public FeeRate getFeeRate() {
+        return feeRate;
+    }
+
+    public boolean isAsyncBilling() {
+        return asyncBilling;
     }
 
     public List<Transaction> findAll() {
@@ -60,50 +109,109 @@ public class TransactionService {
         return transactionRepository.findBySenderOrReceiverOrderByDateDesc(user, user);
     }
 
+    /**
+     * Returns one page of the user's history using keyset pagination on (date, id).
+     * Without a cursor the most recent transactions are returned, otherwise the ones
+     * strictly older than the cursor, so the cost does not grow with the page depth.
+     * The page is read from the user_feed rows of the user, not from the transaction table.
+     * @param userId the ID of the user whose history is read
+     * @param beforeDate date of the last transaction of the previous page, or null
+     * @param beforeId id of the last transaction of the previous page, or null
+     * @param size the maximum number of transactions in the page
+     * @return the page and whether older transactions remain
+     */
+    public TransactionPage findPageByUser(Long userId, LocalDateTime beforeDate, Long beforeId, int size) {
+        // Fetch one extra row to know whether a next page exists
+        Limit limit = Limit.of(size + 1);
+        List<TransactionView> transactions = (beforeDate == null || beforeId == null)
+                ? userFeedRepository.findViewsByUser(userId, limit)
+                : userFeedRepository.findViewsByUserBefore(userId, beforeDate, beforeId, limit);
+
+        boolean hasMore = transactions.size() > size;
+        return new TransactionPage(hasMore ? transactions.subList(0, size) : transactions, hasMore);
+    }
+
     @Transactional
+    @Timed(value = "paymybuddy.transfer", description = "Time taken to make a transfer", histogram = true)
     public Transaction makeTransaction(Long senderId, Long receiverId, BigDecimal amount, String description) {
-        // Check that the amount is positive
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("The amount must be greater than zero");
+        // Check that the amount is positive once rounded to the cent
+        Money transferAmount = Money.of(amount);
+        if (!transferAmount.isPositive()) {
+            throw rejected("invalid_amount", "The amount must be greater than zero");
         }
 
-        // Retrieve the sender and the receiver
-        UserAccount sender = userAccountRepository.findById(senderId)
-                .orElseThrow(() -> new IllegalArgumentException("Sender not found"));
+        // Retrieve the sender and the receiver, usually from the cache
+        userLookupService.findById(senderId)
+                .orElseThrow(() -> rejected("sender_not_found", "Sender not found"));
 
-        UserAccount receiver = userAccountRepository.findById(receiverId)
-                .orElseThrow(() -> new IllegalArgumentException("Receiver not found"));
+        UserAccountSummary receiver = userLookupService.findById(receiverId)
+                .orElseThrow(() -> rejected("receiver_not_found", "Receiver not found"));
 
-        // Check that the sender and receiver are connected
-        if (!connectionRepository.existsByOwnerAndFriend(sender, receiver)) {
-            throw new IllegalArgumentException("You are not connected to this user");
+        // Check that the sender and receiver are connected, in the database if the graph does not know the contact
+        if (!connectionGraph.isConnected(senderId, receiverId) && !userLookupService.isConnected(senderId, receiverId)) {
+            throw rejected("not_connected", "You are not connected to this user");
         }
 
-        // Calculer les frais
-        BigDecimal fee = Billing.calculateFee(amount, feePercentage);
+        // Calculer les frais, payés par l'expéditeur en plus du montant
+        Money fee = feeRate.feeOf(transferAmount);
+        moveBalances(senderId, receiverId, transferAmount.plus(fee), transferAmount);
 
-        // Créer la transaction (sans modification des soldes)
+        // Créer la transaction, avec des références aux comptes qui ne les chargent pas
         Transaction transaction = new Transaction();
-        transaction.setSender(sender);
-        transaction.setReceiver(receiver);
-        transaction.setAmount(amount);
+        transaction.setSender(userAccountRepository.getReferenceById(senderId));
+        transaction.setReceiver(userAccountRepository.getReferenceById(receiverId));
+        transaction.setAmount(transferAmount);
         transaction.setDescription(description);
         transaction.setDate(LocalDateTime.now());
         transaction.setFee(fee);
 
         Transaction savedTransaction = transactionRepository.save(transaction);
+        userFeedRepository.insertTransfers(senderId, new long[]{savedTransaction.getId()}, new long[]{receiverId},
+                new long[]{transferAmount.cents()}, new long[]{fee.cents()}, new String[]{description},
+                savedTransaction.getDate());
+        userStatsService.recordTransfer(senderId, receiverId, transferAmount);
+
+        // Enregistrer la facturation, ou la mettre en file dans la même transaction
+        if (asyncBilling) {
+            billingOutboxRepository.save(new BillingOutbox(null, savedTransaction.getId(), feeRate.toPercentage(), savedTransaction.getDate()));
+        } else {
+            Billing billing = Billing.forTransaction(savedTransaction, receiver.email(), feeRate.toPercentage(), LocalDateTime.now());
+            billingRepository.save(billing);
+            // Queued rather than added to the row of the day, which every transfer would wait for
+            billingSummaryService.queueCreated(List.of(billing));
+        }
+
+        return savedTransaction;
+    }
 
-        // Enregistrer la facturation
-        Billing billing = new Billing();
-        billing.setTransaction(savedTransaction);
-        billing.setAmount(fee);
-        billing.setDate(LocalDateTime.now());
-        billing.setProcessed(false);
-        billing.setFeePercentage(feePercentage);
-        billing.setDescription("Transaction fee for transferring " + amount + " to " + receiver.getEmail());
+    /**
+     * Debits the sender and credits the receiver. The two account rows are always locked in
+     * account ID order, so that concurrent transfers between the same accounts, in either
+     * direction, wait for each other instead of deadlocking.
+     */
+    private void moveBalances(Long senderId, Long receiverId, Money debit, Money credit) {
+        if (senderId < receiverId) {
+            debit(senderId, debit);
+            userAccountRepository.credit(receiverId, credit.toBigDecimal());
+        } else {
+            userAccountRepository.credit(receiverId, credit.toBigDecimal());
+            debit(senderId, debit);
+        }
+    }
 
-        billingRepository.save(billing);
+    private void debit(Long senderId, Money amount) {
+        if (userAccountRepository.debit(senderId, amount.toBigDecimal()) == 0) {
+            throw rejected("insufficient_funds", "Insufficient balance");
+        }
+    }
 
-        return savedTransaction;
+    // Counts the rejected transfer by reason and returns the exception to throw
+    private IllegalArgumentException rejected(String reason, String message) {
+        Counter.builder("paymybuddy.transfers.rejected")
+                .description("Transfers rejected by TransactionService")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new IllegalArgumentException(message);
     }
 }
@@ -0,0 +1,182 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.IdempotencyRecord;
+import com.PayMyBuddy.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Makes transfers idempotent: a transfer sent again with the same idempotency key returns the
+ * transaction created the first time instead of making a second transfer.
+ * <p>
+ * The keys are recorded in the idempotency_record table, in the database transaction of the
+ * transfer, and the most recent ones are also kept in memory so that a repeat is usually
+ * answered without any query. Only completed transfers are recorded: a rejected transfer
+ * changed nothing and may be retried with the same key.
+ */
+@Service
+public class TransferIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferIdempotencyService.class);
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final TransactionService transactionService;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter duplicates;
+
+    // A lock rather than synchronized: a virtual thread waiting for a monitor pins its carrier thread
+    private final ReentrantLock recentLock = new ReentrantLock();
+
+    // Keys answered recently, in insertion order, which is also their expiry order; guarded by recentLock
+    private final LinkedHashMap<IdempotencyRecord.Key, Remembered> recent = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<IdempotencyRecord.Key, Remembered> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @Value("${paymybuddy.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${paymybuddy.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    private record Remembered(Long transactionId, LocalDateTime expiresAt) {
+    }
+
+    @Autowired
+    public TransferIdempotencyService(TransactionService transactionService,
+                                      IdempotencyRecordRepository idempotencyRecordRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry) {
+        this.transactionService = transactionService;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.duplicates = Counter.builder("paymybuddy.transfers.duplicate")
+                .description("Transfers sent again with an idempotency key already used")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Makes a transfer once per idempotency key and user.
+     * @param senderId the ID of the sender
+     * @param idempotencyKey the key chosen by the client for this transfer
+     * @param receiverId the ID of the receiver
+     * @param amount the amount to transfer
+     * @param description the description of the transfer
+     * @return the ID of the transaction, created now or by the first request with this key
+     * @throws IllegalArgumentException if the key is invalid or the transfer is rejected
+     */
+    public Long send(Long senderId, String idempotencyKey, Long receiverId, BigDecimal amount, String description) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Invalid idempotency key");
+        }
+
+        IdempotencyRecord.Key key = new IdempotencyRecord.Key(senderId, idempotencyKey);
+        Long previous = findTransactionId(key);
+        if (previous != null) {
+            duplicates.increment();
+            return previous;
+        }
+
+        Long transactionId;
+        try {
+            // The key is reserved first, so that a concurrent request with the same key waits
+            // on it and fails before reaching the transfer
+            transactionId = transactionTemplate.execute(status -> {
+                idempotencyRecordRepository.reserve(senderId, idempotencyKey, LocalDateTime.now());
+                Long created = transactionService.makeTransaction(senderId, receiverId, amount, description).getId();
+                idempotencyRecordRepository.complete(senderId, idempotencyKey, created);
+                return created;
+            });
+        } catch (DataIntegrityViolationException e) {
+            Long concurrent = findTransactionId(key);
+            if (concurrent == null) {
+                throw e;
+            }
+            duplicates.increment();
+            return concurrent;
+        }
+
+        remember(key, transactionId);
+        return transactionId;
+    }
+
+    private Long findTransactionId(IdempotencyRecord.Key key) {
+        Long transactionId = recall(key);
+        if (transactionId == null) {
+            transactionId = idempotencyRecordRepository.findById(key)
+                    .map(IdempotencyRecord::getTransactionId)
+                    .orElse(null);
+            if (transactionId != null) {
+                remember(key, transactionId);
+            }
+        }
+        return transactionId;
+    }
+
+    private Long recall(IdempotencyRecord.Key key) {
+        recentLock.lock();
+        try {
+            Remembered remembered = recent.get(key);
+            if (remembered == null) {
+                return null;
+            }
+            if (remembered.expiresAt().isBefore(LocalDateTime.now())) {
+                recent.remove(key);
+                return null;
+            }
+            return remembered.transactionId();
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    private void remember(IdempotencyRecord.Key key, Long transactionId) {
+        LocalDateTime now = LocalDateTime.now();
+        recentLock.lock();
+        try {
+            // Drop the expired keys at the head, the capacity limit takes care of the rest
+            Iterator<Remembered> iterator = recent.values().iterator();
+            while (iterator.hasNext() && iterator.next().expiresAt().isBefore(now)) {
+                iterator.remove();
+            }
+            recent.put(key, new Remembered(transactionId, now.plusMinutes(ttlMinutes)));
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the keys older than paymybuddy.idempotency.ttl-minutes, after which a repeated
+     * request is treated as a new transfer.
+     * @return the number of keys deleted
+     */
+    @Scheduled(fixedDelayString = "${paymybuddy.idempotency.purge-delay-ms:3600000}")
+    public int purgeExpired() {
+        int deleted = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusMinutes(ttlMinutes)));
+        if (deleted > 0) {
+            logger.debug("Idempotency keys purged: {}", deleted);
+        }
+        return deleted;
+    }
+}
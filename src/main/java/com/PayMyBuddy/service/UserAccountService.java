@@ -1,7 +1,10 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.UserAccountSummary;
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.repository.UserAccountRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -15,11 +18,16 @@ public class UserAccountService {
 
     private final UserAccountRepository userAccountRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserStatsService userStatsService;
+    private final UserLookupService userLookupService;
 
     @Autowired
-    public UserAccountService(UserAccountRepository userAccountRepository, PasswordEncoder passwordEncoder) {
+    public UserAccountService(UserAccountRepository userAccountRepository, PasswordEncoder passwordEncoder,
+                              UserStatsService userStatsService, UserLookupService userLookupService) {
         this.userAccountRepository = userAccountRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userStatsService = userStatsService;
+        this.userLookupService = userLookupService;
     }
 
     public List<UserAccount> findAll() {
@@ -34,6 +42,15 @@ public class UserAccountService {
         return userAccountRepository.findByEmail(email);
     }
 
+    /**
+     * Finds the id and names of an account from its email, usually from the cache.
+     * @param email the email of the account
+     * @return the account, or empty if no account has this email
+     */
+    public Optional<UserAccountSummary> findSummaryByEmail(String email) {
+        return userLookupService.findByEmail(email);
+    }
+
     /**
      * Saves a user account. The @Transactional annotation ensures that the operation
      * is executed within a transaction. If an exception occurs, all changes will be rolled back.
@@ -44,7 +61,12 @@ public class UserAccountService {
         if (userAccount.getPassword() != null && !userAccount.getPassword().startsWith("$2a$")) {
             userAccount.setPassword(passwordEncoder.encode(userAccount.getPassword()));
         }
-        return userAccountRepository.save(userAccount);
+        // Read before the save flushes a new email, to evict the entries of the previous one
+        String previousEmail = userAccount.getId() == null ? null
+                : userAccountRepository.findStoredEmailById(userAccount.getId()).orElse(null);
+        UserAccount savedUser = userAccountRepository.save(userAccount);
+        userLookupService.evictUser(savedUser.getId(), previousEmail, savedUser.getEmail());
+        return savedUser;
     }
 
     /**
@@ -52,6 +74,7 @@ public class UserAccountService {
      * is executed within a transaction. If an exception occurs, all changes will be rolled back.
      */
     @Transactional
+    @Timed(value = "paymybuddy.user.register", description = "Time taken to register a user, password hashing included")
     public UserAccount register(UserAccount userAccount) {
         if (userAccountRepository.existsByEmail(userAccount.getEmail())) {
             throw new IllegalArgumentException("A user with this email address already exists");
@@ -59,8 +82,12 @@ public class UserAccountService {
 
         // Encrypt the password before saving the user
         userAccount.setPassword(passwordEncoder.encode(userAccount.getPassword()));
+        // A new account always starts with an empty balance, whatever the form sent
+        userAccount.setBalance(Money.ZERO);
 
-        return userAccountRepository.save(userAccount);
+        UserAccount savedUser = userAccountRepository.save(userAccount);
+        userStatsService.initialize(savedUser.getId());
+        return savedUser;
     }
 
     /**
@@ -69,7 +96,9 @@ public class UserAccountService {
      */
     @Transactional
     public void delete(Long id) {
+        String email = userAccountRepository.findStoredEmailById(id).orElse(null);
         userAccountRepository.deleteById(id);
+        userLookupService.evictUser(id, email);
     }
 
     /**
@@ -0,0 +1,66 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Principals of the logins, keyed by email, so that DaoAuthenticationProvider does not read the
+ * account again on each login. The entries live in the userDetails cache of CacheConfig, evicted by
+ * UserLookupService when a profile or a password hash changes.
+ * <p>
+ * The cache keeps its own copy of each principal: after a login Spring Security erases the password
+ * of the principal it returns, which would otherwise erase the cached hash too.
+ * Without a CacheManager (caching disabled) every login reads the database.
+ */
+@Component
+public class UserDetailsCache implements UserCache {
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    @Autowired
+    public UserDetailsCache(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Cache cache = cache();
+        UserDetails user = cache == null ? null : cache.get(username, UserDetails.class);
+        return user == null ? null : copy(user);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        Cache cache = cache();
+        if (cache != null) {
+            cache.put(user.getUsername(), copy(user));
+        }
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        Cache cache = cache();
+        if (cache != null) {
+            cache.evict(username);
+        }
+    }
+
+    private Cache cache() {
+        CacheManager caches = cacheManager.getIfAvailable();
+        return caches == null ? null : caches.getCache(UserLookupService.USER_DETAILS);
+    }
+
+    private static UserDetails copy(UserDetails user) {
+        if (user instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.withPassword(authenticatedUser.getPassword());
+        }
+        return User.withUserDetails(user).build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.repository.TransactionRepository;
+import com.PayMyBuddy.repository.UserFeedRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Backfill of the user_feed read model. New transfers write their rows themselves
+ * (TransactionService, BulkTransferService); this fills in the rows of the transactions made
+ * before the table existed, or missing for any other reason, without touching the others.
+ */
+@Service
+public class UserFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserFeedService.class);
+
+    private final UserFeedRepository userFeedRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${paymybuddy.feed.backfill:false}")
+    private boolean backfillOnStartup;
+
+    // Range of transaction IDs filled per database transaction
+    @Value("${paymybuddy.feed.backfill-batch-size:100000}")
+    private long batchSize;
+
+    @Autowired
+    public UserFeedService(UserFeedRepository userFeedRepository, TransactionRepository transactionRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.userFeedRepository = userFeedRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Writes the missing rows of the transactions with an ID in [fromId, toId), batchSize IDs
+     * per transaction.
+     * @return the number of rows written
+     */
+    public long rebuild(long fromId, long toId) {
+        long rows = 0;
+        for (long start = fromId; start < toId; start += batchSize) {
+            long batchStart = start;
+            long batchEnd = Math.min(toId, start + batchSize);
+            rows += transactionTemplate.execute(status -> userFeedRepository.insertMissing(batchStart, batchEnd));
+        }
+        return rows;
+    }
+
+    /**
+     * Backfills the feed from the first transaction to the last one.
+     * @return the number of rows written
+     */
+    public long rebuildAll() {
+        Long firstId = transactionRepository.findFirstId();
+        Long lastId = transactionRepository.findLastId();
+        if (firstId == null) {
+            return 0;
+        }
+        long rows = rebuild(firstId, lastId + 1);
+        logger.info("User feed rebuilt for transactions {} to {}: {} rows", firstId, lastId, rows);
+        return rows;
+    }
+
+    /**
+     * Backfill command: started with --paymybuddy.feed.backfill=true, the application fills the
+     * feed once it is ready. Transfers can go on meanwhile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            rebuildAll();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.UserAccountSummary;
+import com.PayMyBuddy.repository.ConnectionRepository;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Cached lookups of the accounts and contacts read by every transfer. Only values that change
+ * with a profile edit or a contact change are cached, never the balances.
+ * <p>
+ * UserAccountService and ConnectionService evict the entries they change, once right away and
+ * once more after the commit, so that a lookup made in between cannot keep the old value.
+ * Without a CacheManager (caching disabled) every lookup reads the database.
+ */
+@Service
+public class UserLookupService {
+
+    public static final String USERS_BY_ID = "userAccounts";
+    public static final String USERS_BY_EMAIL = "userAccountsByEmail";
+    public static final String CONNECTIONS = "connections";
+    // Principals of the logins, read through UserDetailsCache
+    public static final String USER_DETAILS = "userDetails";
+
+    private final UserAccountRepository userAccountRepository;
+    private final ConnectionRepository connectionRepository;
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    @Autowired
+    public UserLookupService(UserAccountRepository userAccountRepository, ConnectionRepository connectionRepository,
+                             ObjectProvider<CacheManager> cacheManager) {
+        this.userAccountRepository = userAccountRepository;
+        this.connectionRepository = connectionRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    @Cacheable(cacheNames = USERS_BY_ID, unless = "#result == null")
+    public Optional<UserAccountSummary> findById(Long id) {
+        return userAccountRepository.findSummaryById(id);
+    }
+
+    @Cacheable(cacheNames = USERS_BY_EMAIL, unless = "#result == null")
+    public Optional<UserAccountSummary> findByEmail(String email) {
+        return userAccountRepository.findSummaryByEmail(email);
+    }
+
+    /**
+     * @return true if the owner has the friend among their contacts
+     */
+    @Cacheable(cacheNames = CONNECTIONS, key = "#p0 + ':' + #p1")
+    public boolean isConnected(Long ownerId, Long friendId) {
+        return connectionRepository.existsByOwnerIdAndFriendId(ownerId, friendId);
+    }
+
+    /**
+     * Evicts an account whose profile changed or which was deleted.
+     * @param emails the emails the account had before and after the change, null ones skipped
+     */
+    public void evictUser(Long userId, String... emails) {
+        evict(caches -> {
+            caches.getCache(USERS_BY_ID).evict(userId);
+            for (String email : emails) {
+                if (email != null) {
+                    caches.getCache(USERS_BY_EMAIL).evict(email);
+                    caches.getCache(USER_DETAILS).evict(email);
+                }
+            }
+        });
+    }
+
+    /**
+     * Evicts the principal of a login whose password hash changed.
+     */
+    public void evictUserDetails(String email) {
+        evict(caches -> caches.getCache(USER_DETAILS).evict(email));
+    }
+
+    public void evictConnection(Long ownerId, Long friendId) {
+        evict(caches -> caches.getCache(CONNECTIONS).evict(ownerId + ":" + friendId));
+    }
+
+    private void evict(Consumer<CacheManager> eviction) {
+        CacheManager caches = cacheManager.getIfAvailable();
+        if (caches == null) {
+            return;
+        }
+        eviction.accept(caches);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.accept(caches);
+                }
+            });
+        }
+    }
+
+    /**
+     * Empties every cache, for the tests and after changes made directly in the database.
+     */
+    public void clear() {
+        CacheManager caches = cacheManager.getIfAvailable();
+        if (caches != null) {
+            caches.getCacheNames().stream().map(caches::getCache).forEach(Cache::clear);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserStats;
+import com.PayMyBuddy.repository.UserStatsRepository;
+import com.PayMyBuddy.repository.UserStatsRepositoryCustom.Delta;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Maintains the user_stats counters. They are updated in the transaction of each connection
+ * and transfer, and checked against the source tables by a nightly job that repairs any drift.
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+
+    private final UserStatsRepository userStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${paymybuddy.stats.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public UserStatsService(UserStatsRepository userStatsRepository, PlatformTransactionManager transactionManager) {
+        this.userStatsRepository = userStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Returns the counters of a user, computing them first if the user has no row yet.
+     * @param userId the ID of the user
+     * @return the counters
+     */
+    public UserStats getStats(Long userId) {
+        return userStatsRepository.findById(userId).orElseGet(() -> {
+            rebuild(List.of(userId));
+            return userStatsRepository.findById(userId).orElseGet(() -> UserStats.empty(userId));
+        });
+    }
+
+    @Transactional
+    public void initialize(Long userId) {
+        userStatsRepository.save(UserStats.empty(userId));
+    }
+
+    @Transactional
+    public void recordConnectionAdded(Long ownerId) {
+        if (userStatsRepository.addConnections(ownerId, 1) == 0) {
+            repair(ownerId);
+        }
+    }
+
+    @Transactional
+    public void recordConnectionRemoved(Long ownerId) {
+        if (userStatsRepository.addConnections(ownerId, -1) == 0) {
+            repair(ownerId);
+        }
+    }
+
+    /**
+     * Adds a transfer to the counters of its sender and receiver.
+     * The two rows are always updated in user ID order, so that two transfers in opposite
+     * directions between the same users cannot deadlock.
+     */
+    @Transactional
+    public void recordTransfer(Long senderId, Long receiverId, Money amount) {
+        if (senderId < receiverId) {
+            addSent(senderId, amount);
+            addReceived(receiverId, amount);
+        } else {
+            addReceived(receiverId, amount);
+            addSent(senderId, amount);
+        }
+    }
+
+    /**
+     * Adds the transfers of a bulk transfer to the counters of the sender and receivers,
+     * with one batched update per user, in user ID order.
+     * @param senderId the ID of the sender
+     * @param receiverIds the ID of the receiver of each transfer
+     * @param amountsInCents the amount of each transfer
+     */
+    @Transactional
+    public void recordTransfers(Long senderId, long[] receiverIds, long[] amountsInCents) {
+        SortedMap<Long, long[]> received = new TreeMap<>();
+        long sentTotal = 0;
+        for (int i = 0; i < receiverIds.length; i++) {
+            long[] totals = received.computeIfAbsent(receiverIds[i], id -> new long[2]);
+            totals[0]++;
+            totals[1] += amountsInCents[i];
+            sentTotal += amountsInCents[i];
+        }
+
+        // The sender takes its place in the user ID order
+        Delta sent = new Delta(senderId, receiverIds.length, Money.ofCents(sentTotal).toBigDecimal(), 0, BigDecimal.ZERO);
+        List<Delta> deltas = new ArrayList<>(received.size() + 1);
+        for (Map.Entry<Long, long[]> entry : received.entrySet()) {
+            if (sent != null && senderId < entry.getKey()) {
+                deltas.add(sent);
+                sent = null;
+            }
+            deltas.add(new Delta(entry.getKey(), 0, BigDecimal.ZERO, entry.getValue()[0],
+                    Money.ofCents(entry.getValue()[1]).toBigDecimal()));
+        }
+        if (sent != null) {
+            deltas.add(sent);
+        }
+
+        int[] updated = userStatsRepository.addAll(deltas);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                repair(deltas.get(i).userId());
+            }
+        }
+    }
+
+    private void addSent(Long userId, Money amount) {
+        if (userStatsRepository.addSent(userId, amount.toBigDecimal()) == 0) {
+            repair(userId);
+        }
+    }
+
+    private void addReceived(Long userId, Money amount) {
+        if (userStatsRepository.addReceived(userId, amount.toBigDecimal()) == 0) {
+            repair(userId);
+        }
+    }
+
+    // Creates the missing row from the source tables, which already include the current change
+    private void repair(Long userId) {
+        List<Long> userIds = List.of(userId);
+        userStatsRepository.insertMissing(userIds);
+        userStatsRepository.recompute(userIds);
+    }
+
+    /**
+     * Recomputes the counters of the given users from the source tables, in one transaction.
+     * @param userIds the IDs of the users
+     * @return the number of rows recomputed
+     */
+    public int rebuild(List<Long> userIds) {
+        return transactionTemplate.execute(status -> {
+            userStatsRepository.insertMissing(userIds);
+            userStatsRepository.lockForUpdate(userIds);
+            return userStatsRepository.recompute(userIds);
+        });
+    }
+
+    /**
+     * Recomputes the counters of every user, batchSize users per transaction.
+     * @return the number of rows recomputed
+     */
+    public long rebuildAll() {
+        long rebuilt = 0;
+        List<Long> userIds = userStatsRepository.findUserIdsAfter(0L, batchSize);
+        while (!userIds.isEmpty()) {
+            rebuilt += rebuild(userIds);
+            userIds = userStatsRepository.findUserIdsAfter(userIds.get(userIds.size() - 1), batchSize);
+        }
+        logger.info("User stats rebuilt for {} users", rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * Lists the users whose counters differ from the source tables, or who have no counters.
+     * @return the IDs of the users, in ascending order
+     */
+    public List<Long> findInconsistentUserIds() {
+        List<Long> inconsistent = new ArrayList<>();
+        List<Long> userIds = userStatsRepository.findUserIdsAfter(0L, batchSize);
+        while (!userIds.isEmpty()) {
+            inconsistent.addAll(userStatsRepository.findInconsistentUserIds(userIds));
+            userIds = userStatsRepository.findUserIdsAfter(userIds.get(userIds.size() - 1), batchSize);
+        }
+        return inconsistent;
+    }
+
+    /**
+     * Consistency check run every night: rebuilds the counters of the users that drifted.
+     * @return the number of users repaired
+     */
+    @Scheduled(cron = "${paymybuddy.stats.check-cron:0 30 3 * * *}")
+    public int checkAndRepair() {
+        List<Long> inconsistent = findInconsistentUserIds();
+        if (inconsistent.isEmpty()) {
+            return 0;
+        }
+
+        logger.warn("User stats drift detected for {} users: {}", inconsistent.size(),
+                inconsistent.subList(0, Math.min(inconsistent.size(), 20)));
+        for (int from = 0; from < inconsistent.size(); from += batchSize) {
+            rebuild(inconsistent.subList(from, Math.min(inconsistent.size(), from + batchSize)));
+        }
+        return inconsistent.size();
+    }
+}
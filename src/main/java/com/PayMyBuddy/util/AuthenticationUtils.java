@@ -1,7 +1,9 @@
 package com.PayMyBuddy.util;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.service.UserAccountService;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -16,17 +18,41 @@ public class AuthenticationUtils {
     }
 
     /**
-     * Get the currently authenticated user
+     * Get the principal of the authenticated user, without querying the database
+     * when it was created at login by CustomUserDetailsService
      * @return the authenticated user
-     * @throws IllegalArgumentException if the user is not found
+     * @throws IllegalArgumentException if the user is not authenticated or not found
      */
-    public UserAccount getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || auth.getName().equals("anonymousUser")) {
-            throw new IllegalArgumentException("User not authenticated");
+    public AuthenticatedUser getAuthenticatedUser() {
+        Authentication auth = getAuthentication();
+        if (auth.getPrincipal() instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser;
         }
 
-        return userAccountService.findByEmail(auth.getName())
+        // Authentication created by other means: resolve it from the database
+        UserAccount user = userAccountService.findByEmail(auth.getName())
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser(user, auth.getAuthorities());
+        authenticatedUser.eraseCredentials();
+        return authenticatedUser;
+    }
+
+    /**
+     * Get the ID of the authenticated user
+     * @return the ID of the authenticated user
+     */
+    public Long getCurrentUserId() {
+        return getAuthenticatedUser().getId();
+    }
+
+    /**
+     * Get the currently authenticated user entity. Only needed when the entity itself is
+     * modified, the other pages should use {@link #getAuthenticatedUser()}.
+     * @return the authenticated user
+     * @throws IllegalArgumentException if the user is not found
+     */
+    public UserAccount getCurrentUser() {
+        return userAccountService.findById(getCurrentUserId())
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
@@ -36,10 +62,29 @@ public class AuthenticationUtils {
      * @return the email of the authenticated user
      */
     public String getCurrentUserEmail() {
+        return getAuthentication().getName();
+    }
+
+    /**
+     * Replace the principal of the security context after the user's profile has changed,
+     * so that the next requests see the new email and names.
+     * @param user the updated user
+     */
+    public void refreshAuthenticatedUser(UserAccount user) {
+        Authentication auth = getAuthentication();
+        AuthenticatedUser principal = new AuthenticatedUser(user, auth.getAuthorities());
+        principal.eraseCredentials();
+        Authentication newAuth = new UsernamePasswordAuthenticationToken(
+                principal, auth.getCredentials(), auth.getAuthorities()
+        );
+        SecurityContextHolder.getContext().setAuthentication(newAuth);
+    }
+
+    private Authentication getAuthentication() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getName().equals("anonymousUser")) {
             throw new IllegalArgumentException("User not authenticated");
         }
-        return auth.getName();
+        return auth;
     }
 }
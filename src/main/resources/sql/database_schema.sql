@@ -1,7 +1,9 @@
 
+-- Ids are generated BY DEFAULT from the <table>_id_seq sequences, which Hibernate reads 50 values at a time (see V6)
+
 -- Create User Account table
 CREATE TABLE user_account (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
     email VARCHAR(255) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     first_name VARCHAR(255) NOT NULL,
@@ -11,7 +13,7 @@ CREATE TABLE user_account (
 
 -- Create Connection table
 CREATE TABLE connection (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
     owner_id BIGINT NOT NULL,
     friend_id BIGINT NOT NULL,
     FOREIGN KEY (owner_id) REFERENCES user_account(id),
@@ -21,7 +23,7 @@ CREATE TABLE connection (
 
 -- Create Transaction table
 CREATE TABLE transaction (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
     sender_id BIGINT NOT NULL,
     receiver_id BIGINT NOT NULL,
     amount DECIMAL(19, 2) NOT NULL,
@@ -34,7 +36,7 @@ CREATE TABLE transaction (
 
 -- Create Billing table
 CREATE TABLE billing (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
     transaction_id BIGINT NOT NULL,
     amount DECIMAL(19, 2) NOT NULL,
     date TIMESTAMP NOT NULL,
@@ -44,7 +46,77 @@ CREATE TABLE billing (
     FOREIGN KEY (transaction_id) REFERENCES transaction(id)
 );
 
+-- Create Billing Outbox table (billings still to be created, see paymybuddy.billing.async)
+CREATE TABLE billing_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
+    transaction_id BIGINT NOT NULL,
+    fee_percentage DECIMAL(5, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (transaction_id) REFERENCES transaction(id)
+);
+
+-- Create User Stats table (dashboard counters maintained by UserStatsService)
+CREATE TABLE user_stats (
+    user_id BIGINT PRIMARY KEY,
+    connection_count BIGINT NOT NULL DEFAULT 0,
+    sent_count BIGINT NOT NULL DEFAULT 0,
+    received_count BIGINT NOT NULL DEFAULT 0,
+    sent_total DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    received_total DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES user_account(id) ON DELETE CASCADE
+);
+
+-- Create Idempotency Record table (keys of the transfers already made, see TransferIdempotencyService)
+CREATE TABLE idempotency_record (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    transaction_id BIGINT,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+-- Create Billing Daily Summary table (fees per day and fee percentage maintained by BillingSummaryService)
+CREATE TABLE billing_daily_summary (
+    billing_day DATE NOT NULL,
+    fee_percentage DECIMAL(5, 2) NOT NULL,
+    billing_count BIGINT NOT NULL DEFAULT 0,
+    sum_amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    processed_count BIGINT NOT NULL DEFAULT 0,
+    processed_amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (billing_day, fee_percentage)
+);
+
+-- Create Billing Summary Delta table (changes of billing_daily_summary not folded yet, see V9)
+CREATE TABLE billing_summary_delta (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
+    billing_day DATE NOT NULL,
+    fee_percentage DECIMAL(5, 2) NOT NULL,
+    billing_count BIGINT NOT NULL,
+    sum_amount DECIMAL(19, 2) NOT NULL,
+    processed_count BIGINT NOT NULL,
+    processed_amount DECIMAL(19, 2) NOT NULL
+);
+
+-- Create User Feed table (one row per transaction and participant, written with the transaction, see V8)
+CREATE TABLE user_feed (
+    user_id BIGINT NOT NULL,
+    date TIMESTAMP NOT NULL,
+    transaction_id BIGINT NOT NULL,
+    incoming BOOLEAN NOT NULL,
+    counterparty_id BIGINT NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    fee DECIMAL(19, 2) NOT NULL,
+    description VARCHAR(255),
+    PRIMARY KEY (user_id, date, transaction_id)
+);
+
 -- Create indexes for performance
 CREATE INDEX idx_user_email ON user_account(email);
 CREATE INDEX idx_transaction_date ON transaction(date);
 CREATE INDEX idx_billing_date ON billing(date);
+CREATE INDEX idx_transaction_sender_date ON transaction(sender_id, date, id);
+CREATE INDEX idx_transaction_receiver_date ON transaction(receiver_id, date, id);
+CREATE INDEX idx_billing_transaction ON billing(transaction_id);
+CREATE INDEX idx_billing_unprocessed ON billing(processed, id) WHERE processed = FALSE;
+CREATE INDEX idx_idempotency_record_created ON idempotency_record(created_at);
+CREATE INDEX idx_billing_summary_delta_day ON billing_summary_delta(billing_day, fee_percentage);
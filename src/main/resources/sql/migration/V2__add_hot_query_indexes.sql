@@ -0,0 +1,12 @@
+-- V2: indexes for the queries run on every page hit and every transfer
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- Transaction history, one index per side of "sender = ? OR receiver = ?" ordered by the (date, id) keyset
+CREATE INDEX IF NOT EXISTS idx_transaction_sender_date ON transaction(sender_id, date, id);
+CREATE INDEX IF NOT EXISTS idx_transaction_receiver_date ON transaction(receiver_id, date, id);
+
+-- Billing lookups by transaction and scans of the (small) unprocessed backlog
+CREATE INDEX IF NOT EXISTS idx_billing_transaction ON billing(transaction_id);
+CREATE INDEX IF NOT EXISTS idx_billing_unprocessed ON billing(processed, id) WHERE processed = FALSE;
+
+-- connection(owner_id) is already served by the UNIQUE (owner_id, friend_id) index
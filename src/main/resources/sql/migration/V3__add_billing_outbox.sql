@@ -0,0 +1,12 @@
+-- V3: outbox of the billings created asynchronously (paymybuddy.billing.async=true)
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- One row per transfer whose billing is not created yet, deleted by the BillingOutboxWorker
+-- in the same transaction as the billing insert. Read in id order, so the primary key is the only index.
+CREATE TABLE IF NOT EXISTS billing_outbox (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    transaction_id BIGINT NOT NULL,
+    fee_percentage DECIMAL(5, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (transaction_id) REFERENCES transaction(id)
+);
@@ -0,0 +1,25 @@
+-- V4: dashboard counters of each user, maintained by UserStatsService
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- One row per user, updated in the transaction of each connection and transfer
+CREATE TABLE IF NOT EXISTS user_stats (
+    user_id BIGINT PRIMARY KEY,
+    connection_count BIGINT NOT NULL DEFAULT 0,
+    sent_count BIGINT NOT NULL DEFAULT 0,
+    received_count BIGINT NOT NULL DEFAULT 0,
+    sent_total DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    received_total DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES user_account(id) ON DELETE CASCADE
+);
+
+-- Backfill from the source tables, for the users that have no row yet.
+-- Rows missed by this script are created on first use and by the nightly check.
+INSERT INTO user_stats (user_id, connection_count, sent_count, received_count, sent_total, received_total)
+SELECT u.id,
+       (SELECT COUNT(*) FROM connection c WHERE c.owner_id = u.id),
+       (SELECT COUNT(*) FROM transaction t WHERE t.sender_id = u.id),
+       (SELECT COUNT(*) FROM transaction t WHERE t.receiver_id = u.id),
+       (SELECT COALESCE(SUM(t.amount), 0) FROM transaction t WHERE t.sender_id = u.id),
+       (SELECT COALESCE(SUM(t.amount), 0) FROM transaction t WHERE t.receiver_id = u.id)
+FROM user_account u
+WHERE NOT EXISTS (SELECT 1 FROM user_stats s WHERE s.user_id = u.id);
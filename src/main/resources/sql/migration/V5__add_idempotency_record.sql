@@ -0,0 +1,14 @@
+-- V5: idempotency keys of the transfers (Idempotency-Key header or form token of /transactions/send)
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- One row per key and sender, written in the transaction of the transfer
+CREATE TABLE IF NOT EXISTS idempotency_record (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    transaction_id BIGINT,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+-- Purge of the expired keys by TransferIdempotencyService
+CREATE INDEX IF NOT EXISTS idx_idempotency_record_created ON idempotency_record(created_at);
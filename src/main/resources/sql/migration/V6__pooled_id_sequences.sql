@@ -0,0 +1,12 @@
+-- V6: pooled id sequences, so that Hibernate can batch the inserts of the entities
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- The identity columns keep their sequence (<table>_id_seq), which Hibernate now reads itself:
+-- each nextval reserves the 50 ids up to the value returned (pooled optimizer), so allocationSize = 50
+-- on the entities must stay equal to INCREMENT BY. GENERATED BY DEFAULT accepts the ids chosen by Hibernate.
+-- The next values start above the current ones, so no existing id can be handed out again.
+ALTER TABLE user_account ALTER COLUMN id SET GENERATED BY DEFAULT SET INCREMENT BY 50;
+ALTER TABLE connection ALTER COLUMN id SET GENERATED BY DEFAULT SET INCREMENT BY 50;
+ALTER TABLE transaction ALTER COLUMN id SET GENERATED BY DEFAULT SET INCREMENT BY 50;
+ALTER TABLE billing ALTER COLUMN id SET GENERATED BY DEFAULT SET INCREMENT BY 50;
+ALTER TABLE billing_outbox ALTER COLUMN id SET GENERATED BY DEFAULT SET INCREMENT BY 50;
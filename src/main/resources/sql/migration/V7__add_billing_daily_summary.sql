@@ -0,0 +1,22 @@
+-- V7: daily fee totals per fee percentage (billing_daily_summary, maintained by BillingSummaryService)
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- One row per day and fee percentage, updated in the transaction of each billing change
+CREATE TABLE IF NOT EXISTS billing_daily_summary (
+    billing_day DATE NOT NULL,
+    fee_percentage DECIMAL(5, 2) NOT NULL,
+    billing_count BIGINT NOT NULL DEFAULT 0,
+    sum_amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    processed_count BIGINT NOT NULL DEFAULT 0,
+    processed_amount DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (billing_day, fee_percentage)
+);
+
+-- Backfill of the days not summarized yet (or start once with --paymybuddy.billing.summary.backfill=true)
+INSERT INTO billing_daily_summary (billing_day, fee_percentage, billing_count, sum_amount, processed_count, processed_amount)
+SELECT CAST(b.date AS DATE), b.fee_percentage, COUNT(*), SUM(b.amount),
+       SUM(CASE WHEN b.processed THEN 1 ELSE 0 END), SUM(CASE WHEN b.processed THEN b.amount ELSE 0 END)
+FROM billing b
+WHERE NOT EXISTS (SELECT 1 FROM billing_daily_summary s
+                  WHERE s.billing_day = CAST(b.date AS DATE) AND s.fee_percentage = b.fee_percentage)
+GROUP BY CAST(b.date AS DATE), b.fee_percentage;
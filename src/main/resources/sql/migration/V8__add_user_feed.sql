@@ -0,0 +1,27 @@
+-- V8: history of each user (user_feed, one row per transaction and participant)
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- Written in the transaction of each transfer. The primary key orders the history of a user by
+-- (date, transaction), so a page is one index range instead of "sender = ? OR receiver = ?"
+CREATE TABLE IF NOT EXISTS user_feed (
+    user_id BIGINT NOT NULL,
+    date TIMESTAMP NOT NULL,
+    transaction_id BIGINT NOT NULL,
+    incoming BOOLEAN NOT NULL,
+    counterparty_id BIGINT NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    fee DECIMAL(19, 2) NOT NULL,
+    description VARCHAR(255),
+    PRIMARY KEY (user_id, date, transaction_id)
+);
+
+-- Backfill of the transactions not in the feed yet. On a large table, skip it and start the application
+-- once with --paymybuddy.feed.backfill=true, which commits every paymybuddy.feed.backfill-batch-size transactions
+INSERT INTO user_feed (user_id, date, transaction_id, incoming, counterparty_id, amount, fee, description)
+SELECT t.sender_id, t.date, t.id, FALSE, t.receiver_id, t.amount, t.fee, t.description
+FROM transaction t
+WHERE NOT EXISTS (SELECT 1 FROM user_feed f WHERE f.user_id = t.sender_id AND f.date = t.date AND f.transaction_id = t.id)
+UNION ALL
+SELECT t.receiver_id, t.date, t.id, TRUE, t.sender_id, t.amount, t.fee, t.description
+FROM transaction t
+WHERE NOT EXISTS (SELECT 1 FROM user_feed f WHERE f.user_id = t.receiver_id AND f.date = t.date AND f.transaction_id = t.id);
@@ -0,0 +1,17 @@
+-- V9: changes of the daily fee totals not folded into billing_daily_summary yet (billing_summary_delta)
+-- Safe to re-run on a database already created from database_schema.sql
+
+-- Appended by each synchronous transfer instead of updating the row of the day, and folded into
+-- billing_daily_summary every paymybuddy.billing.summary.fold-delay-ms by BillingSummaryService
+CREATE TABLE IF NOT EXISTS billing_summary_delta (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
+    billing_day DATE NOT NULL,
+    fee_percentage DECIMAL(5, 2) NOT NULL,
+    billing_count BIGINT NOT NULL,
+    sum_amount DECIMAL(19, 2) NOT NULL,
+    processed_count BIGINT NOT NULL,
+    processed_amount DECIMAL(19, 2) NOT NULL
+);
+
+-- Deltas of a day read by the revenue reports and the recompute of a row
+CREATE INDEX IF NOT EXISTS idx_billing_summary_delta_day ON billing_summary_delta(billing_day, fee_percentage);
@@ -0,0 +1,63 @@
+package com.PayMyBuddy;
+
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import com.PayMyBuddy.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=health,prometheus")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    private UserAccount saveUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        return userAccountRepository.save(user);
+    }
+
+    @Test
+    void prometheusEndpoint_shouldExposeTransferRepositoryAndPoolMetrics() throws Exception {
+        // Arrange: a transfer rejected because the users are not connected
+        UserAccount sender = saveUser("metrics.sender@example.com");
+        UserAccount receiver = saveUser("metrics.receiver@example.com");
+        assertThrows(IllegalArgumentException.class, () ->
+                transactionService.makeTransaction(sender.getId(), receiver.getId(), new BigDecimal("10.00"), "Payment"));
+
+        // Act: scraped without authentication
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Assert
+        assertTrue(metrics.contains("paymybuddy_transfers_rejected_total{reason=\"not_connected\"} 1.0"), metrics);
+        assertTrue(metrics.contains("paymybuddy_transfer_seconds_count{"), metrics);
+        assertTrue(metrics.contains("paymybuddy_transfer_seconds_bucket{"), metrics);
+        assertTrue(metrics.contains("spring_data_repository_invocations_seconds_count{") &&
+                metrics.contains("repository=\"ConnectionRepository\""), metrics);
+        assertTrue(metrics.contains("hikaricp_connections_active{"), metrics);
+    }
+}
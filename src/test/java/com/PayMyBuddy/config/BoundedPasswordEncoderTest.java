@@ -0,0 +1,99 @@
+package com.PayMyBuddy.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    void encode_shouldProduceMatchingHashOfTheStrength() {
+        // Arrange
+        encoder = new BoundedPasswordEncoder(4, 1, 4, meterRegistry);
+
+        // Act
+        String hash = encoder.encode("password");
+
+        // Assert
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("password", hash));
+        assertFalse(encoder.matches("wrong", hash));
+    }
+
+    @Test
+    void upgradeEncoding_withHashOfLowerStrength_shouldAskForNewHash() {
+        // Arrange
+        encoder = new BoundedPasswordEncoder(5, 1, 4, meterRegistry);
+
+        // Act & Assert
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("password")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password")));
+    }
+
+    @Test
+    void matches_withFullQueue_shouldRejectAtOnce() throws Exception {
+        // Arrange: one thread and one queued hash, each hash taking about 250 ms
+        encoder = new BoundedPasswordEncoder(12, 1, 1, meterRegistry);
+        String hash = new BCryptPasswordEncoder(12).encode("password");
+        int logins = 6;
+        ExecutorService requests = Executors.newFixedThreadPool(logins);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < logins; i++) {
+            results.add(requests.submit(() -> {
+                start.await();
+                return encoder.matches("password", hash);
+            }));
+        }
+        start.countDown();
+        int accepted = 0;
+        int rejected = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                assertTrue(result.get());
+                accepted++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(PasswordHashingRejectedException.class, e.getCause());
+                rejected++;
+            }
+        }
+        requests.shutdown();
+
+        // Assert
+        assertTrue(accepted >= 1 && accepted <= 2, accepted + " hashes accepted");
+        assertEquals(logins - accepted, rejected);
+        assertEquals(rejected, meterRegistry.get("paymybuddy.password.hash.rejected").counter().count());
+    }
+
+    @Test
+    void calibrate_shouldStayWithinBounds() {
+        // Arrange
+        encoder = new BoundedPasswordEncoder(4, 1, 1, meterRegistry);
+
+        // Act & Assert: a hash of strength 10 takes more than 1 ms, and the maximum caps the result
+        assertEquals(10, BoundedPasswordEncoder.calibrate(1, 14));
+        assertEquals(11, BoundedPasswordEncoder.calibrate(60_000, 11));
+    }
+}
@@ -0,0 +1,83 @@
+package com.PayMyBuddy.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    private DataSource pool;
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        dataSource = new ConnectionLimitingDataSource(pool, 2, 50);
+    }
+
+    @Test
+    void getConnection_beyondLimit_shouldFailAfterTimeout() throws SQLException {
+        // Arrange
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        // Act & Assert
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        verify(pool, times(2)).getConnection();
+    }
+
+    @Test
+    void close_shouldGiveThePermitBackOnce() throws SQLException {
+        // Arrange
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        // Act
+        first.close();
+        first.close();
+
+        // Assert: one permit is free again, not two
+        assertNotNull(dataSource.getConnection());
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+    }
+
+    @Test
+    void getConnection_whenPoolFails_shouldGiveThePermitBack() throws SQLException {
+        // Arrange
+        when(pool.getConnection()).thenThrow(new SQLException("Pool closed"))
+                .thenAnswer(invocation -> mock(Connection.class));
+
+        // Act
+        assertThrows(SQLException.class, dataSource::getConnection);
+
+        // Assert
+        assertNotNull(dataSource.getConnection());
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    void connection_shouldDelegateToPooledConnection() throws SQLException {
+        // Arrange
+        Connection pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        when(pooled.getAutoCommit()).thenReturn(true);
+        when(pooled.isReadOnly()).thenThrow(new SQLException("Connection broken"));
+
+        // Act
+        Connection connection = dataSource.getConnection();
+
+        // Assert
+        assertTrue(connection.getAutoCommit());
+        assertThrows(SQLException.class, connection::isReadOnly);
+        connection.close();
+        verify(pooled).close();
+    }
+}
@@ -1,7 +1,10 @@
 package com.PayMyBuddy.controller;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
 import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.BillingExportService;
 import com.PayMyBuddy.service.BillingService;
 import com.PayMyBuddy.service.TransactionService;
 import com.PayMyBuddy.util.AuthenticationUtils;
@@ -10,11 +13,18 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.ui.Model;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.time.LocalTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,6 +35,9 @@ class BillingControllerTest {
     @Mock
     private BillingService billingService;
 
+    @Mock
+    private BillingExportService billingExportService;
+
     @Mock
     private TransactionService transactionService;
 
@@ -38,6 +51,7 @@ class BillingControllerTest {
     private BillingController billingController;
 
     private UserAccount testUser;
+    private AuthenticatedUser authenticatedUser;
     private Billing testBilling;
 
     @BeforeEach
@@ -49,28 +63,90 @@ class BillingControllerTest {
         testUser.setEmail("test@example.com");
         testUser.setFirstName("Test");
         testUser.setLastName("User");
+        testUser.setPassword("password");
+        authenticatedUser = new AuthenticatedUser(testUser, List.of());
 
         testBilling = new Billing();
         testBilling.setId(1L);
-        testBilling.setAmount(new BigDecimal("5.00"));
+        testBilling.setAmount(Money.ofCents(500));
         testBilling.setDate(LocalDateTime.now());
         testBilling.setProcessed(false);
 
-        when(authenticationUtils.getCurrentUser()).thenReturn(testUser);
+        when(authenticationUtils.getAuthenticatedUser()).thenReturn(authenticatedUser);
     }
 
     @Test
     void billingsPage_shouldReturnBillingsView() {
         // Arrange
-        when(billingService.findAll()).thenReturn(Arrays.asList(testBilling));
+        when(billingService.findPage(any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(new SliceImpl<>(List.of(testBilling), PageRequest.of(0, BillingController.PAGE_SIZE), false));
 
         // Act
-        String result = billingController.billingsPage(model);
+        String result = billingController.billingsPage(null, null, null, 0, model);
 
         // Assert
         assertEquals("billings", result);
-        verify(model).addAttribute("user", testUser);
-        verify(model).addAttribute(eq("billings"), any());
+        verify(model).addAttribute("user", authenticatedUser);
+        verify(model).addAttribute("billings", List.of(testBilling));
+        verify(model).addAttribute("hasMore", false);
+    }
+
+    @Test
+    void billingsPage_withFilters_shouldQueryRequestedPageOfPeriod() {
+        // Arrange
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+        when(billingService.findPage(any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(new SliceImpl<>(List.of(testBilling), PageRequest.of(2, BillingController.PAGE_SIZE), true));
+
+        // Act
+        billingController.billingsPage(false, from, to, 2, model);
+
+        // Assert
+        verify(billingService).findPage(false, from.atStartOfDay(), to.atTime(LocalTime.MAX), 2, BillingController.PAGE_SIZE);
+        verify(model).addAttribute("page", 2);
+        verify(model).addAttribute("hasMore", true);
+    }
+
+    @Test
+    void billingsPage_withoutPeriod_shouldShowLastDays() {
+        // Arrange
+        when(billingService.findPage(any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, BillingController.PAGE_SIZE), false));
+        LocalDate today = LocalDate.now();
+
+        // Act
+        billingController.billingsPage(null, null, null, 0, model);
+
+        // Assert
+        verify(billingService).findPage(null, today.minusDays(BillingController.DEFAULT_PERIOD_DAYS - 1).atStartOfDay(),
+                today.atTime(LocalTime.MAX), 0, BillingController.PAGE_SIZE);
+    }
+
+    @Test
+    void exportDailyFeeTotals_shouldStreamCsvOfPeriod() throws Exception {
+        // Arrange
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        billingController.exportDailyFeeTotals(from, to, response);
+
+        // Assert
+        assertEquals("text/csv;charset=UTF-8", response.getContentType());
+        assertTrue(response.getHeader("Content-Disposition").contains("fees-2025-01-01-2025-01-31.csv"));
+        verify(billingExportService).writeDailyFeeTotalsCsv(eq(from), eq(to), any(Writer.class));
+    }
+
+    @Test
+    void exportDailyFeeTotals_withReversedPeriod_shouldAnswerBadRequest() {
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                billingController.exportDailyFeeTotals(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1),
+                        new MockHttpServletResponse()));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(billingExportService);
     }
 
     @Test
@@ -1,5 +1,8 @@
 package com.PayMyBuddy.controller;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.ConnectionView;
+import com.PayMyBuddy.dto.UserAccountSummary;
 import com.PayMyBuddy.model.Connection;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.service.ConnectionService;
@@ -13,6 +16,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.ui.Model;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +41,7 @@ class ConnectionControllerTest {
     private ConnectionController connectionController;
 
     private UserAccount testUser;
+    private AuthenticatedUser authenticatedUser;
     private UserAccount friend;
     private Connection testConnection;
 
@@ -49,6 +54,8 @@ class ConnectionControllerTest {
         testUser.setEmail("test@example.com");
         testUser.setFirstName("Test");
         testUser.setLastName("User");
+        testUser.setPassword("password");
+        authenticatedUser = new AuthenticatedUser(testUser, List.of());
 
         friend = new UserAccount();
         friend.setId(2L);
@@ -61,20 +68,22 @@ class ConnectionControllerTest {
         testConnection.setOwner(testUser);
         testConnection.setFriend(friend);
 
-        when(authenticationUtils.getCurrentUser()).thenReturn(testUser);
+        when(authenticationUtils.getAuthenticatedUser()).thenReturn(authenticatedUser);
+        when(authenticationUtils.getCurrentUserId()).thenReturn(1L);
     }
 
     @Test
     void connectionsPage_shouldReturnConnectionsView() {
         // Arrange
-        when(connectionService.findByOwnerId(1L)).thenReturn(Arrays.asList(testConnection));
+        ConnectionView view = new ConnectionView(1L, 2L, "Friend User", "friend@example.com");
+        when(connectionService.findViewsByOwnerId(1L)).thenReturn(Arrays.asList(view));
 
         // Act
         String result = connectionController.connectionsPage(model);
 
         // Assert
         assertEquals("connections", result);
-        verify(model).addAttribute("user", testUser);
+        verify(model).addAttribute("user", authenticatedUser);
         verify(model).addAttribute(eq("connections"), any());
     }
 
@@ -82,7 +91,8 @@ class ConnectionControllerTest {
     void addConnection_shouldRedirectWithSuccess_whenConnectionCreated() {
         // Arrange
         String friendEmail = "friend@example.com";
-        when(userAccountService.findByEmail(friendEmail)).thenReturn(Optional.of(friend));
+        when(userAccountService.findSummaryByEmail(friendEmail))
+                .thenReturn(Optional.of(new UserAccountSummary(2L, friendEmail, "Friend", "User")));
         when(connectionService.createConnection(1L, 2L)).thenReturn(testConnection);
 
         // Act
@@ -110,7 +120,7 @@ class ConnectionControllerTest {
     void addConnection_shouldRedirectWithError_whenFriendNotFound() {
         // Arrange
         String friendEmail = "notfound@example.com";
-        when(userAccountService.findByEmail(friendEmail)).thenReturn(Optional.empty());
+        when(userAccountService.findSummaryByEmail(friendEmail)).thenReturn(Optional.empty());
 
         // Act
         String result = connectionController.addConnection(friendEmail);
@@ -1,18 +1,40 @@
 package com.PayMyBuddy.controller;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.BulkTransferLine;
+import com.PayMyBuddy.dto.BulkTransferReport;
+import com.PayMyBuddy.dto.TransactionPage;
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.BulkTransferService;
 import com.PayMyBuddy.service.ConnectionService;
+import com.PayMyBuddy.service.TransactionExportService;
+import com.PayMyBuddy.service.PageDataLoader;
 import com.PayMyBuddy.service.TransactionService;
+import com.PayMyBuddy.service.TransferIdempotencyService;
 import com.PayMyBuddy.util.AuthenticationUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.ui.Model;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -26,16 +48,30 @@ class TransactionControllerTest {
     @Mock
     private ConnectionService connectionService;
 
+    @Mock
+    private TransferIdempotencyService transferIdempotencyService;
+
+    @Mock
+    private BulkTransferService bulkTransferService;
+
+    @Mock
+    private TransactionExportService transactionExportService;
+
     @Mock
     private Model model;
 
     @Mock
     private AuthenticationUtils authenticationUtils;
 
+    @Spy
+    private PageDataLoader pageDataLoader = new PageDataLoader(2, 10, 1000, mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry());
+
     @InjectMocks
     private TransactionController transactionController;
 
     private UserAccount testUser;
+    private AuthenticatedUser authenticatedUser;
 
     @BeforeEach
     void setUp() {
@@ -46,35 +82,82 @@ class TransactionControllerTest {
         testUser.setEmail("test@example.com");
         testUser.setFirstName("Test");
         testUser.setLastName("User");
+        testUser.setPassword("password");
+        authenticatedUser = new AuthenticatedUser(testUser, List.of());
 
-        when(authenticationUtils.getCurrentUser()).thenReturn(testUser);
+        when(authenticationUtils.getAuthenticatedUser()).thenReturn(authenticatedUser);
+        when(authenticationUtils.getCurrentUserId()).thenReturn(1L);
     }
 
     @Test
     void transactionsPage_shouldReturnTransactionsView() {
         // Arrange
-        when(connectionService.findByOwnerId(1L)).thenReturn(Arrays.asList());
-        when(transactionService.findByUser(testUser)).thenReturn(Arrays.asList());
+        when(connectionService.findViewsByOwnerId(1L)).thenReturn(Arrays.asList());
+        when(transactionService.findPageByUser(1L, null, null, TransactionController.PAGE_SIZE))
+                .thenReturn(new TransactionPage(List.of(), false));
 
         // Act
-        String result = transactionController.transactionsPage(null, model);
+        String result = transactionController.transactionsPage(null, null, null, model);
 
         // Assert
         assertEquals("transactions", result);
-        verify(model).addAttribute("user", testUser);
+        verify(model).addAttribute("user", authenticatedUser);
         verify(model).addAttribute(eq("connections"), any());
         verify(model).addAttribute(eq("transactions"), any());
+        verify(model).addAttribute("hasMore", false);
+        verify(model).addAttribute("firstPage", true);
+        verify(model).addAttribute(eq("idempotencyKey"), anyString());
+        verify(model).addAttribute("partial", false);
+    }
+
+    @Test
+    void transactionsPage_shouldExposeNextCursor_whenMoreTransactionsRemain() {
+        // Arrange
+        LocalDateTime before = LocalDateTime.of(2025, 1, 10, 12, 0);
+        TransactionView last = new TransactionView(42L, "Jane Doe", true, Money.ofCents(1000),
+                Money.ofCents(5), LocalDateTime.of(2025, 1, 9, 8, 30), null);
+        when(connectionService.findViewsByOwnerId(1L)).thenReturn(Arrays.asList());
+        when(transactionService.findPageByUser(1L, before, 50L, TransactionController.PAGE_SIZE))
+                .thenReturn(new TransactionPage(List.of(last), true));
+
+        // Act
+        String result = transactionController.transactionsPage(null, before, 50L, model);
+
+        // Assert
+        assertEquals("transactions", result);
+        verify(model).addAttribute("hasMore", true);
+        verify(model).addAttribute("nextDate", last.date());
+        verify(model).addAttribute("nextId", 42L);
+        verify(model).addAttribute("firstPage", false);
+    }
+
+    @Test
+    void transactionsPage_shouldRenderPartialPage_whenConnectionsFail() {
+        // Arrange
+        when(connectionService.findViewsByOwnerId(1L)).thenThrow(new IllegalStateException("Database unavailable"));
+        when(transactionService.findPageByUser(1L, null, null, TransactionController.PAGE_SIZE))
+                .thenReturn(new TransactionPage(List.of(), false));
+
+        // Act
+        String result = transactionController.transactionsPage(null, null, null, model);
+
+        // Assert
+        assertEquals("transactions", result);
+        verify(model).addAttribute("connections", List.of());
+        verify(model).addAttribute("hasMore", false);
+        verify(model).addAttribute("partial", true);
     }
 
     @Test
     void transactionsPage_shouldAddContactId_whenContactIdProvided() {
         // Arrange
         Long contactId = 2L;
-        when(connectionService.findByOwnerId(1L)).thenReturn(Arrays.asList());
-        when(transactionService.findByUser(testUser)).thenReturn(Arrays.asList());
+        when(connectionService.findViewsByOwnerId(1L)).thenReturn(Arrays.asList());
+        when(transactionService.findPageByUser(1L, null, null, TransactionController.PAGE_SIZE))
+                .thenReturn(new TransactionPage(List.of(), false));
 
         // Act
-        String result = transactionController.transactionsPage(contactId, model);
+        String result = transactionController.transactionsPage(contactId, null, null, model);
 
         // Assert
         assertEquals("transactions", result);
@@ -89,7 +172,7 @@ class TransactionControllerTest {
         String description = "Test payment";
 
         // Act
-        String result = transactionController.sendMoney(receiverId, amount, description);
+        String result = transactionController.sendMoney(receiverId, amount, description, null, null);
 
         // Assert
         assertEquals("redirect:/transactions?success", result);
@@ -107,10 +190,110 @@ class TransactionControllerTest {
                 .thenThrow(new IllegalArgumentException("Insufficient funds"));
 
         // Act
-        String result = transactionController.sendMoney(receiverId, amount, description);
+        String result = transactionController.sendMoney(receiverId, amount, description, null, null);
 
         // Assert
         assertTrue(result.startsWith("redirect:/transactions?error="));
         assertTrue(result.contains("Insufficient+funds"));
     }
+
+    @Test
+    void sendMoney_withFormToken_shouldSendOncePerToken() {
+        // Arrange
+        when(transferIdempotencyService.send(1L, "form-token", 2L, new BigDecimal(50.0), "Test payment")).thenReturn(10L);
+
+        // Act
+        String result = transactionController.sendMoney(2L, 50.0, "Test payment", null, "form-token");
+
+        // Assert
+        assertEquals("redirect:/transactions?success", result);
+        verify(transferIdempotencyService).send(1L, "form-token", 2L, new BigDecimal(50.0), "Test payment");
+        verify(transactionService, never()).makeTransaction(any(), any(), any(), any());
+    }
+
+    @Test
+    void sendMoney_withHeaderAndFormToken_shouldPreferHeader() {
+        // Act
+        transactionController.sendMoney(2L, 50.0, "Test payment", "header-key", "form-token");
+
+        // Assert
+        verify(transferIdempotencyService).send(eq(1L), eq("header-key"), eq(2L), any(BigDecimal.class), eq("Test payment"));
+    }
+
+    @Test
+    void sendBulk_shouldReturnReportOfCurrentUser() {
+        // Arrange
+        List<BulkTransferLine> transfers = List.of(new BulkTransferLine("friend@example.com", new BigDecimal("10.00"), null));
+        BulkTransferReport report = BulkTransferReport.of(List.of());
+        when(bulkTransferService.send(1L, transfers)).thenReturn(report);
+
+        // Act
+        BulkTransferReport result = transactionController.sendBulk(transfers);
+
+        // Assert
+        assertEquals(report, result);
+    }
+
+    @Test
+    void sendBulk_withTooManyLines_shouldAnswerBadRequest() {
+        // Arrange
+        when(bulkTransferService.send(eq(1L), anyList()))
+                .thenThrow(new IllegalArgumentException("A bulk transfer is limited to 10000 lines"));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                transactionController.sendBulk(List.of()));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void sendBulkCsv_shouldParseFileThenSend() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "payroll.csv", "text/csv",
+                "friend@example.com,10.00,Salary\n".getBytes());
+        List<BulkTransferLine> transfers = List.of(new BulkTransferLine("friend@example.com", new BigDecimal("10.00"), "Salary"));
+        when(bulkTransferService.parseCsv(any(Reader.class))).thenReturn(transfers);
+
+        // Act
+        transactionController.sendBulkCsv(file);
+
+        // Assert
+        verify(bulkTransferService).send(1L, transfers);
+    }
+
+    @Test
+    void exportTransactions_asCsv_shouldStreamHistoryOfCurrentUser() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        transactionController.exportTransactions("csv", response);
+
+        // Assert
+        assertEquals("text/csv;charset=UTF-8", response.getContentType());
+        assertTrue(response.getHeader("Content-Disposition").contains("transactions.csv"));
+        verify(transactionExportService).writeCsv(eq(1L), any(Writer.class));
+    }
+
+    @Test
+    void exportTransactions_asNdjson_shouldStreamHistoryOfCurrentUser() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        transactionController.exportTransactions("ndjson", response);
+
+        // Assert
+        assertEquals("application/x-ndjson", response.getContentType());
+        verify(transactionExportService).writeNdjson(eq(1L), any(OutputStream.class));
+    }
+
+    @Test
+    void exportTransactions_withUnknownFormat_shouldAnswerBadRequest() {
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                transactionController.exportTransactions("xml", new MockHttpServletResponse()));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(transactionExportService);
+    }
 }
@@ -1,23 +1,32 @@
 package com.PayMyBuddy.controller;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.dto.TransactionPage;
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.UserAccount;
-import com.PayMyBuddy.service.ConnectionService;
+import com.PayMyBuddy.model.UserStats;
+import com.PayMyBuddy.service.PageDataLoader;
 import com.PayMyBuddy.service.TransactionService;
 import com.PayMyBuddy.service.UserAccountService;
+import com.PayMyBuddy.service.UserStatsService;
 import com.PayMyBuddy.util.AuthenticationUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.ui.Model;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,7 +39,7 @@ class UserAccountControllerTest {
     private UserAccountService userAccountService;
 
     @Mock
-    private ConnectionService connectionService;
+    private UserStatsService userStatsService;
 
     @Mock
     private TransactionService transactionService;
@@ -41,11 +50,16 @@ class UserAccountControllerTest {
     @Mock
     private AuthenticationUtils authenticationUtils;
 
+    @Spy
+    private PageDataLoader pageDataLoader = new PageDataLoader(2, 10, 1000, mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry());
+
     @InjectMocks
     private UserAccountController userAccountController;
 
     private MockMvc mockMvc;
     private UserAccount testUser;
+    private AuthenticatedUser authenticatedUser;
     private SecurityContext securityContext;
     private Authentication authentication;
 
@@ -59,6 +73,8 @@ class UserAccountControllerTest {
         testUser.setEmail("test@example.com");
         testUser.setFirstName("Test");
         testUser.setLastName("User");
+        testUser.setPassword("password");
+        authenticatedUser = new AuthenticatedUser(testUser, List.of());
 
         // Mock SecurityContext et Authentication
         securityContext = mock(SecurityContext.class);
@@ -70,6 +86,7 @@ class UserAccountControllerTest {
 
         // Mock AuthenticationUtils
         when(authenticationUtils.getCurrentUser()).thenReturn(testUser);
+        when(authenticationUtils.getAuthenticatedUser()).thenReturn(authenticatedUser);
         when(authenticationUtils.getCurrentUserEmail()).thenReturn(testUser.getEmail());
     }
 
@@ -139,23 +156,44 @@ class UserAccountControllerTest {
     @Test
     void dashboard_shouldReturnDashboardView_whenUserAuthenticated() {
         // Arrange
-        when(connectionService.findByOwnerId(1L)).thenReturn(Arrays.asList());
-        when(transactionService.findByUser(testUser)).thenReturn(Arrays.asList());
+        UserStats stats = new UserStats(1L, 3, 2, 1, Money.ofCents(2000), Money.ofCents(500));
+        when(userStatsService.getStats(1L)).thenReturn(stats);
+        when(transactionService.findPageByUser(1L, null, null, UserAccountController.RECENT_TRANSACTIONS))
+                .thenReturn(new TransactionPage(List.of(), false));
 
         // Act
         String result = userAccountController.dashboard(model);
 
         // Assert
         assertEquals("dashboard", result);
-        verify(model).addAttribute("user", testUser);
-        verify(model).addAttribute(eq("connections"), any());
+        verify(model).addAttribute("user", authenticatedUser);
+        verify(model).addAttribute("stats", stats);
         verify(model).addAttribute(eq("transactions"), any());
+        verify(model).addAttribute("partial", false);
+    }
+
+    @Test
+    void dashboard_shouldRenderPartialPage_whenStatsFail() {
+        // Arrange
+        TransactionPage recent = new TransactionPage(List.of(), true);
+        when(userStatsService.getStats(1L)).thenThrow(new IllegalStateException("Database unavailable"));
+        when(transactionService.findPageByUser(1L, null, null, UserAccountController.RECENT_TRANSACTIONS))
+                .thenReturn(recent);
+
+        // Act
+        String result = userAccountController.dashboard(model);
+
+        // Assert
+        assertEquals("dashboard", result);
+        verify(model).addAttribute("stats", UserStats.empty(1L));
+        verify(model).addAttribute("hasMore", true);
+        verify(model).addAttribute("partial", true);
     }
 
     @Test
     void dashboard_shouldRedirectToLogin_whenUserNotAuthenticated() {
         // Arrange
-        when(authenticationUtils.getCurrentUser()).thenThrow(new IllegalArgumentException("User not authenticated"));
+        when(authenticationUtils.getAuthenticatedUser()).thenThrow(new IllegalArgumentException("User not authenticated"));
 
         // Act
         String result = userAccountController.dashboard(model);
@@ -171,7 +209,7 @@ class UserAccountControllerTest {
 
         // Assert
         assertEquals("profile", result);
-        verify(model).addAttribute("user", testUser);
+        verify(model).addAttribute("user", authenticatedUser);
     }
 
     @Test
@@ -186,6 +224,7 @@ class UserAccountControllerTest {
         // Assert
         assertEquals("redirect:/profile?success", result);
         verify(userAccountService).save(testUser);
+        verify(authenticationUtils).refreshAuthenticatedUser(testUser);
     }
 
     @Test
@@ -0,0 +1,91 @@
+package com.PayMyBuddy.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeeRateTest {
+
+    private static final String[] PERCENTAGES = {"0.5", "0", "0.01", "1", "2.5", "5.25", "100"};
+
+    // Fee stored before FeeRate: unbounded BigDecimal product, rounded by the DECIMAL(19, 2) column
+    private static BigDecimal storedLegacyFee(BigDecimal amount, BigDecimal feePercentage) {
+        return amount.multiply(feePercentage.divide(new BigDecimal("100"))).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Test
+    void feeOf_shouldBeIdenticalToFormerRoundingForEveryCentAmount() {
+        for (String percentage : PERCENTAGES) {
+            BigDecimal feePercentage = new BigDecimal(percentage);
+            FeeRate feeRate = FeeRate.ofPercentage(feePercentage);
+
+            // Every amount from 0.01 to 10,000.00
+            for (long cents = 1; cents <= 1_000_000; cents++) {
+                BigDecimal expected = storedLegacyFee(BigDecimal.valueOf(cents, 2), feePercentage);
+                assertEquals(expected.unscaledValue().longValueExact(), feeRate.feeOf(cents),
+                        () -> "Different fee at " + percentage + " %");
+            }
+        }
+    }
+
+    @Test
+    void feeOf_withAmountParsedFromDouble_shouldBeIdenticalToFormerRounding() {
+        // TransactionController receives the amount as a Double
+        FeeRate feeRate = FeeRate.ofPercentage(new BigDecimal("0.5"));
+        for (long cents = 1; cents <= 1_000_000; cents++) {
+            BigDecimal amount = new BigDecimal(cents / 100.0);
+
+            Money fee = feeRate.feeOf(Money.of(amount));
+
+            assertEquals(storedLegacyFee(amount, new BigDecimal("0.5")), fee.toBigDecimal());
+        }
+    }
+
+    @Test
+    void feeOf_shouldRoundHalfUp() {
+        // Arrange
+        FeeRate feeRate = FeeRate.ofPercentage(new BigDecimal("0.5"));
+
+        // Act & Assert: 1.00 * 0.5 % = 0.005, 0.99 * 0.5 % = 0.00495
+        assertEquals(Money.ofCents(1), feeRate.feeOf(Money.ofCents(100)));
+        assertEquals(Money.ofCents(0), feeRate.feeOf(Money.ofCents(99)));
+    }
+
+    @Test
+    void feesOf_shouldMatchSingleCalculation() {
+        // Arrange
+        FeeRate feeRate = new FeeRate(50);
+        long[] amounts = {1, 100, 12_345, 9_876_543_210L};
+        long[] fees = new long[amounts.length];
+
+        // Act
+        feeRate.feesOf(amounts, fees);
+
+        // Assert
+        for (int i = 0; i < amounts.length; i++) {
+            assertEquals(feeRate.feeOf(amounts[i]), fees[i]);
+        }
+    }
+
+    @Test
+    void ofPercentage_shouldConvertToBasisPoints() {
+        assertEquals(50, FeeRate.ofPercentage(new BigDecimal("0.5")).basisPoints());
+        assertEquals(0, new BigDecimal("0.50").compareTo(new FeeRate(50).toPercentage()));
+    }
+
+    @Test
+    void ofPercentage_withTooManyDecimals_shouldThrowException() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> FeeRate.ofPercentage(new BigDecimal("0.125")));
+
+        assertEquals("The fee percentage must have at most two decimals: 0.125", exception.getMessage());
+    }
+
+    @Test
+    void ofPercentage_aboveHundred_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> FeeRate.ofPercentage(new BigDecimal("101")));
+    }
+}
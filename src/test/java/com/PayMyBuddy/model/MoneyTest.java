@@ -0,0 +1,45 @@
+package com.PayMyBuddy.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void of_shouldRoundHalfUpToTheCent() {
+        assertEquals(Money.ofCents(1235), Money.of(new BigDecimal("12.345")));
+        assertEquals(Money.ofCents(1234), Money.of(new BigDecimal("12.3449")));
+        assertEquals(Money.ofCents(1234), Money.of(new BigDecimal(12.34)));
+    }
+
+    @Test
+    void toBigDecimal_shouldHaveTwoDecimals() {
+        assertEquals(new BigDecimal("12.30"), Money.ofCents(1230).toBigDecimal());
+        assertEquals("0.05", Money.ofCents(5).toString());
+    }
+
+    @Test
+    void plusAndMinus_shouldBeExact() {
+        assertEquals(Money.ofCents(30), Money.ofCents(10).plus(Money.ofCents(20)));
+        assertEquals(Money.ofCents(-10), Money.ofCents(10).minus(Money.ofCents(20)));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+    }
+
+    @Test
+    void converter_shouldRoundTripThroughDecimalColumn() {
+        // Arrange
+        MoneyConverter converter = new MoneyConverter();
+
+        // Act
+        BigDecimal column = converter.convertToDatabaseColumn(Money.ofCents(123456));
+
+        // Assert
+        assertEquals(new BigDecimal("1234.56"), column);
+        assertEquals(Money.ofCents(123456), converter.convertToEntityAttribute(column));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,119 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.BillingService;
+import com.PayMyBuddy.service.BillingSummaryService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Slice;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "paymybuddy.billing.batch-size=3")
+@Import({BillingService.class, BillingSummaryService.class})
+class BillingRepositoryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BillingRepository billingRepository;
+
+    @Autowired
+    private BillingService billingService;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        UserAccount sender = persistUser("sender@example.com");
+        UserAccount receiver = persistUser("receiver@example.com");
+        transaction = new Transaction(null, sender, receiver, Money.ofCents(10000), LocalDateTime.now(), "Payment", Money.ofCents(50));
+        entityManager.persist(transaction);
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void persistBillings(int count, boolean processed) {
+        for (int i = 0; i < count; i++) {
+            entityManager.persist(new Billing(null, transaction, Money.ofCents(50), LocalDateTime.now(), processed, new BigDecimal("0.5"), "Fee"));
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void claimUnprocessedIds_shouldReturnOldestUnprocessedRows() {
+        // Arrange
+        persistBillings(2, true);
+        persistBillings(4, false);
+
+        // Act
+        List<Long> ids = billingRepository.claimUnprocessedIds(3);
+
+        // Assert
+        assertEquals(3, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertTrue(ids.stream().allMatch(id -> !billingRepository.findById(id).orElseThrow().getProcessed()));
+    }
+
+    @Test
+    void processUnprocessedBillings_shouldProcessEveryRowInChunks() {
+        // Arrange
+        persistBillings(2, true);
+        persistBillings(10, false);
+        entityManager.clear();
+
+        // Act
+        long processed = billingService.processUnprocessedBillings();
+
+        // Assert
+        entityManager.clear();
+        assertEquals(10, processed);
+        assertEquals(0, billingRepository.countByProcessed(false));
+        assertEquals(12, billingRepository.countByProcessed(true));
+    }
+
+    @Test
+    void findPage_shouldReturnBillingsOfPeriodNewestFirst() {
+        // Arrange
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(new Billing(null, transaction, Money.ofCents(50), start.plusDays(i), i % 2 == 0,
+                    new BigDecimal("0.5"), "Fee"));
+        }
+        entityManager.persist(new Billing(null, transaction, Money.ofCents(50), start.minusDays(1), false,
+                new BigDecimal("0.5"), "Before the period"));
+        entityManager.flush();
+
+        // Act
+        Slice<Billing> firstPage = billingService.findPage(null, start, start.plusDays(10), 0, 2);
+        Slice<Billing> lastPage = billingService.findPage(null, start, start.plusDays(10), 2, 2);
+        Slice<Billing> unprocessed = billingService.findPage(false, start, start.plusDays(10), 0, 10);
+
+        // Assert
+        assertEquals(List.of(start.plusDays(4), start.plusDays(3)), firstPage.map(Billing::getDate).getContent());
+        assertTrue(firstPage.hasNext());
+        assertEquals(List.of(start), lastPage.map(Billing::getDate).getContent());
+        assertFalse(lastPage.hasNext());
+        assertEquals(List.of(start.plusDays(3), start.plusDays(1)), unprocessed.map(Billing::getDate).getContent());
+    }
+}
@@ -0,0 +1,154 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.dto.ConnectionView;
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Connection;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the list views load their rows and everything the templates render
+ * in a fixed number of statements, whatever the number of rows.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserFeedRepository userFeedRepository;
+
+    @Autowired
+    private ConnectionRepository connectionRepository;
+
+    @Autowired
+    private BillingRepository billingRepository;
+
+    private Statistics statistics;
+    private UserAccount owner;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        owner = persistUser("owner@example.com");
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First " + email);
+        user.setLastName("Last " + email);
+        entityManager.persist(user);
+        return user;
+    }
+
+    /**
+     * Creates one contact per row, each with a transaction in both directions and its billing,
+     * so that every row references a different user.
+     */
+    private void persistRows(int count) {
+        LocalDateTime date = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < count; i++) {
+            UserAccount friend = persistUser("friend" + i + "@example.com");
+            entityManager.persist(new Connection(null, owner, friend));
+
+            Transaction sent = new Transaction(null, owner, friend, Money.ofCents(1000), date.plusMinutes(i), "Sent", Money.ofCents(5));
+            Transaction received = new Transaction(null, friend, owner, Money.ofCents(500), date.plusMinutes(i), "Received", Money.ofCents(3));
+            entityManager.persist(sent);
+            entityManager.persist(received);
+            entityManager.persist(new Billing(null, sent, Money.ofCents(5), date, false, new BigDecimal("0.5"), "Fee"));
+        }
+        entityManager.flush();
+        userFeedRepository.insertMissing(0L, Long.MAX_VALUE);
+        entityManager.clear();
+        owner = entityManager.find(UserAccount.class, owner.getId());
+        statistics.clear();
+    }
+
+    private long transactionPageStatements(int rows) {
+        persistRows(rows);
+
+        List<TransactionView> transactions = userFeedRepository.findViewsByUser(owner.getId(), Limit.of(2 * rows));
+        List<String> rendered = new ArrayList<>();
+        for (TransactionView transaction : transactions) {
+            rendered.add(transaction.counterpartyName() + transaction.incoming());
+        }
+
+        assertEquals(2 * rows, rendered.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long connectionPageStatements(int rows) {
+        persistRows(rows);
+
+        List<String> rendered = new ArrayList<>();
+        for (ConnectionView connection : connectionRepository.findViewsByOwnerId(owner.getId())) {
+            rendered.add(connection.friendName() + connection.friendEmail());
+        }
+
+        assertEquals(rows, rendered.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long billingPageStatements(int rows) {
+        persistRows(rows);
+
+        List<String> rendered = new ArrayList<>();
+        for (Billing billing : billingRepository.findAll()) {
+            Transaction transaction = billing.getTransaction();
+            rendered.add(transaction.getSender().getEmail() + transaction.getReceiver().getEmail() + transaction.getAmount());
+        }
+
+        assertEquals(rows, rendered.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void transactionPage_withFewRows_shouldUseSingleStatement() {
+        assertEquals(1, transactionPageStatements(2));
+    }
+
+    @Test
+    void transactionPage_withManyRows_shouldUseSingleStatement() {
+        assertEquals(1, transactionPageStatements(25));
+    }
+
+    @Test
+    void connectionPage_withFewRows_shouldUseSingleStatement() {
+        assertEquals(1, connectionPageStatements(2));
+    }
+
+    @Test
+    void connectionPage_withManyRows_shouldUseSingleStatement() {
+        assertEquals(1, connectionPageStatements(25));
+    }
+
+    @Test
+    void billingPage_withFewRows_shouldUseSingleStatement() {
+        assertEquals(1, billingPageStatements(2));
+    }
+
+    @Test
+    void billingPage_withManyRows_shouldUseSingleStatement() {
+        assertEquals(1, billingPageStatements(25));
+    }
+}
@@ -0,0 +1,191 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.BillingService;
+import com.PayMyBuddy.service.BillingSummaryService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the JDBC statements of the write paths, with the batching settings of application.properties.template,
+ * to check that the rows are sent in batches and not one statement per row.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "paymybuddy.billing.batch-size=100"
+})
+@Import({BillingService.class, BillingSummaryService.class, JdbcBatchingTest.BatchCountingConfig.class})
+class JdbcBatchingTest {
+
+    // JDBC batches sent, counted by the DataSource proxy: Hibernate reuses one prepared statement for all of them
+    private static final AtomicInteger executedBatches = new AtomicInteger();
+
+    @TestConfiguration
+    static class BatchCountingConfig {
+
+        @Bean
+        static BeanPostProcessor batchCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? countingBatches(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static DataSource countingBatches(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, result -> result instanceof Connection connection
+                ? proxy(Connection.class, connection, statement -> statement instanceof PreparedStatement prepared
+                        ? proxy(PreparedStatement.class, prepared, other -> other)
+                        : statement)
+                : result);
+    }
+
+    // Wraps the results of the target with the given function, and counts the executeBatch calls
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, UnaryOperator<Object> wrapResult) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("executeBatch") && target instanceof Statement) {
+                executedBatches.incrementAndGet();
+            }
+            try {
+                return wrapResult.apply(method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BillingRepository billingRepository;
+
+    @Autowired
+    private BillingDailySummaryRepository billingDailySummaryRepository;
+
+    @Autowired
+    private BillingService billingService;
+
+    private Statistics statistics;
+    private UserAccount sender;
+    private UserAccount receiver;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        sender = persistUser("sender@example.com");
+        receiver = persistUser("receiver@example.com");
+        entityManager.flush();
+        statistics.clear();
+        executedBatches.set(0);
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        entityManager.persist(user);
+        return user;
+    }
+
+    /**
+     * Persists the transactions and their billings interleaved, as the transfers do,
+     * so that the batches only stay full if the inserts are ordered by table.
+     */
+    private List<Billing> persistTransfers(int count) {
+        LocalDateTime date = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<Billing> billings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(null, sender, receiver, Money.ofCents(1000), date, "Payment", Money.ofCents(5));
+            entityManager.persist(transaction);
+            Billing billing = new Billing(null, transaction, Money.ofCents(5), date, false, new BigDecimal("0.5"), "Fee");
+            entityManager.persist(billing);
+            billings.add(billing);
+        }
+        entityManager.flush();
+        return billings;
+    }
+
+    @Test
+    void bulkInserts_shouldBeSentInBatches() {
+        // Act
+        persistTransfers(200);
+
+        // Assert
+        // 4 batches of 50 rows per table, plus a few sequence calls for 50 ids each
+        assertEquals(400, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 20,
+                statistics.getPrepareStatementCount() + " statements for 400 rows");
+    }
+
+    @Test
+    void bulkUpdates_shouldBeSentInBatches() {
+        // Arrange
+        List<Billing> billings = persistTransfers(200);
+        statistics.clear();
+        executedBatches.set(0);
+
+        // Act
+        billings.forEach(billing -> billing.setProcessed(true));
+        entityManager.flush();
+
+        // Assert
+        // One prepared UPDATE, sent as 4 batches of 50 rows
+        assertEquals(200, statistics.getEntityUpdateCount());
+        assertEquals(4, executedBatches.get());
+    }
+
+    @Test
+    void processUnprocessedBillings_shouldUseTwoStatementsPerChunk() {
+        // Arrange
+        persistTransfers(250);
+        billingDailySummaryRepository.insertFromBillings(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 2, 0, 0));
+        entityManager.clear();
+        statistics.clear();
+
+        // Act
+        long processed = billingService.processUnprocessedBillings();
+
+        // Assert
+        // One count, then a claim and a bulk update for each of the 3 chunks of at most 100 rows
+        // (the daily summary, whose row exists, is updated with JdbcTemplate, outside these statistics)
+        assertEquals(250, processed);
+        assertEquals(7, statistics.getPrepareStatementCount());
+        assertEquals(0, billingRepository.countByProcessed(false));
+    }
+}
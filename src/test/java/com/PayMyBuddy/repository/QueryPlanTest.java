@@ -0,0 +1,195 @@
+package com.PayMyBuddy.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query-plan regression suite for the repository queries run on every request.
+ * The production schema and migrations are loaded into H2 in PostgreSQL mode and each
+ * query is EXPLAINed; a query that is not answered by an index lookup fails the build.
+ */
+class QueryPlanTest {
+
+    // H2 prints "/* public.index_name: column = ... */" for an index lookup
+    private static final Pattern INDEX_LOOKUP = Pattern.compile("/\\* public\\.\\w+: ");
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void loadSchema() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:query_plans;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        executeScript("sql/database_schema.sql");
+        executeScript("sql/migration/V2__add_hot_query_indexes.sql");
+        executeScript("sql/migration/V3__add_billing_outbox.sql");
+        executeScript("sql/migration/V4__add_user_stats.sql");
+        executeScript("sql/migration/V5__add_idempotency_record.sql");
+        executeScript("sql/migration/V6__pooled_id_sequences.sql");
+        executeScript("sql/migration/V7__add_billing_daily_summary.sql");
+        executeScript("sql/migration/V8__add_user_feed.sql");
+        executeScript("sql/migration/V9__add_billing_summary_delta.sql");
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        connection.close();
+    }
+
+    /**
+     * Runs a SQL script adapted to the H2 stand-in:
+     * - H2 silently indexes every foreign key, PostgreSQL does not, so the constraints are dropped
+     *   to keep a missing index visible
+     * - H2 has no partial indexes, so the predicate is dropped and a full index is built instead
+     */
+    private static void executeScript(String location) throws Exception {
+        String script = new ClassPathResource(location).getContentAsString(StandardCharsets.UTF_8)
+                .replaceAll(",\\s*FOREIGN KEY \\([^)]*\\) REFERENCES [^)]*\\)( ON DELETE CASCADE)?", "")
+                .replaceAll("(CREATE INDEX[^;]*\\))\\s+WHERE[^;]*", "$1");
+        ScriptUtils.executeSqlScript(connection, new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String explain(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static String assertIndexLookup(String sql) throws Exception {
+        String plan = explain(sql);
+        assertFalse(plan.contains("tableScan"), "Sequential scan in plan:\n" + plan);
+        assertTrue(INDEX_LOOKUP.matcher(plan).find(), "No index lookup in plan:\n" + plan);
+        return plan;
+    }
+
+    private static void assertIndexLookup(String sql, String expectedIndex) throws Exception {
+        String plan = assertIndexLookup(sql);
+        assertTrue(plan.contains("public." + expectedIndex), "Expected " + expectedIndex + " in plan:\n" + plan);
+    }
+
+    // TransactionRepository: PostgreSQL answers "sender = ? OR receiver = ?" with a BitmapOr of one
+    // index scan per side. H2 has no bitmap scans, so each side is checked on its own.
+
+    @Test
+    void transactionHistory_senderSide_shouldUseSenderDateIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM transaction WHERE sender_id = 1 ORDER BY date DESC, id DESC LIMIT 21",
+                "idx_transaction_sender_date");
+    }
+
+    @Test
+    void transactionHistory_receiverSide_shouldUseReceiverDateIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM transaction WHERE receiver_id = 1 ORDER BY date DESC, id DESC LIMIT 21",
+                "idx_transaction_receiver_date");
+    }
+
+    @Test
+    void transactionHistoryNextPage_senderSide_shouldUseSenderDateIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM transaction WHERE sender_id = 1 " +
+                        "AND (date < TIMESTAMP '2025-01-01 00:00:00' OR (date = TIMESTAMP '2025-01-01 00:00:00' AND id < 10)) " +
+                        "ORDER BY date DESC, id DESC LIMIT 21",
+                "idx_transaction_sender_date");
+    }
+
+    @Test
+    void transactionHistoryNextPage_receiverSide_shouldUseReceiverDateIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM transaction WHERE receiver_id = 1 " +
+                        "AND (date < TIMESTAMP '2025-01-01 00:00:00' OR (date = TIMESTAMP '2025-01-01 00:00:00' AND id < 10)) " +
+                        "ORDER BY date DESC, id DESC LIMIT 21",
+                "idx_transaction_receiver_date");
+    }
+
+    // UserFeedRepository: the history of a user is one range of the (user_id, date, transaction_id) primary key
+
+    @Test
+    void userFeed_shouldUsePrimaryKey() throws Exception {
+        assertIndexLookup("SELECT f.transaction_id, c.first_name FROM user_feed f JOIN user_account c ON c.id = f.counterparty_id " +
+                "WHERE f.user_id = 1 ORDER BY f.date DESC, f.transaction_id DESC LIMIT 21");
+    }
+
+    @Test
+    void userFeedNextPage_shouldUsePrimaryKey() throws Exception {
+        assertIndexLookup("SELECT f.transaction_id, c.first_name FROM user_feed f JOIN user_account c ON c.id = f.counterparty_id " +
+                "WHERE f.user_id = 1 AND f.date <= TIMESTAMP '2025-01-01 00:00:00' " +
+                "AND (f.date < TIMESTAMP '2025-01-01 00:00:00' OR f.transaction_id < 10) " +
+                "ORDER BY f.date DESC, f.transaction_id DESC LIMIT 21");
+    }
+
+    // ConnectionRepository: served by the UNIQUE (owner_id, friend_id) constraint index
+
+    @Test
+    void findByOwner_shouldUseIndex() throws Exception {
+        assertIndexLookup("SELECT id, friend_id FROM connection WHERE owner_id = 1");
+    }
+
+    @Test
+    void existsByOwnerAndFriend_shouldUseIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM connection WHERE owner_id = 1 AND friend_id = 2 FETCH FIRST 1 ROWS ONLY");
+    }
+
+    @Test
+    void findViewsByOwnerIdAndFriendEmailIn_shouldUseIndex() throws Exception {
+        assertIndexLookup("SELECT c.id, f.id FROM connection c JOIN user_account f ON f.id = c.friend_id " +
+                "WHERE c.owner_id = 1 AND f.email IN ('a@example.com', 'b@example.com')");
+    }
+
+    // BillingRepository
+
+    @Test
+    void findByProcessed_unprocessed_shouldUseUnprocessedIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM billing WHERE processed = FALSE", "idx_billing_unprocessed");
+    }
+
+    @Test
+    void claimUnprocessedIds_shouldUseUnprocessedIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM billing WHERE processed = FALSE ORDER BY id LIMIT 1000", "idx_billing_unprocessed");
+    }
+
+    @Test
+    void findPageByDateBetween_shouldUseDateIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM billing WHERE date BETWEEN TIMESTAMP '2025-01-01 00:00:00' " +
+                "AND TIMESTAMP '2025-01-31 23:59:59' ORDER BY date DESC, id DESC LIMIT 21", "idx_billing_date");
+    }
+
+    @Test
+    void dailyFeeTotals_shouldUseDateIndex() throws Exception {
+        assertIndexLookup("SELECT CAST(date AS DATE), fee_percentage, COUNT(*), SUM(amount) FROM billing " +
+                "WHERE date >= TIMESTAMP '2025-01-01 00:00:00' AND date < TIMESTAMP '2025-02-01 00:00:00' " +
+                "GROUP BY CAST(date AS DATE), fee_percentage", "idx_billing_date");
+    }
+
+    @Test
+    void findByTransaction_shouldUseTransactionIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM billing WHERE transaction_id = 1", "idx_billing_transaction");
+    }
+
+    @Test
+    void findByEmail_shouldUseIndex() throws Exception {
+        assertIndexLookup("SELECT id FROM user_account WHERE email = 'john.doe@example.com'");
+    }
+
+    // IdempotencyRecordRepository
+
+    @Test
+    void findIdempotencyRecord_shouldUsePrimaryKey() throws Exception {
+        assertIndexLookup("SELECT transaction_id FROM idempotency_record WHERE user_id = 1 AND idempotency_key = 'key'");
+    }
+
+    @Test
+    void deleteCreatedBefore_shouldUseCreatedIndex() throws Exception {
+        assertIndexLookup("SELECT user_id FROM idempotency_record WHERE created_at < TIMESTAMP '2025-01-01 00:00:00'",
+                "idx_idempotency_record_created");
+    }
+}
@@ -0,0 +1,80 @@
+package com.PayMyBuddy.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loads the schema and the seed of the development database into H2 in PostgreSQL mode, with
+ * their foreign keys, as spring.sql.init does when it is enabled.
+ */
+class TestDataScriptTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:test_data;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.close();
+    }
+
+    // H2 has no partial indexes, so the predicate is dropped and a full index is built instead
+    private void executeScript(String location) throws Exception {
+        String script = new ClassPathResource(location).getContentAsString(StandardCharsets.UTF_8)
+                .replaceAll("(CREATE INDEX[^;]*\\))\\s+WHERE[^;]*", "$1");
+        ScriptUtils.executeSqlScript(connection, new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private long queryForLong(String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    @Test
+    void testData_shouldLoadOnTheSchema() throws Exception {
+        // Act
+        executeScript("sql/database_schema.sql");
+        executeScript("sql/test_data.sql");
+
+        // Assert
+        assertEquals(6, queryForLong("SELECT COUNT(*) FROM user_account"));
+        assertEquals(9, queryForLong("SELECT COUNT(*) FROM connection"));
+        assertEquals(10, queryForLong("SELECT COUNT(*) FROM transaction"));
+        assertEquals(10, queryForLong("SELECT COUNT(*) FROM billing"));
+        assertEquals(20, queryForLong("SELECT COUNT(*) FROM user_feed"));
+    }
+
+    @Test
+    void testData_shouldLeaveTheSequencesAboveTheIdsReservedByHibernate() throws Exception {
+        // Arrange
+        executeScript("sql/database_schema.sql");
+        executeScript("sql/test_data.sql");
+
+        // Act
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO user_account (email, password, first_name, last_name) " +
+                    "VALUES ('new@example.com', 'password', 'New', 'User')");
+        }
+
+        // Assert: the pooled optimizer hands out the 50 ids up to the value read, here 52 to 101
+        assertEquals(101, queryForLong("SELECT id FROM user_account WHERE email = 'new@example.com'"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.PayMyBuddy.repository;
+
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.UserFeedService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(UserFeedService.class)
+class UserFeedRepositoryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserFeedRepository userFeedRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserFeedService userFeedService;
+
+    private UserAccount john;
+    private UserAccount jane;
+    private LocalDateTime date;
+
+    @BeforeEach
+    void setUp() {
+        john = persistUser("john@example.com", "John", "Doe");
+        jane = persistUser("jane@example.com", "Jane", "Smith");
+        date = LocalDateTime.of(2025, 1, 1, 12, 0);
+    }
+
+    private UserAccount persistUser(String email, String firstName, String lastName) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Transaction persistTransaction(UserAccount sender, UserAccount receiver, String amount, LocalDateTime date) {
+        Transaction transaction = new Transaction(null, sender, receiver, Money.of(new BigDecimal(amount)), date, "Payment", Money.ofCents(5));
+        entityManager.persist(transaction);
+        return transaction;
+    }
+
+    // Writes the transaction and its feed rows, as a transfer does
+    private Transaction sendTransaction(UserAccount sender, UserAccount receiver, String amount, LocalDateTime date) {
+        Transaction transaction = persistTransaction(sender, receiver, amount, date);
+        userFeedRepository.insertTransfers(sender.getId(), new long[]{transaction.getId()}, new long[]{receiver.getId()},
+                new long[]{transaction.getAmount().cents()}, new long[]{transaction.getFee().cents()},
+                new String[]{transaction.getDescription()}, date);
+        return transaction;
+    }
+
+    @Test
+    void findViewsByUser_shouldDescribeTransactionsFromTheUserSide() {
+        // Arrange
+        sendTransaction(john, jane, "10.00", date);
+        sendTransaction(jane, john, "20.00", date.plusHours(1));
+
+        // Act
+        List<TransactionView> johnViews = userFeedRepository.findViewsByUser(john.getId(), Limit.of(10));
+        List<TransactionView> janeViews = userFeedRepository.findViewsByUser(jane.getId(), Limit.of(10));
+
+        // Assert
+        assertEquals(2, johnViews.size());
+        assertEquals("Jane Smith", johnViews.get(0).counterpartyName());
+        assertTrue(johnViews.get(0).incoming());
+        assertEquals(Money.ofCents(2000), johnViews.get(0).amount());
+        assertEquals(Money.ofCents(5), johnViews.get(0).fee());
+        assertEquals("Payment", johnViews.get(0).description());
+        assertFalse(johnViews.get(1).incoming());
+
+        assertEquals("John Doe", janeViews.get(0).counterpartyName());
+        assertFalse(janeViews.get(0).incoming());
+        assertTrue(janeViews.get(1).incoming());
+    }
+
+    @Test
+    void findViewsByUserBefore_shouldPageThroughTransactionsWithTheSameDate() {
+        // Arrange
+        Transaction first = sendTransaction(john, jane, "1.00", date);
+        Transaction second = sendTransaction(john, jane, "2.00", date);
+        Transaction third = sendTransaction(jane, john, "3.00", date);
+        Transaction older = sendTransaction(jane, john, "4.00", date.minusDays(1));
+
+        // Act
+        List<TransactionView> firstPage = userFeedRepository.findViewsByUser(john.getId(), Limit.of(2));
+        TransactionView cursor = firstPage.get(1);
+        List<TransactionView> secondPage = userFeedRepository.findViewsByUserBefore(
+                john.getId(), cursor.date(), cursor.id(), Limit.of(2));
+
+        // Assert
+        assertEquals(List.of(third.getId(), second.getId()), firstPage.stream().map(TransactionView::id).toList());
+        assertEquals(List.of(first.getId(), older.getId()), secondPage.stream().map(TransactionView::id).toList());
+    }
+
+    @Test
+    void rebuildAll_shouldMatchTheHistoryOfTheTransactionTable() {
+        // Arrange: one transaction already in the feed, two made before it existed
+        Transaction first = sendTransaction(john, jane, "1.00", date);
+        Transaction second = persistTransaction(jane, john, "2.00", date.plusHours(1));
+        Transaction third = persistTransaction(john, jane, "3.00", date.plusHours(2));
+        entityManager.flush();
+        Long firstId = transactionRepository.findFirstId();
+        Long lastId = transactionRepository.findLastId();
+
+        // Act
+        long written = userFeedService.rebuildAll();
+        long writtenAgain = userFeedService.rebuild(firstId, lastId + 1);
+
+        // Assert: only the missing rows are written, and each side sees the whole history
+        assertEquals(4, written);
+        assertEquals(0, writtenAgain);
+        assertEquals(6, userFeedRepository.count());
+        List<TransactionView> johnViews = userFeedRepository.findViewsByUser(john.getId(), Limit.of(10));
+        List<TransactionView> janeViews = userFeedRepository.findViewsByUser(jane.getId(), Limit.of(10));
+        assertEquals(List.of(
+                new TransactionView(third.getId(), "Jane Smith", false, third.getAmount(), third.getFee(), third.getDate(), "Payment"),
+                new TransactionView(second.getId(), "Jane Smith", true, second.getAmount(), second.getFee(), second.getDate(), "Payment"),
+                new TransactionView(first.getId(), "Jane Smith", false, first.getAmount(), first.getFee(), first.getDate(), "Payment")),
+                johnViews);
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()),
+                janeViews.stream().map(TransactionView::id).toList());
+        assertEquals(List.of(true, false, true), janeViews.stream().map(TransactionView::incoming).toList());
+    }
+}
@@ -0,0 +1,91 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingExportRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({BillingExportService.class, BillingExportRepository.class})
+class BillingExportServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BillingExportService billingExportService;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        UserAccount sender = persistUser("sender@example.com");
+        UserAccount receiver = persistUser("receiver@example.com");
+        transaction = new Transaction(null, sender, receiver, Money.ofCents(10000), LocalDateTime.of(2025, 1, 1, 9, 0),
+                "Payment", Money.ofCents(50));
+        entityManager.persist(transaction);
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private void persistBilling(LocalDateTime date, long cents, String feePercentage) {
+        entityManager.persist(new Billing(null, transaction, Money.ofCents(cents), date, false, new BigDecimal(feePercentage), "Fee"));
+    }
+
+    @Test
+    void writeDailyFeeTotalsCsv_shouldSumFeesPerDayAndFeePercentage() throws Exception {
+        // Arrange
+        persistBilling(LocalDateTime.of(2024, 12, 31, 23, 59), 999, "0.50");
+        persistBilling(LocalDateTime.of(2025, 1, 1, 0, 0), 50, "0.50");
+        persistBilling(LocalDateTime.of(2025, 1, 1, 18, 30), 25, "0.50");
+        persistBilling(LocalDateTime.of(2025, 1, 1, 20, 0), 100, "1.00");
+        persistBilling(LocalDateTime.of(2025, 1, 2, 23, 59, 59), 10, "0.50");
+        persistBilling(LocalDateTime.of(2025, 1, 3, 0, 0), 999, "0.50");
+        entityManager.flush();
+        StringWriter writer = new StringWriter();
+
+        // Act
+        billingExportService.writeDailyFeeTotalsCsv(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 2), writer);
+
+        // Assert
+        assertEquals(BillingExportService.FEE_TOTALS_CSV_HEADER + "\n" +
+                "2025-01-01,0.50,2,0.75\n" +
+                "2025-01-01,1.00,1,1.00\n" +
+                "2025-01-02,0.50,1,0.10\n",
+                writer.toString());
+    }
+
+    @Test
+    void writeDailyFeeTotalsCsv_withoutBillings_shouldWriteHeaderOnly() throws Exception {
+        // Arrange
+        StringWriter writer = new StringWriter();
+
+        // Act
+        billingExportService.writeDailyFeeTotalsCsv(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), writer);
+
+        // Assert
+        assertEquals(BillingExportService.FEE_TOTALS_CSV_HEADER + "\n", writer.toString());
+    }
+}
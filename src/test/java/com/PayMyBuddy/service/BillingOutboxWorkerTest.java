@@ -0,0 +1,115 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Connection;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingOutboxRepository;
+import com.PayMyBuddy.repository.BillingRepository;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "paymybuddy.billing.async=true",
+        "paymybuddy.billing.batch-size=2",
+        "paymybuddy.billing.outbox.poll-delay-ms=3600000"
+})
+@Import({TransactionService.class, BillingOutboxWorker.class, UserStatsService.class, BillingSummaryService.class,
+        UserLookupService.class, ConnectionGraph.class,
+        ConnectionEdgeRepository.class, SimpleMeterRegistry.class})
+class BillingOutboxWorkerTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BillingOutboxWorker billingOutboxWorker;
+
+    @Autowired
+    private BillingRepository billingRepository;
+
+    @Autowired
+    private BillingOutboxRepository billingOutboxRepository;
+
+    private UserAccount sender;
+    private UserAccount receiver;
+
+    @BeforeEach
+    void setUp() {
+        sender = persistUser("sender@example.com");
+        receiver = persistUser("receiver@example.com");
+        entityManager.persist(new Connection(null, sender, receiver));
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setBalance(Money.ofCents(1000000));
+        entityManager.persist(user);
+        return user;
+    }
+
+    @Test
+    void makeTransaction_shouldOnlyQueueBilling() {
+        // Act
+        transactionService.makeTransaction(sender.getId(), receiver.getId(), new BigDecimal("100.00"), "Payment");
+
+        // Assert
+        assertEquals(1, billingOutboxRepository.count());
+        assertEquals(0, billingRepository.count());
+    }
+
+    @Test
+    void drain_shouldCreateOneBillingPerQueuedTransferAndEmptyOutbox() {
+        // Arrange: more transfers than the batch size
+        for (int i = 1; i <= 5; i++) {
+            transactionService.makeTransaction(sender.getId(), receiver.getId(), new BigDecimal(i + "00.00"), "Payment " + i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        long created = billingOutboxWorker.drain();
+
+        // Assert: the last billings may still be queued in the persistence context, write them before reading
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(5, created);
+        assertEquals(0, billingOutboxRepository.count());
+
+        List<Billing> billings = billingRepository.findAll();
+        assertEquals(5, billings.size());
+        for (Billing billing : billings) {
+            Transaction transaction = billing.getTransaction();
+            assertEquals(transaction.getFee(), billing.getAmount());
+            assertEquals(transaction.getDate(), billing.getDate());
+            assertFalse(billing.getProcessed());
+            assertEquals("Transaction fee for transferring " + transaction.getAmount() + " to receiver@example.com",
+                    billing.getDescription());
+        }
+    }
+
+    @Test
+    void drain_withEmptyOutbox_shouldCreateNothing() {
+        assertEquals(0, billingOutboxWorker.drain());
+        assertEquals(0, billingRepository.count());
+    }
+}
@@ -0,0 +1,168 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.repository.BillingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BillingServiceTest {
+
+    @Mock
+    private BillingRepository billingRepository;
+
+    @Mock
+    private BillingSummaryService billingSummaryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BillingService billingService;
+
+    private Billing testBilling;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        billingService = new BillingService(billingRepository, billingSummaryService, transactionManager);
+        ReflectionTestUtils.setField(billingService, "batchSize", 2);
+
+        testBilling = new Billing();
+        testBilling.setId(1L);
+        testBilling.setAmount(Money.ofCents(50));
+        testBilling.setDate(LocalDateTime.now());
+        testBilling.setProcessed(false);
+    }
+
+    @Test
+    void markAsProcessed_withExistingId_shouldSetProcessed() {
+        // Arrange
+        when(billingRepository.markAsProcessedIfUnprocessed(1L)).thenReturn(1);
+        when(billingRepository.findById(1L)).thenReturn(Optional.of(testBilling));
+
+        // Act
+        Billing result = billingService.markAsProcessed(1L);
+
+        // Assert
+        assertTrue(result.getProcessed());
+        verify(billingSummaryService).recordProcessed(List.of(1L));
+    }
+
+    @Test
+    void markAsProcessed_withProcessedBilling_shouldNotCountItTwice() {
+        // Arrange
+        testBilling.setProcessed(true);
+        when(billingRepository.markAsProcessedIfUnprocessed(1L)).thenReturn(0);
+        when(billingRepository.findById(1L)).thenReturn(Optional.of(testBilling));
+
+        // Act
+        billingService.markAsProcessed(1L);
+
+        // Assert
+        verifyNoInteractions(billingSummaryService);
+    }
+
+    @Test
+    void markAsProcessed_withUnknownId_shouldThrow() {
+        // Arrange
+        when(billingRepository.markAsProcessedIfUnprocessed(99L)).thenReturn(0);
+        when(billingRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> billingService.markAsProcessed(99L));
+        verifyNoInteractions(billingSummaryService);
+    }
+
+    @Test
+    void save_withNewBilling_shouldAddItToSummary() {
+        // Arrange
+        testBilling.setId(null);
+        when(billingRepository.save(testBilling)).thenReturn(testBilling);
+
+        // Act
+        billingService.save(testBilling);
+
+        // Assert
+        verify(billingSummaryService).recordCreated(List.of(testBilling));
+    }
+
+    @Test
+    void delete_shouldRemoveBillingFromSummary() {
+        // Arrange
+        when(billingRepository.findById(1L)).thenReturn(Optional.of(testBilling));
+
+        // Act
+        billingService.delete(1L);
+
+        // Assert
+        verify(billingRepository).delete(testBilling);
+        verify(billingSummaryService).recordDeleted(testBilling);
+    }
+
+    @Test
+    void processUnprocessedBillings_shouldCommitOneTransactionPerChunk() {
+        // Arrange
+        when(billingRepository.countByProcessed(false)).thenReturn(5L);
+        when(billingRepository.claimUnprocessedIds(2))
+                .thenReturn(List.of(1L, 2L)).thenReturn(List.of(3L, 4L)).thenReturn(List.of(5L));
+        when(billingRepository.markAsProcessed(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        // Act
+        long processed = billingService.processUnprocessedBillings();
+
+        // Assert
+        assertEquals(5, processed);
+        verify(billingRepository).markAsProcessed(List.of(1L, 2L));
+        verify(billingRepository).markAsProcessed(List.of(3L, 4L));
+        verify(billingRepository).markAsProcessed(List.of(5L));
+        verify(billingSummaryService).recordProcessed(List.of(1L, 2L));
+        verify(billingSummaryService).recordProcessed(List.of(5L));
+        verify(transactionManager, times(3)).commit(any());
+        verify(billingRepository, never()).findByProcessed(any());
+    }
+
+    @Test
+    void processUnprocessedBillings_withEmptyBacklog_shouldStopAfterFirstClaim() {
+        // Arrange
+        when(billingRepository.countByProcessed(false)).thenReturn(0L);
+        when(billingRepository.claimUnprocessedIds(2)).thenReturn(List.of());
+
+        // Act
+        long processed = billingService.processUnprocessedBillings();
+
+        // Assert
+        assertEquals(0, processed);
+        verify(billingRepository, times(1)).claimUnprocessedIds(2);
+        verify(billingRepository, never()).markAsProcessed(anyList());
+    }
+
+    @Test
+    void processUnprocessedBillings_shouldNotProcessMoreThanInitialBacklogChunks() {
+        // Arrange: new billings keep arriving while the run is in progress
+        when(billingRepository.countByProcessed(false)).thenReturn(3L);
+        when(billingRepository.claimUnprocessedIds(2))
+                .thenReturn(List.of(1L, 2L)).thenReturn(List.of(3L, 4L)).thenReturn(List.of(5L, 6L));
+        when(billingRepository.markAsProcessed(anyList())).thenReturn(2);
+
+        // Act
+        long processed = billingService.processUnprocessedBillings();
+
+        // Assert
+        assertEquals(4, processed);
+        verify(billingRepository, times(2)).claimUnprocessedIds(2);
+    }
+}
@@ -0,0 +1,322 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.FeeRevenue;
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.BillingDailySummary;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingDailySummaryRepository;
+import com.PayMyBuddy.repository.BillingDailySummaryRepositoryCustom.Delta;
+import com.PayMyBuddy.repository.BillingSummaryDeltaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.AfterTransaction;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the billing_daily_summary rows against the billings after creations, processing and deletions,
+ * and the revenue computed from them.
+ */
+@DataJpaTest
+@Import({BillingService.class, BillingSummaryService.class})
+class BillingSummaryServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 12);
+    private static final LocalDate OTHER_DAY = LocalDate.of(2024, 1, 15);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BillingDailySummaryRepository billingDailySummaryRepository;
+
+    @Autowired
+    private BillingSummaryService billingSummaryService;
+
+    @Autowired
+    private BillingService billingService;
+
+    @Autowired
+    private BillingSummaryDeltaRepository billingSummaryDeltaRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        UserAccount sender = persistUser("sender@example.com");
+        UserAccount receiver = persistUser("receiver@example.com");
+        transaction = new Transaction(null, sender, receiver, Money.ofCents(10000), DAY.atTime(10, 0), "Payment", Money.ofCents(50));
+        entityManager.persist(transaction);
+        entityManager.flush();
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Billing billing(LocalDateTime date, long amountInCents, String feePercentage) {
+        return new Billing(null, transaction, Money.ofCents(amountInCents), date, false, new BigDecimal(feePercentage), "Fee");
+    }
+
+    private Billing persistBilling(LocalDateTime date, long amountInCents, boolean processed) {
+        Billing billing = billing(date, amountInCents, "0.5");
+        billing.setProcessed(processed);
+        entityManager.persist(billing);
+        return billing;
+    }
+
+    private List<BillingDailySummary> summaries(LocalDate from, LocalDate to) {
+        entityManager.flush();
+        entityManager.clear();
+        return billingDailySummaryRepository.findByBillingDayBetweenOrderByBillingDayAscFeePercentageAsc(from, to);
+    }
+
+    @Test
+    void save_shouldCreateTheRowOfTheDayThenAddToIt() {
+        // Act
+        billingService.save(billing(DAY.atTime(9, 0), 50, "0.5"));
+        billingService.save(billing(DAY.atTime(18, 30), 120, "0.5"));
+        billingService.save(billing(DAY.atTime(20, 0), 300, "1.0"));
+
+        // Assert
+        List<BillingDailySummary> summaries = summaries(DAY, DAY);
+        assertEquals(2, summaries.size());
+        assertEquals(0, new BigDecimal("0.5").compareTo(summaries.get(0).getFeePercentage()));
+        assertEquals(2, summaries.get(0).getBillingCount());
+        assertEquals(Money.ofCents(170), summaries.get(0).getSumAmount());
+        assertEquals(0, summaries.get(0).getProcessedCount());
+        assertEquals(1, summaries.get(1).getBillingCount());
+        assertEquals(Money.ofCents(300), summaries.get(1).getSumAmount());
+    }
+
+    @Test
+    void markAsProcessedAndDelete_shouldMoveAndRemoveTheTotals() {
+        // Arrange
+        Billing first = billingService.save(billing(DAY.atTime(9, 0), 50, "0.5"));
+        Billing second = billingService.save(billing(DAY.atTime(10, 0), 120, "0.5"));
+
+        // Act
+        billingService.markAsProcessed(first.getId());
+        billingService.markAsProcessed(second.getId());
+        billingService.markAsProcessed(second.getId());
+        billingService.delete(first.getId());
+
+        // Assert
+        BillingDailySummary summary = summaries(DAY, DAY).get(0);
+        assertEquals(1, summary.getBillingCount());
+        assertEquals(Money.ofCents(120), summary.getSumAmount());
+        assertEquals(1, summary.getProcessedCount());
+        assertEquals(Money.ofCents(120), summary.getProcessedAmount());
+    }
+
+    @Test
+    void save_whenAnotherTransactionCreatesTheRowMeanwhile_shouldAddToIt() throws Exception {
+        // Arrange: another transaction has created the row of the day and commits while this one inserts it too
+        try (Connection other = dataSource.getConnection()) {
+            other.setAutoCommit(false);
+            other.createStatement().executeUpdate("INSERT INTO billing_daily_summary " +
+                    "(billing_day, fee_percentage, billing_count, sum_amount, processed_count, processed_amount) " +
+                    "VALUES (DATE '2024-01-15', 0.5, 1, 0.40, 0, 0)");
+            CompletableFuture<Void> commit = CompletableFuture.runAsync(() -> {
+                try {
+                    Thread.sleep(300);
+                    other.commit();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            // Act
+            billingService.save(billing(OTHER_DAY.atTime(9, 0), 50, "0.5"));
+            commit.join();
+        }
+
+        // Assert: the primary key violation did not abort the transaction, the billing was added to the row
+        BillingDailySummary summary = summaries(OTHER_DAY, OTHER_DAY).get(0);
+        assertEquals(2, summary.getBillingCount());
+        assertEquals(Money.ofCents(90), summary.getSumAmount());
+    }
+
+    // The row committed by the test above outlives the rollback of the test transaction
+    @AfterTransaction
+    void deleteCommittedRows() {
+        new JdbcTemplate(dataSource).update("DELETE FROM billing_daily_summary WHERE billing_day = ?", OTHER_DAY);
+    }
+
+    @Test
+    void processUnprocessedBillings_shouldRepairMissingRows() {
+        // Arrange
+        persistBilling(DAY.atTime(9, 0), 50, false);
+        persistBilling(DAY.atTime(10, 0), 70, true);
+        persistBilling(DAY.plusDays(1).atTime(9, 0), 30, false);
+        entityManager.flush();
+
+        // Act
+        billingService.processUnprocessedBillings();
+
+        // Assert
+        List<BillingDailySummary> summaries = summaries(DAY, DAY.plusDays(1));
+        assertEquals(2, summaries.size());
+        assertEquals(2, summaries.get(0).getProcessedCount());
+        assertEquals(Money.ofCents(120), summaries.get(0).getProcessedAmount());
+        assertEquals(1, summaries.get(1).getBillingCount());
+        assertEquals(Money.ofCents(30), summaries.get(1).getProcessedAmount());
+    }
+
+    @Test
+    void queueCreated_shouldCountInRevenueBeforeAndAfterTheFold() {
+        // Arrange
+        billingService.save(billing(DAY.atTime(9, 0), 50, "0.5"));
+        Billing queued = persistBilling(DAY.atTime(10, 0), 70, false);
+        entityManager.flush();
+
+        // Act
+        billingSummaryService.queueCreated(List.of(queued));
+        entityManager.flush();
+        List<FeeRevenue> beforeFold = billingService.findFeeRevenue(DAY, DAY, ChronoUnit.DAYS);
+        long folded = billingSummaryService.foldPending();
+        // The fold updates the rows with JDBC, the summaries loaded before are stale
+        entityManager.clear();
+        List<FeeRevenue> afterFold = billingService.findFeeRevenue(DAY, DAY, ChronoUnit.DAYS);
+
+        // Assert: the row of the day is only updated by the fold, the revenue is the same either way
+        assertEquals(1, folded);
+        assertEquals(0, billingSummaryDeltaRepository.count());
+        assertEquals(beforeFold, afterFold);
+        assertEquals(2, afterFold.get(0).billingCount());
+        assertEquals(Money.ofCents(120), afterFold.get(0).total());
+        BillingDailySummary summary = summaries(DAY, DAY).get(0);
+        assertEquals(2, summary.getBillingCount());
+        assertEquals(Money.ofCents(120), summary.getSumAmount());
+    }
+
+    @Test
+    void markAsProcessed_ofQueuedBillingWithoutRow_shouldNotCountItTwice() {
+        // Arrange: the creation of the billing is still queued and the row of the day does not exist
+        Billing queued = persistBilling(DAY.atTime(10, 0), 70, false);
+        entityManager.flush();
+        billingSummaryService.queueCreated(List.of(queued));
+
+        // Act: the row is created from the billing table, which already includes the queued billing
+        billingService.markAsProcessed(queued.getId());
+        billingSummaryService.foldPending();
+
+        // Assert
+        BillingDailySummary summary = summaries(DAY, DAY).get(0);
+        assertEquals(1, summary.getBillingCount());
+        assertEquals(Money.ofCents(70), summary.getSumAmount());
+        assertEquals(1, summary.getProcessedCount());
+        assertEquals(Money.ofCents(70), summary.getProcessedAmount());
+    }
+
+    @Test
+    void rebuild_withQueuedDeltas_shouldLeaveThemToTheFold() {
+        // Arrange
+        Billing queued = persistBilling(DAY.atTime(10, 0), 70, false);
+        persistBilling(DAY.atTime(11, 0), 30, true);
+        entityManager.flush();
+        billingSummaryService.queueCreated(List.of(queued));
+
+        // Act
+        billingSummaryService.rebuild(DAY, DAY);
+        billingSummaryService.foldPending();
+
+        // Assert
+        BillingDailySummary summary = summaries(DAY, DAY).get(0);
+        assertEquals(2, summary.getBillingCount());
+        assertEquals(Money.ofCents(100), summary.getSumAmount());
+        assertEquals(1, summary.getProcessedCount());
+    }
+
+    @Test
+    void recordCreated_ofBulkTransfer_shouldAddAllTheAmounts() {
+        // Arrange
+        billingService.save(billing(DAY.atTime(9, 0), 50, "0.5"));
+
+        // Act
+        billingSummaryService.recordCreated(DAY.atTime(11, 0), new BigDecimal("0.5"), new long[]{10, 20, 30});
+
+        // Assert
+        BillingDailySummary summary = summaries(DAY, DAY).get(0);
+        assertEquals(4, summary.getBillingCount());
+        assertEquals(Money.ofCents(110), summary.getSumAmount());
+    }
+
+    @Test
+    void rebuild_shouldRecomputeTheRowsFromTheBillings() {
+        // Arrange
+        persistBilling(DAY.atTime(9, 0), 50, true);
+        persistBilling(DAY.atTime(23, 59), 70, false);
+        persistBilling(DAY.plusMonths(1).atTime(9, 0), 30, false);
+        entityManager.flush();
+        // Drifted row of the first day
+        billingDailySummaryRepository.insertMissing(DAY, new BigDecimal("0.5"));
+        billingDailySummaryRepository.addAll(List.of(new Delta(DAY, new BigDecimal("0.5"), 7, new BigDecimal("9.99"), 0, BigDecimal.ZERO)));
+
+        // Act
+        long rows = billingSummaryService.rebuild(DAY.withDayOfMonth(1), DAY.plusMonths(1));
+
+        // Assert
+        List<BillingDailySummary> summaries = summaries(DAY.withDayOfMonth(1), DAY.plusMonths(1));
+        assertEquals(2, rows);
+        assertEquals(List.of(DAY, DAY.plusMonths(1)), summaries.stream().map(BillingDailySummary::getBillingDay).toList());
+        assertEquals(2, summaries.get(0).getBillingCount());
+        assertEquals(Money.ofCents(120), summaries.get(0).getSumAmount());
+        assertEquals(1, summaries.get(0).getProcessedCount());
+        assertEquals(Money.ofCents(50), summaries.get(0).getProcessedAmount());
+    }
+
+    @Test
+    void findRevenue_shouldSumTheDaysOfEachWeekAndMonth() {
+        // Arrange
+        LocalDate monday = LocalDate.of(2025, 3, 10);
+        persistBilling(monday.atTime(9, 0), 50, true);
+        persistBilling(monday.plusDays(6).atTime(9, 0), 70, false);
+        persistBilling(monday.plusDays(7).atTime(9, 0), 30, false);
+        persistBilling(LocalDate.of(2025, 4, 1).atTime(9, 0), 10, false);
+        entityManager.flush();
+        billingSummaryService.rebuild(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 30));
+
+        // Act
+        List<FeeRevenue> days = billingService.findFeeRevenue(monday, monday.plusDays(7), ChronoUnit.DAYS);
+        List<FeeRevenue> weeks = billingService.findFeeRevenue(monday, monday.plusDays(13), ChronoUnit.WEEKS);
+        List<FeeRevenue> months = billingService.findFeeRevenue(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 30), ChronoUnit.MONTHS);
+
+        // Assert
+        assertEquals(3, days.size());
+        assertEquals(List.of(monday, monday.plusDays(7)), weeks.stream().map(FeeRevenue::periodStart).toList());
+        assertEquals(2, weeks.get(0).billingCount());
+        assertEquals(Money.ofCents(120), weeks.get(0).total());
+        assertEquals(1, weeks.get(0).processedCount());
+        assertEquals(Money.ofCents(50), weeks.get(0).processedTotal());
+        assertEquals(List.of(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1)),
+                months.stream().map(FeeRevenue::periodStart).toList());
+        assertEquals(Money.ofCents(150), months.get(0).total());
+        assertEquals(Money.ofCents(10), months.get(1).total());
+    }
+}
@@ -0,0 +1,209 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.dto.BulkTransferLine;
+import com.PayMyBuddy.dto.BulkTransferLineResult;
+import com.PayMyBuddy.dto.BulkTransferReport;
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.model.Connection;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingRepository;
+import com.PayMyBuddy.repository.BulkTransferRepository;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import com.PayMyBuddy.repository.TransactionRepository;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import com.PayMyBuddy.repository.UserFeedRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({BulkTransferService.class, BulkTransferRepository.class, TransactionService.class, UserStatsService.class,
+        BillingSummaryService.class, UserLookupService.class, ConnectionGraph.class,
+        ConnectionEdgeRepository.class, SimpleMeterRegistry.class})
+class BulkTransferServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BulkTransferService bulkTransferService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserFeedRepository userFeedRepository;
+
+    @Autowired
+    private BillingRepository billingRepository;
+
+    private UserAccount sender;
+    private UserAccount alice;
+    private UserAccount bob;
+
+    @BeforeEach
+    void setUp() {
+        sender = persistUser("sender@example.com", Money.ofCents(10000));
+        alice = persistUser("alice@example.com", Money.ZERO);
+        bob = persistUser("bob@example.com", Money.ZERO);
+        persistUser("stranger@example.com", Money.ZERO);
+        entityManager.persist(new Connection(null, sender, alice));
+        entityManager.persist(new Connection(null, sender, bob));
+        entityManager.flush();
+        userStatsService.rebuildAll();
+    }
+
+    private UserAccount persistUser(String email, Money balance) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setBalance(balance);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Money balanceOf(UserAccount user) {
+        entityManager.clear();
+        return userAccountRepository.findById(user.getId()).orElseThrow().getBalance();
+    }
+
+    @Test
+    void send_shouldAcceptAndRejectEachLineOnItsOwn() {
+        // Arrange
+        List<BulkTransferLine> transfers = List.of(
+                new BulkTransferLine("alice@example.com", new BigDecimal("40.00"), "Salary"),
+                new BulkTransferLine("stranger@example.com", new BigDecimal("10.00"), null),
+                new BulkTransferLine("bob@example.com", new BigDecimal("-5.00"), null),
+                new BulkTransferLine("bob@example.com", new BigDecimal("50.00"), "Salary"),
+                new BulkTransferLine("alice@example.com", new BigDecimal("20.00"), "Bonus"),
+                new BulkTransferLine("bob@example.com", new BigDecimal("9.00"), "Expenses"));
+
+        // Act
+        BulkTransferReport report = bulkTransferService.send(sender.getId(), transfers);
+
+        // Assert: 40.20 and 50.25 fit in 100.00, 20.10 does not, 9.05 still does
+        assertEquals(3, report.accepted());
+        assertEquals(3, report.rejected());
+        List<BulkTransferLineResult> lines = report.lines();
+        assertNotNull(lines.get(0).transactionId());
+        assertEquals("You are not connected to this user", lines.get(1).error());
+        assertEquals("The amount must be greater than zero", lines.get(2).error());
+        assertTrue(lines.get(3).isAccepted());
+        assertEquals("Insufficient balance", lines.get(4).error());
+        assertTrue(lines.get(5).isAccepted());
+        assertEquals(6, lines.get(5).line());
+
+        assertEquals(Money.ofCents(10000 - 4020 - 5025 - 905), balanceOf(sender));
+        assertEquals(Money.ofCents(4000), balanceOf(alice));
+        assertEquals(Money.ofCents(5900), balanceOf(bob));
+        assertEquals(3, transactionRepository.count());
+        assertEquals(6, userFeedRepository.count());
+        assertEquals(List.of(lines.get(0).transactionId()), userFeedRepository.findViewsByUser(alice.getId(), Limit.of(10))
+                .stream().map(TransactionView::id).toList());
+        assertEquals(3, billingRepository.count());
+        assertEquals("Transaction fee for transferring 50.00 to bob@example.com",
+                billingRepository.findAll().stream().filter(billing -> billing.getAmount().equals(Money.ofCents(25)))
+                        .findFirst().orElseThrow().getDescription());
+        assertEquals(List.of(), userStatsService.findInconsistentUserIds());
+    }
+
+    @Test
+    void send_withTenThousandLines_shouldSendThemAll() {
+        // Arrange
+        entityManager.createNativeQuery("UPDATE user_account SET balance = 20000 WHERE id = :id")
+                .setParameter("id", sender.getId())
+                .executeUpdate();
+        List<BulkTransferLine> transfers = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            transfers.add(new BulkTransferLine(i % 2 == 0 ? "alice@example.com" : "bob@example.com",
+                    new BigDecimal("1.00"), "Payout " + i));
+        }
+
+        // Act
+        BulkTransferReport report = bulkTransferService.send(sender.getId(), transfers);
+
+        // Assert
+        assertEquals(10000, report.accepted());
+        assertEquals(Money.ofCents(2000000 - 10000 * 101), balanceOf(sender));
+        assertEquals(Money.ofCents(500000), balanceOf(alice));
+        assertEquals(10000, transactionRepository.count());
+        assertEquals(List.of(), userStatsService.findInconsistentUserIds());
+    }
+
+    @Test
+    void send_shouldTakeOneSequenceBlockPerFiftyTransactions() {
+        // Arrange
+        List<BulkTransferLine> transfers = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            transfers.add(new BulkTransferLine("alice@example.com", new BigDecimal("0.10"), "Payout " + i));
+        }
+        long before = nextTransactionId();
+
+        // Act
+        BulkTransferReport report = bulkTransferService.send(sender.getId(), transfers);
+
+        // Assert: two blocks of 50 ids for the 60 rows, each id used once
+        long after = nextTransactionId();
+        assertEquals(60, report.accepted());
+        assertEquals(3 * 50, after - before);
+        List<Long> ids = report.lines().stream().map(BulkTransferLineResult::transactionId).toList();
+        assertEquals(60, ids.stream().distinct().count());
+        assertTrue(ids.stream().allMatch(id -> id > before && id <= after - 50));
+    }
+
+    private long nextTransactionId() {
+        return ((Number) entityManager.createNativeQuery("SELECT nextval('transaction_id_seq')").getSingleResult()).longValue();
+    }
+
+    @Test
+    void send_withTooManyLines_shouldThrowException() {
+        // Arrange
+        List<BulkTransferLine> transfers = new ArrayList<>();
+        for (int i = 0; i <= 10000; i++) {
+            transfers.add(new BulkTransferLine("alice@example.com", BigDecimal.ONE, null));
+        }
+
+        // Act & Assert
+        Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                bulkTransferService.send(sender.getId(), transfers));
+        assertEquals("A bulk transfer is limited to 10000 lines", exception.getMessage());
+    }
+
+    @Test
+    void parseCsv_shouldSkipHeaderAndKeepInvalidAmountsAsNull() throws Exception {
+        // Arrange
+        String csv = "email,amount,description\n" +
+                "alice@example.com,12.50,\"Salary, March\"\n" +
+                "\n" +
+                "bob@example.com,abc\n";
+
+        // Act
+        List<BulkTransferLine> transfers = bulkTransferService.parseCsv(new StringReader(csv));
+
+        // Assert
+        assertEquals(List.of(
+                new BulkTransferLine("alice@example.com", new BigDecimal("12.50"), "Salary, March"),
+                new BulkTransferLine("bob@example.com", null, null)), transfers);
+    }
+}
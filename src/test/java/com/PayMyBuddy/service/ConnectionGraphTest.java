@@ -0,0 +1,179 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository.EdgeConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConnectionGraphTest {
+
+    private ConnectionEdgeRepository connectionEdgeRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ConnectionGraph connectionGraph;
+
+    @BeforeEach
+    void setUp() {
+        connectionEdgeRepository = mock(ConnectionEdgeRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        connectionGraph = new ConnectionGraph(connectionEdgeRepository, mock(PlatformTransactionManager.class), meterRegistry);
+    }
+
+    @Test
+    void load_shouldReadEveryContactOfTheDatabase() {
+        // Arrange
+        ReflectionTestUtils.setField(connectionGraph, "enabled", true);
+        doAnswer(invocation -> {
+            EdgeConsumer edges = invocation.getArgument(0);
+            edges.accept(1, 2);
+            edges.accept(1, 3);
+            edges.accept(2, 1);
+            return null;
+        }).when(connectionEdgeRepository).forEachEdge(any());
+
+        // Act
+        connectionGraph.load();
+
+        // Assert
+        assertTrue(connectionGraph.isLoaded());
+        assertTrue(connectionGraph.isConnected(1, 3));
+        assertTrue(connectionGraph.isConnected(2, 1));
+        assertFalse(connectionGraph.isConnected(3, 1));
+        assertEquals(3.0, meterRegistry.get("paymybuddy.connections.graph.edges").gauge().value());
+    }
+
+    @Test
+    void refresh_shouldDropContactsRemovedFromTheDatabase() {
+        // Arrange: the contact 1 -> 3 is removed by another instance after the first load
+        ReflectionTestUtils.setField(connectionGraph, "enabled", true);
+        doAnswer(invocation -> {
+            EdgeConsumer edges = invocation.getArgument(0);
+            edges.accept(1, 2);
+            edges.accept(1, 3);
+            return null;
+        }).doAnswer(invocation -> {
+            EdgeConsumer edges = invocation.getArgument(0);
+            edges.accept(1, 2);
+            return null;
+        }).when(connectionEdgeRepository).forEachEdge(any());
+        connectionGraph.load();
+
+        // Act
+        connectionGraph.refresh();
+
+        // Assert
+        assertTrue(connectionGraph.isConnected(1, 2));
+        assertFalse(connectionGraph.isConnected(1, 3));
+        assertEquals(1, connectionGraph.edgeCount());
+    }
+
+    @Test
+    void load_whenDisabled_shouldNotReadDatabase() {
+        // Act
+        connectionGraph.load();
+
+        // Assert
+        assertFalse(connectionGraph.isLoaded());
+        verifyNoInteractions(connectionEdgeRepository);
+    }
+
+    @Test
+    void rebuild_withUnorderedAndRepeatedContacts_shouldKeepEachContactOnce() {
+        // Act
+        long edges = connectionGraph.rebuild(source -> {
+            source.accept(1, 5);
+            source.accept(2, 1);
+            source.accept(1, 3);
+            source.accept(1, 5);
+            source.accept(1, 3);
+        });
+
+        // Assert
+        assertEquals(3, edges);
+        assertTrue(connectionGraph.isConnected(1, 3));
+        assertTrue(connectionGraph.isConnected(1, 5));
+        assertTrue(connectionGraph.isConnected(2, 1));
+        assertFalse(connectionGraph.isConnected(1, 2));
+        assertFalse(connectionGraph.isConnected(5, 1));
+    }
+
+    @Test
+    void rebuild_withChangesCommittedMeanwhile_shouldReplayThem() {
+        // Arrange
+        connectionGraph.rebuild(source -> source.accept(1, 2));
+
+        // Act: a contact is created and another deleted while the table is read
+        long edges = connectionGraph.rebuild(source -> {
+            source.accept(1, 2);
+            connectionGraph.addAfterCommit(3, 4);
+            connectionGraph.removeAfterCommit(1, 2);
+        });
+
+        // Assert
+        assertEquals(1, edges);
+        assertFalse(connectionGraph.isConnected(1, 2));
+        assertTrue(connectionGraph.isConnected(3, 4));
+    }
+
+    @Test
+    void rebuild_withFailingSource_shouldKeepPreviousGraph() {
+        // Arrange
+        connectionGraph.rebuild(source -> source.accept(1, 2));
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> connectionGraph.rebuild(source -> {
+            source.accept(7, 8);
+            throw new IllegalStateException("Connection lost");
+        }));
+
+        // Assert
+        assertTrue(connectionGraph.isConnected(1, 2));
+        assertFalse(connectionGraph.isConnected(7, 8));
+        connectionGraph.addAfterCommit(3, 4);
+        assertTrue(connectionGraph.isConnected(3, 4));
+    }
+
+    @Test
+    void addAndRemove_withManyOwners_shouldGrowTheTable() {
+        // Act
+        for (long owner = 1; owner <= 10_000; owner++) {
+            connectionGraph.addAfterCommit(owner, owner + 1);
+            connectionGraph.addAfterCommit(owner, owner + 2);
+        }
+        connectionGraph.removeAfterCommit(5000, 5001);
+        connectionGraph.removeAfterCommit(5000, 5001);
+
+        // Assert
+        assertEquals(19_999, connectionGraph.edgeCount());
+        assertTrue(connectionGraph.isConnected(1, 3));
+        assertTrue(connectionGraph.isConnected(10_000, 10_001));
+        assertTrue(connectionGraph.isConnected(5000, 5002));
+        assertFalse(connectionGraph.isConnected(5000, 5001));
+        assertFalse(connectionGraph.isConnected(10_001, 10_002));
+    }
+
+    @Test
+    void addAfterCommit_inTransaction_shouldWaitForCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            connectionGraph.addAfterCommit(1, 2);
+
+            // Assert
+            assertFalse(connectionGraph.isConnected(1, 2));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(connectionGraph.isConnected(1, 2));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
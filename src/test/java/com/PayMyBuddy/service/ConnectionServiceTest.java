@@ -1,5 +1,6 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.ConnectionView;
 import com.PayMyBuddy.model.Connection;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.repository.ConnectionRepository;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +28,15 @@ class ConnectionServiceTest {
     @Mock
     private UserAccountRepository userAccountRepository;
 
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock
+    private UserLookupService userLookupService;
+
+    @Mock
+    private ConnectionGraph connectionGraph;
+
     @InjectMocks
     private ConnectionService connectionService;
 
@@ -87,26 +98,43 @@ class ConnectionServiceTest {
     void findByOwnerId_withValidId_shouldReturnConnections() {
         // Arrange
         List<Connection> expectedConnections = Arrays.asList(testConnection);
-        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(owner));
-        when(connectionRepository.findByOwner(owner)).thenReturn(expectedConnections);
+        when(connectionRepository.findByOwnerId(1L)).thenReturn(expectedConnections);
 
         // Act
         List<Connection> actualConnections = connectionService.findByOwnerId(1L);
 
         // Assert
         assertEquals(expectedConnections, actualConnections);
-        verify(userAccountRepository).findById(1L);
-        verify(connectionRepository).findByOwner(owner);
+        verify(connectionRepository).findByOwnerId(1L);
+        verify(userAccountRepository, never()).findById(any());
     }
 
     @Test
-    void findByOwnerId_withInvalidId_shouldThrowException() {
+    void findByOwnerId_withUnknownId_shouldReturnEmptyList() {
         // Arrange
-        when(userAccountRepository.findById(999L)).thenReturn(Optional.empty());
+        when(connectionRepository.findByOwnerId(999L)).thenReturn(List.of());
 
-        // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> connectionService.findByOwnerId(999L));
-        verify(userAccountRepository).findById(999L);
+        // Act
+        List<Connection> actualConnections = connectionService.findByOwnerId(999L);
+
+        // Assert
+        assertTrue(actualConnections.isEmpty());
+        verify(userAccountRepository, never()).findById(any());
+    }
+
+    @Test
+    void findViewsByOwnerId_shouldReturnConnectionViews() {
+        // Arrange
+        List<ConnectionView> expectedViews = List.of(new ConnectionView(1L, 2L, "Jane Smith", "friend@example.com"));
+        when(connectionRepository.findViewsByOwnerId(1L)).thenReturn(expectedViews);
+
+        // Act
+        List<ConnectionView> actualViews = connectionService.findViewsByOwnerId(1L);
+
+        // Assert
+        assertEquals(expectedViews, actualViews);
+        verify(connectionRepository).findViewsByOwnerId(1L);
+        verifyNoInteractions(userAccountRepository);
     }
 
     @Test
@@ -129,7 +157,7 @@ class ConnectionServiceTest {
         when(userAccountRepository.findById(1L)).thenReturn(Optional.of(owner));
         when(userAccountRepository.findById(2L)).thenReturn(Optional.of(friend));
         when(connectionRepository.existsByOwnerAndFriend(owner, friend)).thenReturn(false);
-        when(connectionRepository.save(any(Connection.class))).thenReturn(testConnection);
+        when(connectionRepository.saveAndFlush(any(Connection.class))).thenReturn(testConnection);
 
         // Act
         Connection result = connectionService.createConnection(1L, 2L);
@@ -139,7 +167,62 @@ class ConnectionServiceTest {
         verify(userAccountRepository).findById(1L);
         verify(userAccountRepository).findById(2L);
         verify(connectionRepository).existsByOwnerAndFriend(owner, friend);
-        verify(connectionRepository).save(any(Connection.class));
+        verify(connectionRepository).saveAndFlush(any(Connection.class));
+        verify(userStatsService).recordConnectionAdded(1L);
+        verify(userLookupService).evictConnection(1L, 2L);
+        verify(connectionGraph).addAfterCommit(1L, 2L);
+    }
+
+    @Test
+    void createConnection_withLoadedGraph_shouldNotCheckDatabaseForNewContact() {
+        // Arrange
+        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(owner));
+        when(userAccountRepository.findById(2L)).thenReturn(Optional.of(friend));
+        when(connectionGraph.isLoaded()).thenReturn(true);
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(false);
+        when(connectionRepository.saveAndFlush(any(Connection.class))).thenReturn(testConnection);
+
+        // Act
+        connectionService.createConnection(1L, 2L);
+
+        // Assert
+        verify(connectionRepository, never()).existsByOwnerAndFriend(any(), any());
+        verify(connectionRepository).saveAndFlush(any(Connection.class));
+    }
+
+    @Test
+    void createConnection_withContactInGraphButRemovedElsewhere_shouldCreateConnection() {
+        // Arrange
+        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(owner));
+        when(userAccountRepository.findById(2L)).thenReturn(Optional.of(friend));
+        when(connectionGraph.isLoaded()).thenReturn(true);
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(connectionRepository.existsByOwnerAndFriend(owner, friend)).thenReturn(false);
+        when(connectionRepository.saveAndFlush(any(Connection.class))).thenReturn(testConnection);
+
+        // Act
+        Connection result = connectionService.createConnection(1L, 2L);
+
+        // Assert
+        assertEquals(testConnection, result);
+        verify(connectionRepository).existsByOwnerAndFriend(owner, friend);
+    }
+
+    @Test
+    void createConnection_withContactCreatedMeanwhileElsewhere_shouldThrowException() {
+        // Arrange: the graph does not hold the contact, the unique constraint rejects it
+        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(owner));
+        when(userAccountRepository.findById(2L)).thenReturn(Optional.of(friend));
+        when(connectionGraph.isLoaded()).thenReturn(true);
+        when(connectionRepository.saveAndFlush(any(Connection.class)))
+                .thenThrow(new DataIntegrityViolationException("Unique index or primary key violation"));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> connectionService.createConnection(1L, 2L));
+        assertEquals("This connection already exists", exception.getMessage());
+        verifyNoInteractions(userStatsService);
+        verify(connectionGraph, never()).addAfterCommit(anyLong(), anyLong());
     }
 
     @Test
@@ -154,7 +237,8 @@ class ConnectionServiceTest {
         verify(userAccountRepository).findById(1L);
         verify(userAccountRepository).findById(2L);
         verify(connectionRepository).existsByOwnerAndFriend(owner, friend);
-        verify(connectionRepository, never()).save(any(Connection.class));
+        verify(connectionRepository, never()).saveAndFlush(any(Connection.class));
+        verifyNoInteractions(userLookupService);
     }
 
     @Test
@@ -164,16 +248,35 @@ class ConnectionServiceTest {
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> connectionService.createConnection(1L, 1L));
-        verify(connectionRepository, never()).save(any(Connection.class));
+        verify(connectionRepository, never()).saveAndFlush(any(Connection.class));
     }
 
     @Test
     void deleteConnection_shouldCallRepositoryDelete() {
+        // Arrange
+        when(connectionRepository.findById(1L)).thenReturn(Optional.of(testConnection));
+
         // Act
         connectionService.deleteConnection(1L);
 
         // Assert
-        verify(connectionRepository).deleteById(1L);
+        verify(connectionRepository).delete(testConnection);
+        verify(userStatsService).recordConnectionRemoved(1L);
+        verify(userLookupService).evictConnection(1L, 2L);
+        verify(connectionGraph).removeAfterCommit(1L, 2L);
+    }
+
+    @Test
+    void deleteConnection_withUnknownId_shouldDoNothing() {
+        // Arrange
+        when(connectionRepository.findById(99L)).thenReturn(Optional.empty());
+
+        // Act
+        connectionService.deleteConnection(99L);
+
+        // Assert
+        verify(connectionRepository, never()).delete(any());
+        verify(userStatsService, never()).recordConnectionRemoved(any());
     }
 
     @Test
@@ -191,6 +294,8 @@ class ConnectionServiceTest {
         verify(userAccountRepository).findById(2L);
         verify(connectionRepository).findByOwnerAndFriend(owner, friend);
         verify(connectionRepository).delete(testConnection);
+        verify(userLookupService).evictConnection(1L, 2L);
+        verify(connectionGraph).removeAfterCommit(1L, 2L);
     }
 
     @Test
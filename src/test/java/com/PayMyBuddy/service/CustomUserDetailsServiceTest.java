@@ -1,5 +1,6 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.AuthenticatedUser;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.repository.UserAccountRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +23,9 @@ class CustomUserDetailsServiceTest {
     @Mock
     private UserAccountRepository userAccountRepository;
 
+    @Mock
+    private UserLookupService userLookupService;
+
     @InjectMocks
     private CustomUserDetailsService customUserDetailsService;
 
@@ -73,4 +78,22 @@ class CustomUserDetailsServiceTest {
             customUserDetailsService.loadUserByUsername("nonexistent@example.com"));
         verify(userAccountRepository).findByEmail("nonexistent@example.com");
     }
+
+    @Test
+    void updatePassword_shouldStoreNewHashAndKeepPrincipal() {
+        // Arrange
+        AuthenticatedUser user = new AuthenticatedUser(testUser, List.of());
+        when(userAccountRepository.updatePassword("test@example.com", "newHash")).thenReturn(1);
+
+        // Act
+        UserDetails updated = customUserDetailsService.updatePassword(user, "newHash");
+
+        // Assert
+        verify(userAccountRepository).updatePassword("test@example.com", "newHash");
+        verify(userLookupService).evictUserDetails("test@example.com");
+        AuthenticatedUser principal = assertInstanceOf(AuthenticatedUser.class, updated);
+        assertEquals("newHash", principal.getPassword());
+        assertEquals(1L, principal.getId());
+        assertEquals("Test", principal.getFirstName());
+    }
 }
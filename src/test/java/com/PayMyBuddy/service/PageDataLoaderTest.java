@@ -0,0 +1,128 @@
+package com.PayMyBuddy.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PageDataLoaderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PlatformTransactionManager transactionManager;
+    private PageDataLoader pageDataLoader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionManager = mock(PlatformTransactionManager.class);
+        pageDataLoader = new PageDataLoader(4, 10, 500, transactionManager, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pageDataLoader.shutdown();
+    }
+
+    @Test
+    void load_shouldRunTheQueriesAtTheSameTime() {
+        // Arrange
+        PageDataLoader.Page page = pageDataLoader.page();
+        long start = System.nanoTime();
+
+        // Act
+        Supplier<String> first = page.load("first", () -> sleepThen(200, "first"), "none");
+        Supplier<String> second = page.load("second", () -> sleepThen(200, "second"), "none");
+
+        // Assert: the page waits for the slowest query, not for both
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(380));
+        assertFalse(page.isPartial());
+    }
+
+    @Test
+    void load_whenQueryIsLate_shouldReturnFallback() {
+        // Arrange
+        PageDataLoader.Page page = pageDataLoader.page();
+
+        // Act
+        Supplier<String> slow = page.load("slow", () -> sleepThen(5000, "slow"), "none");
+        Supplier<String> fast = page.load("fast", () -> "fast", "none");
+
+        // Assert
+        assertEquals("none", slow.get());
+        assertEquals("fast", fast.get());
+        assertTrue(page.isPartial());
+        assertEquals(1, meterRegistry.counter("paymybuddy.page.partial", "query", "slow", "reason", "timeout").count());
+    }
+
+    @Test
+    void load_whenQueryIsLate_shouldInterruptIt() throws Exception {
+        // Arrange
+        PageDataLoader.Page page = pageDataLoader.page();
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        // Act
+        Supplier<String> slow = page.load("slow", () -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "slow";
+        }, "none");
+
+        // Assert
+        assertEquals("none", slow.get());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void load_shouldRunTheQueryInATransactionTimingOutAtTheDeadline() {
+        // Arrange
+        PageDataLoader.Page page = pageDataLoader.page();
+
+        // Act
+        page.load("query", () -> "result", "none").get();
+
+        // Assert: the 500 ms left, rounded up to the second
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(1, definition.getValue().getTimeout());
+    }
+
+    @Test
+    void load_whenQueryFails_shouldReturnFallback() {
+        // Arrange
+        PageDataLoader.Page page = pageDataLoader.page();
+
+        // Act
+        Supplier<String> failing = page.load("failing", () -> {
+            throw new IllegalStateException("Database unavailable");
+        }, "none");
+
+        // Assert
+        assertEquals("none", failing.get());
+        assertTrue(page.isPartial());
+        assertEquals(1, meterRegistry.counter("paymybuddy.page.partial", "query", "failing", "reason", "error").count());
+    }
+
+    private static String sleepThen(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,117 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.Transaction;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.TransactionExportRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "paymybuddy.export.fetch-size=2")
+@Import({TransactionExportService.class, TransactionExportRepository.class})
+class TransactionExportServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    private UserAccount alice;
+    private UserAccount bob;
+    private UserAccount carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = persistUser("alice@example.com", "Alice");
+        bob = persistUser("bob@example.com", "Bob");
+        carol = persistUser("carol@example.com", "Carol");
+    }
+
+    private UserAccount persistUser(String email, String firstName) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName(firstName);
+        user.setLastName("Martin");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Transaction persistTransaction(UserAccount sender, UserAccount receiver, long cents, int day, String description) {
+        Transaction transaction = new Transaction(null, sender, receiver, Money.ofCents(cents),
+                LocalDateTime.of(2025, 1, day, 12, 0), description, Money.ofCents(cents / 200));
+        entityManager.persist(transaction);
+        entityManager.flush();
+        return transaction;
+    }
+
+    @Test
+    void writeCsv_shouldWriteHistoryOfUserOldestFirst() throws Exception {
+        // Arrange
+        Transaction received = persistTransaction(bob, alice, 2000, 2, "Dinner, drinks");
+        Transaction sent = persistTransaction(alice, bob, 10000, 1, "Rent");
+        persistTransaction(bob, carol, 500, 3, "Not Alice's");
+        StringWriter writer = new StringWriter();
+
+        // Act
+        transactionExportService.writeCsv(alice.getId(), writer);
+
+        // Assert
+        assertEquals(TransactionExportService.CSV_HEADER + "\n" +
+                sent.getId() + ",2025-01-01T12:00,sent,Bob Martin,100.00,0.50,Rent\n" +
+                received.getId() + ",2025-01-02T12:00,received,Bob Martin,20.00,0.10,\"Dinner, drinks\"\n",
+                writer.toString());
+    }
+
+    @Test
+    void writeCsv_withoutTransactions_shouldWriteHeaderOnly() throws Exception {
+        // Arrange
+        StringWriter writer = new StringWriter();
+
+        // Act
+        transactionExportService.writeCsv(carol.getId(), writer);
+
+        // Assert
+        assertEquals(TransactionExportService.CSV_HEADER + "\n", writer.toString());
+    }
+
+    @Test
+    void writeNdjson_shouldWriteOneObjectPerLine() throws Exception {
+        // Arrange
+        Transaction sent = persistTransaction(alice, bob, 10000, 1, "Rent \"January\"");
+        Transaction received = persistTransaction(carol, alice, 2000, 2, null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        transactionExportService.writeNdjson(alice.getId(), outputStream);
+
+        // Assert
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":" + sent.getId() + ",\"date\":\"2025-01-01T12:00\",\"direction\":\"sent\"," +
+                "\"counterparty\":\"Bob Martin\",\"amount\":100.00,\"fee\":0.50,\"description\":\"Rent \\\"January\\\"\"}", lines[0]);
+        assertEquals("{\"id\":" + received.getId() + ",\"date\":\"2025-01-02T12:00\",\"direction\":\"received\"," +
+                "\"counterparty\":\"Carol Martin\",\"amount\":20.00,\"fee\":0.10,\"description\":null}", lines[1]);
+    }
+
+    @Test
+    void csvField_shouldQuoteOnlyWhenNeeded() {
+        assertEquals("", TransactionExportService.csvField(null));
+        assertEquals("Rent", TransactionExportService.csvField("Rent"));
+        assertEquals("\"a,b\"", TransactionExportService.csvField("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", TransactionExportService.csvField("say \"hi\""));
+        assertEquals("\"two\nlines\"", TransactionExportService.csvField("two\nlines"));
+    }
+}
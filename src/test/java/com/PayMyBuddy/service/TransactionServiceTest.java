@@ -1,16 +1,30 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.dto.TransactionPage;
+import com.PayMyBuddy.dto.TransactionView;
+import com.PayMyBuddy.dto.UserAccountSummary;
+import com.PayMyBuddy.model.Billing;
+import com.PayMyBuddy.model.BillingOutbox;
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.Transaction;
 import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.BillingOutboxRepository;
 import com.PayMyBuddy.repository.BillingRepository;
-import com.PayMyBuddy.repository.ConnectionRepository;
 import com.PayMyBuddy.repository.TransactionRepository;
 import com.PayMyBuddy.repository.UserAccountRepository;
+import com.PayMyBuddy.repository.UserFeedRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
@@ -28,20 +42,40 @@ class TransactionServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private UserFeedRepository userFeedRepository;
+
     @Mock
     private UserAccountRepository userAccountRepository;
 
     @Mock
-    private ConnectionRepository connectionRepository;
+    private UserLookupService userLookupService;
+
+    @Mock
+    private ConnectionGraph connectionGraph;
 
     @Mock
     private BillingRepository billingRepository;
 
+    @Mock
+    private BillingOutboxRepository billingOutboxRepository;
+
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock
+    private BillingSummaryService billingSummaryService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private TransactionService transactionService;
 
     private UserAccount sender;
     private UserAccount receiver;
+    private UserAccountSummary senderSummary;
+    private UserAccountSummary receiverSummary;
     private Transaction testTransaction;
 
     @BeforeEach
@@ -49,7 +83,7 @@ class TransactionServiceTest {
         MockitoAnnotations.openMocks(this);
 
         // Configure le pourcentage de frais
-        ReflectionTestUtils.setField(transactionService, "feePercentage", new BigDecimal("0.5"));
+        transactionService.setFeePercentage(new BigDecimal("0.5"));
 
         // Création d'un expéditeur avec solde de 1000
         sender = new UserAccount();
@@ -67,15 +101,31 @@ class TransactionServiceTest {
         receiver.setLastName("Receiver");
         receiver.setPassword("password");
 
+        senderSummary = new UserAccountSummary(1L, "sender@example.com", "John", "Sender");
+        receiverSummary = new UserAccountSummary(2L, "receiver@example.com", "Jane", "Receiver");
+        when(userAccountRepository.getReferenceById(1L)).thenReturn(sender);
+        when(userAccountRepository.getReferenceById(2L)).thenReturn(receiver);
+
         // Création d'une transaction de test
         testTransaction = new Transaction();
         testTransaction.setId(1L);
         testTransaction.setSender(sender);
         testTransaction.setReceiver(receiver);
-        testTransaction.setAmount(new BigDecimal("100.00"));
-        testTransaction.setFee(new BigDecimal("0.50"));
+        testTransaction.setAmount(Money.ofCents(10000));
+        testTransaction.setFee(Money.ofCents(50));
         testTransaction.setDate(LocalDateTime.now());
         testTransaction.setDescription("Test transaction");
+
+        // Soldes suffisants par défaut
+        when(userAccountRepository.debit(anyLong(), any())).thenReturn(1);
+        when(userAccountRepository.credit(anyLong(), any())).thenReturn(1);
+    }
+
+    // Assigns an id to the saved transaction, as the persist does with the sequence
+    private static Transaction savedWithId(InvocationOnMock invocation) {
+        Transaction transaction = invocation.getArgument(0);
+        transaction.setId(1L);
+        return transaction;
     }
 
     @Test
@@ -106,12 +156,51 @@ class TransactionServiceTest {
         verify(transactionRepository).findById(1L);
     }
 
+    @Test
+    void findPageByUser_withoutCursor_shouldReturnLatestTransactions() {
+        // Arrange
+        TransactionView view = new TransactionView(1L, "Jane Receiver", false, Money.ofCents(10000),
+                Money.ofCents(50), LocalDateTime.now(), "Test transaction");
+        when(userFeedRepository.findViewsByUser(1L, Limit.of(2))).thenReturn(List.of(view));
+
+        // Act
+        TransactionPage page = transactionService.findPageByUser(1L, null, null, 1);
+
+        // Assert
+        assertEquals(List.of(view), page.transactions());
+        assertFalse(page.hasMore());
+        assertNull(page.nextDate());
+        verify(userFeedRepository, never()).findViewsByUserBefore(any(), any(), any(), any());
+    }
+
+    @Test
+    void findPageByUser_withCursor_shouldReturnOlderTransactionsAndNextCursor() {
+        // Arrange
+        LocalDateTime cursorDate = LocalDateTime.of(2025, 1, 10, 12, 0);
+        TransactionView older = new TransactionView(3L, "Jane Receiver", false, Money.ofCents(1000),
+                Money.ofCents(5), cursorDate.minusDays(2), null);
+        TransactionView oldest = new TransactionView(2L, "Jane Receiver", true, Money.ofCents(2000),
+                Money.ofCents(10), cursorDate.minusDays(3), null);
+        when(userFeedRepository.findViewsByUserBefore(1L, cursorDate, 4L, Limit.of(2)))
+                .thenReturn(List.of(older, oldest));
+
+        // Act
+        TransactionPage page = transactionService.findPageByUser(1L, cursorDate, 4L, 1);
+
+        // Assert
+        assertEquals(List.of(older), page.transactions());
+        assertTrue(page.hasMore());
+        assertEquals(older.date(), page.nextDate());
+        assertEquals(3L, page.nextId());
+        verify(userFeedRepository, never()).findViewsByUser(any(), any());
+    }
+
     @Test
     void makeTransaction_withValidData_shouldCreateTransaction() {
         // Arrange
-        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(userAccountRepository.findById(2L)).thenReturn(Optional.of(receiver));
-        when(connectionRepository.existsByOwnerAndFriend(sender, receiver)).thenReturn(true);
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(userLookupService.isConnected(1L, 2L)).thenReturn(true);
         when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
         BigDecimal amount = new BigDecimal("100.00");
@@ -122,45 +211,131 @@ class TransactionServiceTest {
         // Assert
         assertEquals(testTransaction, result);
 
-        verify(userAccountRepository).findById(1L);
-        verify(userAccountRepository).findById(2L);
-        verify(connectionRepository).existsByOwnerAndFriend(sender, receiver);
+        verify(userLookupService).findById(1L);
+        verify(userLookupService).findById(2L);
+        verify(userLookupService).isConnected(1L, 2L);
         verify(transactionRepository).save(any(Transaction.class));
         verify(billingRepository).save(any());
+        verify(billingSummaryService).queueCreated(anyList());
+        verify(billingOutboxRepository, never()).save(any());
+        verify(userStatsService).recordTransfer(1L, 2L, Money.ofCents(10000));
+        verify(userFeedRepository).insertTransfers(1L, new long[]{1L}, new long[]{2L}, new long[]{10000}, new long[]{50},
+                new String[]{"Test transaction"}, testTransaction.getDate());
+
+        // L'expéditeur paie le montant et les frais, le destinataire reçoit le montant
+        verify(userAccountRepository).debit(1L, new BigDecimal("100.50"));
+        verify(userAccountRepository).credit(2L, new BigDecimal("100.00"));
 
-        // La méthode actuelle ne met pas à jour les soldes, donc ces vérifications sont supprimées
+        // Les soldes sont modifiés par les mises à jour atomiques, jamais par les entités
         verify(userAccountRepository, never()).save(sender);
         verify(userAccountRepository, never()).save(receiver);
     }
 
     @Test
-    void makeTransaction_withInsufficientFunds_shouldThrowException() {
+    void makeTransaction_withContactInGraph_shouldNotCheckDatabase() {
         // Arrange
-        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(userAccountRepository.findById(2L)).thenReturn(Optional.of(receiver));
-        when(connectionRepository.existsByOwnerAndFriend(sender, receiver)).thenReturn(true);
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(connectionGraph.isConnected(1L, 2L)).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
-        BigDecimal amount = new BigDecimal("1000.00"); // montant élevé
+        // Act
+        Transaction result = transactionService.makeTransaction(1L, 2L, new BigDecimal("100.00"), "Test transaction");
+
+        // Assert
+        assertEquals(testTransaction, result);
+        verify(connectionGraph).isConnected(1L, 2L);
+        verify(userLookupService, never()).isConnected(any(), any());
+    }
 
-        // Comme la méthode ne vérifie pas réellement le solde, nous devons modifier notre test
-        // pour vérifier seulement que la transaction est créée correctement, sans lancer d'exception
+    @Test
+    void makeTransaction_withValidData_shouldBuildBillingDescription() {
+        // Arrange
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(userLookupService.isConnected(1L, 2L)).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(TransactionServiceTest::savedWithId);
+
+        // Act
+        transactionService.makeTransaction(1L, 2L, new BigDecimal("100.00"), "Test transaction");
+
+        // Assert
+        ArgumentCaptor<Billing> billing = ArgumentCaptor.forClass(Billing.class);
+        verify(billingRepository).save(billing.capture());
+        assertEquals(Money.ofCents(50), billing.getValue().getAmount());
+        assertFalse(billing.getValue().getProcessed());
+        assertEquals("Transaction fee for transferring 100.00 to receiver@example.com", billing.getValue().getDescription());
+        assertSame(sender, billing.getValue().getTransaction().getSender());
+        assertSame(receiver, billing.getValue().getTransaction().getReceiver());
+        verify(userAccountRepository, never()).findById(any());
+    }
+
+    @Test
+    void makeTransaction_withAsyncBilling_shouldQueueBillingInOutbox() {
+        // Arrange
+        ReflectionTestUtils.setField(transactionService, "asyncBilling", true);
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(userLookupService.isConnected(1L, 2L)).thenReturn(true);
         when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
-        // Act - pas d'exception attendue
-        Transaction result = transactionService.makeTransaction(1L, 2L, amount, "Test transaction");
+        // Act
+        transactionService.makeTransaction(1L, 2L, new BigDecimal("100.00"), "Test transaction");
 
         // Assert
-        assertNotNull(result);
-        verify(transactionRepository).save(any(Transaction.class));
-        verify(billingRepository).save(any());
+        ArgumentCaptor<BillingOutbox> entry = ArgumentCaptor.forClass(BillingOutbox.class);
+        verify(billingOutboxRepository).save(entry.capture());
+        assertEquals(1L, entry.getValue().getTransactionId());
+        assertEquals(0, new BigDecimal("0.5").compareTo(entry.getValue().getFeePercentage()));
+        assertEquals(testTransaction.getDate(), entry.getValue().getCreatedAt());
+        verify(billingRepository, never()).save(any());
+        verifyNoInteractions(billingSummaryService);
+    }
+
+    @Test
+    void makeTransaction_withInsufficientFunds_shouldThrowException() {
+        // Arrange
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(userLookupService.isConnected(1L, 2L)).thenReturn(true);
+        when(userAccountRepository.debit(1L, new BigDecimal("1005.00"))).thenReturn(0);
+
+        BigDecimal amount = new BigDecimal("1000.00"); // montant élevé
+
+        // Act & Assert
+        Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                transactionService.makeTransaction(1L, 2L, amount, "Test transaction"));
+
+        assertEquals("Insufficient balance", exception.getMessage());
+        assertEquals(1, meterRegistry.counter("paymybuddy.transfers.rejected", "reason", "insufficient_funds").count());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(billingRepository, never()).save(any());
+        verify(userStatsService, never()).recordTransfer(any(), any(), any());
+    }
+
+    @Test
+    void makeTransaction_towardsLowerAccountId_shouldLockAccountsInIdOrder() {
+        // Arrange
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.isConnected(2L, 1L)).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(TransactionServiceTest::savedWithId);
+
+        // Act
+        transactionService.makeTransaction(2L, 1L, new BigDecimal("10.00"), "Remboursement");
+
+        // Assert: le compte 1 est verrouillé en premier, bien qu'il soit le destinataire
+        InOrder inOrder = inOrder(userAccountRepository);
+        inOrder.verify(userAccountRepository).credit(1L, new BigDecimal("10.00"));
+        inOrder.verify(userAccountRepository).debit(2L, new BigDecimal("10.05"));
     }
 
     @Test
     void makeTransaction_withNoConnection_shouldThrowException() {
         // Arrange
-        when(userAccountRepository.findById(1L)).thenReturn(Optional.of(sender));
-        when(userAccountRepository.findById(2L)).thenReturn(Optional.of(receiver));
-        when(connectionRepository.existsByOwnerAndFriend(sender, receiver)).thenReturn(false);
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.of(receiverSummary));
+        when(userLookupService.isConnected(1L, 2L)).thenReturn(false);
 
         BigDecimal amount = new BigDecimal("100.00");
 
@@ -170,11 +345,29 @@ class TransactionServiceTest {
         });
 
         assertEquals("You are not connected to this user", exception.getMessage());
+        assertEquals(1, meterRegistry.counter("paymybuddy.transfers.rejected", "reason", "not_connected").count());
 
-        verify(userAccountRepository).findById(1L);
-        verify(userAccountRepository).findById(2L);
-        verify(connectionRepository).existsByOwnerAndFriend(sender, receiver);
+        verify(userLookupService).findById(1L);
+        verify(userLookupService).findById(2L);
+        verify(userLookupService).isConnected(1L, 2L);
         verify(userAccountRepository, never()).save(any(UserAccount.class));
+        verify(userStatsService, never()).recordTransfer(any(), any(), any());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void makeTransaction_withUnknownReceiver_shouldCountRejection() {
+        // Arrange
+        when(userLookupService.findById(1L)).thenReturn(Optional.of(senderSummary));
+        when(userLookupService.findById(2L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                transactionService.makeTransaction(1L, 2L, new BigDecimal("100.00"), "Test transaction"));
+
+        assertEquals("Receiver not found", exception.getMessage());
+        assertEquals(1, meterRegistry.counter("paymybuddy.transfers.rejected", "reason", "receiver_not_found").count());
+        assertEquals(0, meterRegistry.counter("paymybuddy.transfers.rejected", "reason", "not_connected").count());
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 }
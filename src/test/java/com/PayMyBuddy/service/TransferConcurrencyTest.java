@@ -0,0 +1,273 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.IdempotencyRecord;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.IdempotencyRecordRepository;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test of concurrent transfers between a few accounts, in both directions: no transfer
+ * may fail for another reason than an insufficient balance, and no money may be created or lost.
+ * Also checks that a transfer sent concurrently with the same idempotency key is made once.
+ * <p>
+ * Runs against H2 by default. To run it against a local PostgreSQL created from
+ * database_schema.sql and the migrations:
+ * <pre>
+ * mvn test -Dtest=TransferConcurrencyTest -Dspring.datasource.url=jdbc:postgresql://localhost:5432/paymybuddy \
+ *     -Dspring.datasource.username=... -Dspring.datasource.password=... -Dpaymybuddy.stress.transfers=20000
+ * </pre>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class TransferConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferConcurrencyTest.class);
+
+    private static final Money INITIAL_BALANCE = Money.ofCents(50000);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ConnectionService connectionService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private TransferIdempotencyService transferIdempotencyService;
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${paymybuddy.stress.accounts:4}")
+    private int accountCount;
+
+    @Value("${paymybuddy.stress.threads:8}")
+    private int threadCount;
+
+    @Value("${paymybuddy.stress.transfers:800}")
+    private int transferCount;
+
+    private List<Long> createConnectedAccounts() {
+        String prefix = "stress" + System.nanoTime();
+        List<Long> accountIds = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            UserAccount user = new UserAccount();
+            user.setEmail(prefix + "." + i + "@example.com");
+            user.setPassword("password");
+            user.setFirstName("Stress");
+            user.setLastName("User " + i);
+            user.setBalance(INITIAL_BALANCE);
+            accountIds.add(userAccountRepository.save(user).getId());
+        }
+        for (Long ownerId : accountIds) {
+            for (Long friendId : accountIds) {
+                if (!ownerId.equals(friendId)) {
+                    connectionService.createConnection(ownerId, friendId);
+                }
+            }
+        }
+        return accountIds;
+    }
+
+    @Test
+    void concurrentTransfers_shouldConserveMoneyWithoutDeadlock() throws Exception {
+        // Arrange
+        List<Long> accountIds = createConnectedAccounts();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger insufficientFunds = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        for (int i = 0; i < transferCount; i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int sender = random.nextInt(accountIds.size());
+                int receiver = (sender + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size();
+                BigDecimal amount = BigDecimal.valueOf(random.nextLong(100, 15000), 2);
+                try {
+                    start.await();
+                    transactionService.makeTransaction(accountIds.get(sender), accountIds.get(receiver), amount, "Stress");
+                    completed.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    if (!"Insufficient balance".equals(e.getMessage())) {
+                        failures.add(e);
+                    }
+                    insufficientFunds.incrementAndGet();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+
+        // Act
+        long startTime = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Transfers still running, probably deadlocked");
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        logger.info("{} transfers ({} completed, {} rejected for insufficient balance) on {} threads between {} accounts: {} transfers/s",
+                transferCount, completed.get(), insufficientFunds.get(), threadCount, accountCount,
+                Math.round(transferCount / seconds));
+
+        // Assert
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures, first one: " + failures.peek());
+
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", accountIds);
+        Map<String, Object> totals = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS transfers, COALESCE(SUM(fee), 0) AS fees FROM transaction WHERE sender_id IN (:ids)", ids);
+        assertEquals(completed.get(), ((Number) totals.get("transfers")).intValue());
+
+        // Every euro is either still on one of the accounts or was paid as a fee
+        List<BigDecimal> balances = jdbcTemplate.queryForList(
+                "SELECT balance FROM user_account WHERE id IN (:ids)", ids, BigDecimal.class);
+        Money total = balances.stream().map(Money::of).reduce(Money.ZERO, Money::plus);
+        assertEquals(INITIAL_BALANCE.cents() * accountCount, total.plus(Money.of((BigDecimal) totals.get("fees"))).cents());
+        assertTrue(balances.stream().allMatch(balance -> balance.signum() >= 0), "Negative balance: " + balances);
+
+        // Each balance matches the transfers of its account
+        for (Long accountId : accountIds) {
+            BigDecimal expected = jdbcTemplate.queryForObject(
+                    "SELECT :initial - COALESCE((SELECT SUM(amount + fee) FROM transaction WHERE sender_id = :id), 0) " +
+                            "+ COALESCE((SELECT SUM(amount) FROM transaction WHERE receiver_id = :id), 0)",
+                    new MapSqlParameterSource("id", accountId).addValue("initial", INITIAL_BALANCE.toBigDecimal()),
+                    BigDecimal.class);
+            assertEquals(Money.of(expected), userAccountRepository.findById(accountId).orElseThrow().getBalance());
+        }
+
+        // The dashboard counters, updated by the same transfers, did not drift either
+        assertEquals(List.of(), userStatsService.findInconsistentUserIds());
+    }
+
+    @Test
+    void concurrentFirstTransfersAndStatsReads_ofUsersWithoutStats_shouldCreateTheRowsOnce() throws Exception {
+        // Arrange
+        List<Long> accountIds = createConnectedAccounts();
+        Long senderId = accountIds.get(0);
+        Long receiverId = accountIds.get(1);
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", List.of(senderId, receiverId));
+        AtomicInteger completed = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        // Act: each round, the users have no counters yet; the transfers create them while the
+        // dashboard reads, which rebuild them in their own transaction, create them too
+        for (int round = 0; round < 20; round++) {
+            jdbcTemplate.update("DELETE FROM user_stats WHERE user_id IN (:ids)", ids);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            CountDownLatch start = new CountDownLatch(1);
+            for (int i = 0; i < threadCount; i++) {
+                boolean transfer = i % 2 == 0;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        if (transfer) {
+                            transactionService.makeTransaction(senderId, receiverId, new BigDecimal("1.00"), "Stress");
+                            completed.incrementAndGet();
+                        } else {
+                            userStatsService.getStats(receiverId);
+                            userStatsService.getStats(senderId);
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES), "Transfers still running, probably deadlocked");
+        }
+
+        // Assert: no transfer was aborted by a duplicate row, and the rows count every transfer
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures, first one: " + failures.peek());
+        assertEquals(completed.get(), userStatsService.getStats(receiverId).getReceivedCount());
+        assertEquals(List.of(), userStatsService.findInconsistentUserIds());
+    }
+
+    @Test
+    void concurrentRepeats_withSameIdempotencyKey_shouldTransferOnce() throws Exception {
+        // Arrange
+        List<Long> accountIds = createConnectedAccounts();
+        Long senderId = accountIds.get(0);
+        Long receiverId = accountIds.get(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Long> transactionIds = ConcurrentHashMap.newKeySet();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    transactionIds.add(transferIdempotencyService.send(senderId, "double-click", receiverId,
+                            new BigDecimal("10.00"), "Stress"));
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+
+        // Act
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Assert
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures, first one: " + failures.peek());
+        assertEquals(1, transactionIds.size());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE sender_id = :id",
+                new MapSqlParameterSource("id", senderId), Integer.class));
+        assertEquals(INITIAL_BALANCE.minus(Money.ofCents(1005)),
+                userAccountRepository.findById(senderId).orElseThrow().getBalance());
+    }
+
+    @Test
+    void rejectedTransfer_withIdempotencyKey_shouldLeaveKeyFreeForRetry() {
+        // Arrange
+        List<Long> accountIds = createConnectedAccounts();
+        IdempotencyRecord.Key key = new IdempotencyRecord.Key(accountIds.get(0), "retry");
+
+        // Act: rejected for insufficient balance, then retried with an affordable amount
+        assertThrows(IllegalArgumentException.class, () -> transferIdempotencyService.send(accountIds.get(0), "retry",
+                accountIds.get(1), new BigDecimal("100000.00"), "Stress"));
+        boolean recordedAfterRejection = idempotencyRecordRepository.existsById(key);
+        Long transactionId = transferIdempotencyService.send(accountIds.get(0), "retry",
+                accountIds.get(1), new BigDecimal("10.00"), "Stress");
+
+        // Assert
+        assertFalse(recordedAfterRejection);
+        assertEquals(transactionId, idempotencyRecordRepository.findById(key).orElseThrow().getTransactionId());
+    }
+}
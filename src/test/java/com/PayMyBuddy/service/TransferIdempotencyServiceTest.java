@@ -0,0 +1,139 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Connection;
+import com.PayMyBuddy.model.IdempotencyRecord;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import com.PayMyBuddy.repository.IdempotencyRecordRepository;
+import com.PayMyBuddy.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "paymybuddy.idempotency.cache-size=1")
+@Import({TransferIdempotencyService.class, TransactionService.class, UserStatsService.class, BillingSummaryService.class,
+        UserLookupService.class, ConnectionGraph.class,
+        ConnectionEdgeRepository.class, SimpleMeterRegistry.class})
+class TransferIdempotencyServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransferIdempotencyService transferIdempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private UserAccount sender;
+    private UserAccount receiver;
+    private double initialDuplicates;
+
+    @BeforeEach
+    void setUp() {
+        sender = persistUser("sender@example.com", Money.ofCents(100000));
+        receiver = persistUser("receiver@example.com", Money.ZERO);
+        entityManager.persist(new Connection(null, sender, receiver));
+        // The registry is shared by the tests of this context
+        initialDuplicates = meterRegistry.counter("paymybuddy.transfers.duplicate").count();
+    }
+
+    private UserAccount persistUser(String email, Money balance) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setBalance(balance);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private double duplicates() {
+        return meterRegistry.counter("paymybuddy.transfers.duplicate").count() - initialDuplicates;
+    }
+
+    @Test
+    void send_withSameKeyTwice_shouldTransferOnce() {
+        // Act
+        Long first = transferIdempotencyService.send(sender.getId(), "key-1", receiver.getId(), new BigDecimal("10.00"), "Lunch");
+        Long repeated = transferIdempotencyService.send(sender.getId(), "key-1", receiver.getId(), new BigDecimal("10.00"), "Lunch");
+
+        // Assert
+        assertEquals(first, repeated);
+        assertEquals(1, transactionRepository.count());
+        assertEquals(1, duplicates());
+    }
+
+    @Test
+    void send_withKeyEvictedFromMemory_shouldFindItInDatabase() {
+        // Arrange: the memory keeps a single key, the second transfer evicts the first one
+        Long first = transferIdempotencyService.send(sender.getId(), "key-1", receiver.getId(), new BigDecimal("10.00"), "Lunch");
+        transferIdempotencyService.send(sender.getId(), "key-2", receiver.getId(), new BigDecimal("5.00"), "Coffee");
+
+        // Act
+        Long repeated = transferIdempotencyService.send(sender.getId(), "key-1", receiver.getId(), new BigDecimal("10.00"), "Lunch");
+
+        // Assert
+        assertEquals(first, repeated);
+        assertEquals(2, transactionRepository.count());
+        assertEquals(first, idempotencyRecordRepository.findById(new IdempotencyRecord.Key(sender.getId(), "key-1"))
+                .orElseThrow().getTransactionId());
+    }
+
+    @Test
+    void send_withSameKeyFromAnotherUser_shouldTransferAgain() {
+        // Arrange
+        entityManager.persist(new Connection(null, receiver, sender));
+        transferIdempotencyService.send(sender.getId(), "key-1", receiver.getId(), new BigDecimal("10.00"), "Lunch");
+
+        // Act
+        transferIdempotencyService.send(receiver.getId(), "key-1", sender.getId(), new BigDecimal("2.00"), "Change");
+
+        // Assert
+        assertEquals(2, transactionRepository.count());
+        assertEquals(0, duplicates());
+    }
+
+    @Test
+    void send_withTooLongKey_shouldThrowException() {
+        // Arrange
+        String key = "k".repeat(TransferIdempotencyService.MAX_KEY_LENGTH + 1);
+
+        // Act & Assert
+        Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                transferIdempotencyService.send(sender.getId(), key, receiver.getId(), new BigDecimal("10.00"), "Lunch"));
+        assertEquals("Invalid idempotency key", exception.getMessage());
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteOnlyExpiredKeys() {
+        // Arrange
+        idempotencyRecordRepository.reserve(sender.getId(), "old", LocalDateTime.now().minusDays(2));
+        idempotencyRecordRepository.reserve(sender.getId(), "recent", LocalDateTime.now().minusHours(1));
+
+        // Act
+        int deleted = transferIdempotencyService.purgeExpired();
+
+        // Assert
+        assertEquals(1, deleted);
+        assertTrue(idempotencyRecordRepository.existsById(new IdempotencyRecord.Key(sender.getId(), "recent")));
+    }
+}
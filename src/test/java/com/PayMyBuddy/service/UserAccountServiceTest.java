@@ -1,5 +1,6 @@
 package com.PayMyBuddy.service;
 
+import com.PayMyBuddy.model.Money;
 import com.PayMyBuddy.model.UserAccount;
 import com.PayMyBuddy.repository.UserAccountRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,6 +27,12 @@ class UserAccountServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock
+    private UserLookupService userLookupService;
+
     @InjectMocks
     private UserAccountService userAccountService;
 
@@ -97,6 +104,7 @@ class UserAccountServiceTest {
         newUser.setFirstName("New");
         newUser.setLastName("User");
         newUser.setPassword("password");
+        newUser.setBalance(Money.ofCents(100000));
 
         // Act
         UserAccount savedUser = userAccountService.register(newUser);
@@ -106,6 +114,8 @@ class UserAccountServiceTest {
         verify(userAccountRepository).existsByEmail("new@example.com");
         verify(passwordEncoder).encode("password");
         verify(userAccountRepository).save(newUser);
+        verify(userStatsService).initialize(1L);
+        assertEquals(Money.ZERO, newUser.getBalance());
     }
 
     @Test
@@ -129,6 +139,32 @@ class UserAccountServiceTest {
         verify(userAccountRepository, never()).save(any(UserAccount.class));
     }
 
+    @Test
+    void save_shouldEvictCachedUser() {
+        // Arrange
+        testUser.setPassword("$2a$10$alreadyEncoded");
+        testUser.setEmail("new@example.com");
+        when(userAccountRepository.findStoredEmailById(1L)).thenReturn(Optional.of("test@example.com"));
+        when(userAccountRepository.save(testUser)).thenReturn(testUser);
 
+        // Act
+        userAccountService.save(testUser);
 
+        // Assert
+        verify(passwordEncoder, never()).encode(any());
+        verify(userLookupService).evictUser(1L, "test@example.com", "new@example.com");
+    }
+
+    @Test
+    void delete_shouldEvictCachedUser() {
+        // Arrange
+        when(userAccountRepository.findStoredEmailById(1L)).thenReturn(Optional.of("test@example.com"));
+
+        // Act
+        userAccountService.delete(1L);
+
+        // Assert
+        verify(userAccountRepository).deleteById(1L);
+        verify(userLookupService).evictUser(1L, "test@example.com");
+    }
 }
@@ -0,0 +1,146 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.config.CacheConfig;
+import com.PayMyBuddy.model.UserAccount;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.cache.NullUserCache;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the queries of repeated logins with and without the cached principals, and checks that
+ * a password or email change is seen by the next login.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CacheConfig.class, UserDetailsCache.class, CustomUserDetailsService.class, UserLookupService.class,
+        UserAccountService.class, UserStatsService.class, UserDetailsCacheTest.PasswordEncoderConfig.class})
+class UserDetailsCacheTest {
+
+    private static final int LOGINS = 100;
+
+    @TestConfiguration
+    static class PasswordEncoderConfig {
+
+        // The lowest strength, to keep the test fast
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private UserLookupService userLookupService;
+
+    @Autowired
+    private UserAccountService userAccountService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private Statistics statistics;
+    private UserAccount alice;
+
+    @BeforeEach
+    void setUp() {
+        // The caches are shared by the tests of this context
+        userLookupService.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        alice = new UserAccount();
+        alice.setEmail("alice@example.com");
+        alice.setPassword(passwordEncoder.encode("secret"));
+        alice.setFirstName("Alice");
+        alice.setLastName("Last");
+        entityManager.persist(alice);
+        entityManager.flush();
+    }
+
+    // As in SecurityConfig; ProviderManager erases the password of the returned principal
+    private AuthenticationManager authenticationManager(UserCache userCache) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(customUserDetailsService);
+        provider.setUserCache(userCache);
+        provider.setPasswordEncoder(passwordEncoder);
+        return new ProviderManager(provider);
+    }
+
+    private static void login(AuthenticationManager authenticationManager, String email, String password) {
+        authenticationManager.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(email, password));
+    }
+
+    private long queriesOfLogins(AuthenticationManager authenticationManager) {
+        statistics.clear();
+        for (int i = 0; i < LOGINS; i++) {
+            login(authenticationManager, "alice@example.com", "secret");
+        }
+        return statistics.getQueryExecutionCount();
+    }
+
+    @Test
+    void login_withCachedPrincipal_shouldReadAccountOnce() {
+        // Act
+        long uncached = queriesOfLogins(authenticationManager(new NullUserCache()));
+        long cached = queriesOfLogins(authenticationManager(userDetailsCache));
+
+        // Assert: one query per login without cache, one for all the logins with it
+        assertEquals(LOGINS, uncached);
+        assertEquals(1, cached);
+    }
+
+    @Test
+    void login_afterPasswordChange_shouldRejectFormerPassword() {
+        // Arrange
+        AuthenticationManager authenticationManager = authenticationManager(userDetailsCache);
+        login(authenticationManager, "alice@example.com", "secret");
+
+        // Act
+        alice.setPassword("newSecret");
+        userAccountService.save(alice);
+        entityManager.flush();
+
+        // Assert
+        assertThrows(BadCredentialsException.class, () -> login(authenticationManager, "alice@example.com", "secret"));
+        assertDoesNotThrow(() -> login(authenticationManager, "alice@example.com", "newSecret"));
+    }
+
+    @Test
+    void login_afterEmailChange_shouldRejectFormerEmail() {
+        // Arrange
+        AuthenticationManager authenticationManager = authenticationManager(userDetailsCache);
+        login(authenticationManager, "alice@example.com", "secret");
+
+        // Act
+        alice.setEmail("alice.new@example.com");
+        userAccountService.save(alice);
+        entityManager.flush();
+
+        // Assert
+        assertThrows(BadCredentialsException.class, () -> login(authenticationManager, "alice@example.com", "secret"));
+        assertDoesNotThrow(() -> login(authenticationManager, "alice.new@example.com", "secret"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.config.CacheConfig;
+import com.PayMyBuddy.dto.UserAccountSummary;
+import com.PayMyBuddy.model.Connection;
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import com.PayMyBuddy.repository.UserAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the queries of a transfer with and without the cached lookups, and checks that
+ * the entries are evicted when a profile or a contact changes.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CacheConfig.class, UserLookupService.class, TransactionService.class, ConnectionService.class,
+        UserStatsService.class, BillingSummaryService.class, ConnectionGraph.class,
+        ConnectionEdgeRepository.class, SimpleMeterRegistry.class})
+class UserLookupServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserLookupService userLookupService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ConnectionService connectionService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UserAccountRepository userAccountRepository;
+
+    private Statistics statistics;
+    private UserAccount alice;
+    private UserAccount bob;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() {
+        // The caches are shared by the tests of this context
+        userLookupService.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        alice = persistUser("alice@example.com");
+        bob = persistUser("bob@example.com");
+        connection = new Connection(null, alice, bob);
+        entityManager.persist(connection);
+        entityManager.flush();
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setBalance(Money.ofCents(100000));
+        entityManager.persist(user);
+        return user;
+    }
+
+    private long queriesOfTransfer() {
+        statistics.clear();
+        transactionService.makeTransaction(alice.getId(), bob.getId(), new BigDecimal("10.00"), "Payment");
+        entityManager.flush();
+        return statistics.getQueryExecutionCount();
+    }
+
+    private long hits(String cacheName) {
+        return ((CaffeineCache) cacheManager.getCache(cacheName)).getNativeCache().stats().hitCount();
+    }
+
+    @Test
+    void makeTransaction_withCachedLookups_shouldSkipAccountAndConnectionQueries() {
+        // Arrange: the first transfer of the day also creates the stats and billing summary rows
+        queriesOfTransfer();
+        userLookupService.clear();
+        long accountHits = hits(UserLookupService.USERS_BY_ID);
+        long connectionHits = hits(UserLookupService.CONNECTIONS);
+
+        // Act
+        long uncached = queriesOfTransfer();
+        long cached = queriesOfTransfer();
+
+        // Assert: the two accounts and the connection are read from the cache
+        assertEquals(uncached - 3, cached, uncached + " queries without cache, " + cached + " with");
+        assertEquals(accountHits + 2, hits(UserLookupService.USERS_BY_ID));
+        assertEquals(connectionHits + 1, hits(UserLookupService.CONNECTIONS));
+    }
+
+    @Test
+    void deleteConnection_shouldEvictCachedConnection() {
+        // Arrange
+        assertTrue(userLookupService.isConnected(alice.getId(), bob.getId()));
+
+        // Act
+        connectionService.deleteConnection(connection.getId());
+        entityManager.flush();
+
+        // Assert
+        assertFalse(userLookupService.isConnected(alice.getId(), bob.getId()));
+    }
+
+    @Test
+    void createConnection_shouldEvictCachedAbsence() {
+        // Arrange
+        assertFalse(userLookupService.isConnected(bob.getId(), alice.getId()));
+
+        // Act
+        connectionService.createConnection(bob.getId(), alice.getId());
+        entityManager.flush();
+
+        // Assert
+        assertTrue(userLookupService.isConnected(bob.getId(), alice.getId()));
+    }
+
+    @Test
+    void evictUser_afterEmailChange_shouldForgetPreviousEmail() {
+        // Arrange
+        assertTrue(userLookupService.findByEmail("alice@example.com").isPresent());
+        assertTrue(userLookupService.findByEmail("bob@example.com").isPresent());
+        assertEquals("alice@example.com", userLookupService.findById(alice.getId()).orElseThrow().email());
+        alice.setEmail("alice.new@example.com");
+        String previousEmail = userAccountRepository.findStoredEmailById(alice.getId()).orElseThrow();
+        entityManager.flush();
+
+        // Act
+        userLookupService.evictUser(alice.getId(), previousEmail, alice.getEmail());
+
+        // Assert: the pending change was not flushed by the read, and the other emails stay cached
+        assertEquals("alice@example.com", previousEmail);
+        assertEquals(Optional.empty(), userLookupService.findByEmail("alice@example.com"));
+        assertEquals(new UserAccountSummary(alice.getId(), "alice.new@example.com", "First", "Last"),
+                userLookupService.findById(alice.getId()).orElseThrow());
+        assertNotNull(cacheManager.getCache(UserLookupService.USERS_BY_EMAIL).get("bob@example.com"));
+    }
+
+    @Test
+    void findById_withUnknownAccount_shouldNotCacheTheMiss() {
+        // Act
+        userLookupService.findById(-1L);
+        userLookupService.findById(-1L);
+
+        // Assert
+        assertNull(cacheManager.getCache(UserLookupService.USERS_BY_ID).get(-1L));
+    }
+}
@@ -0,0 +1,170 @@
+package com.PayMyBuddy.service;
+
+import com.PayMyBuddy.model.Money;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.model.UserStats;
+import com.PayMyBuddy.repository.ConnectionEdgeRepository;
+import com.PayMyBuddy.repository.UserStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the user_stats counters against the source tables after connections and transfers,
+ * and the repair of counters that drifted or were never created.
+ */
+@DataJpaTest(properties = "paymybuddy.stats.batch-size=2")
+@Import({UserStatsService.class, ConnectionService.class, TransactionService.class, BillingSummaryService.class,
+        UserLookupService.class, ConnectionGraph.class,
+        ConnectionEdgeRepository.class, SimpleMeterRegistry.class})
+class UserStatsServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private ConnectionService connectionService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private UserAccount alice;
+    private UserAccount bob;
+    private UserAccount carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = persistUser("alice@example.com");
+        bob = persistUser("bob@example.com");
+        carol = persistUser("carol@example.com");
+    }
+
+    private UserAccount persistUser(String email) {
+        UserAccount user = new UserAccount();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        user.setBalance(Money.ofCents(100000));
+        entityManager.persist(user);
+        entityManager.flush();
+        userStatsService.initialize(user.getId());
+        return user;
+    }
+
+    private UserStats reload(UserAccount user) {
+        entityManager.flush();
+        entityManager.clear();
+        return userStatsService.getStats(user.getId());
+    }
+
+    @Test
+    void counters_afterConnectionsAndTransfers_shouldMatchSourceTables() {
+        // Arrange
+        connectionService.createConnection(alice.getId(), bob.getId());
+        connectionService.createConnection(alice.getId(), carol.getId());
+        connectionService.createConnection(bob.getId(), alice.getId());
+
+        // Act
+        transactionService.makeTransaction(alice.getId(), bob.getId(), new BigDecimal("10.00"), "Lunch");
+        transactionService.makeTransaction(bob.getId(), alice.getId(), new BigDecimal("2.50"), "Coffee");
+        transactionService.makeTransaction(alice.getId(), carol.getId(), new BigDecimal("7.25"), null);
+        connectionService.deleteConnectionBetweenUsers(alice.getId(), carol.getId());
+
+        // Assert
+        UserStats stats = reload(alice);
+        assertEquals(1, stats.getConnectionCount());
+        assertEquals(2, stats.getSentCount());
+        assertEquals(1, stats.getReceivedCount());
+        assertEquals(3, stats.getTransactionCount());
+        assertEquals(Money.ofCents(1725), stats.getSentTotal());
+        assertEquals(Money.ofCents(250), stats.getReceivedTotal());
+        assertEquals(List.of(), userStatsService.findInconsistentUserIds());
+    }
+
+    @Test
+    void checkAndRepair_withDriftedCounters_shouldRebuildThem() {
+        // Arrange
+        connectionService.createConnection(alice.getId(), bob.getId());
+        transactionService.makeTransaction(alice.getId(), bob.getId(), new BigDecimal("10.00"), "Lunch");
+        entityManager.flush();
+        entityManager.createNativeQuery("UPDATE user_stats SET sent_count = 42 WHERE user_id = :userId")
+                .setParameter("userId", alice.getId())
+                .executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM user_stats WHERE user_id = :userId")
+                .setParameter("userId", carol.getId())
+                .executeUpdate();
+
+        // Act
+        List<Long> inconsistent = userStatsService.findInconsistentUserIds();
+        int repaired = userStatsService.checkAndRepair();
+
+        // Assert
+        assertEquals(List.of(alice.getId(), carol.getId()), inconsistent);
+        assertEquals(2, repaired);
+        assertEquals(List.of(), userStatsService.findInconsistentUserIds());
+        assertEquals(1, reload(alice).getSentCount());
+        assertTrue(userStatsRepository.existsById(carol.getId()));
+    }
+
+    @Test
+    void recordTransfer_withMissingRow_shouldCreateItFromSourceTables() {
+        // Arrange
+        connectionService.createConnection(alice.getId(), bob.getId());
+        entityManager.flush();
+        entityManager.createNativeQuery("DELETE FROM user_stats").executeUpdate();
+
+        // Act
+        transactionService.makeTransaction(alice.getId(), bob.getId(), new BigDecimal("10.00"), "Lunch");
+
+        // Assert
+        UserStats sender = reload(alice);
+        assertEquals(1, sender.getConnectionCount());
+        assertEquals(1, sender.getSentCount());
+        assertEquals(Money.ofCents(1000), sender.getSentTotal());
+        assertEquals(Money.ofCents(1000), reload(bob).getReceivedTotal());
+    }
+
+    @Test
+    void getStats_withMissingRow_shouldComputeIt() {
+        // Arrange
+        connectionService.createConnection(carol.getId(), alice.getId());
+        entityManager.flush();
+        entityManager.createNativeQuery("DELETE FROM user_stats").executeUpdate();
+
+        // Act
+        UserStats stats = reload(carol);
+
+        // Assert
+        assertEquals(1, stats.getConnectionCount());
+        assertEquals(0, stats.getTransactionCount());
+    }
+
+    @Test
+    void rebuildAll_shouldRecomputeEveryUser() {
+        // Arrange
+        entityManager.createNativeQuery("UPDATE user_stats SET received_count = 7").executeUpdate();
+
+        // Act
+        long rebuilt = userStatsService.rebuildAll();
+
+        // Assert
+        assertEquals(3, rebuilt);
+        assertEquals(0, reload(bob).getReceivedCount());
+    }
+}
@@ -0,0 +1,123 @@
+package com.PayMyBuddy.util;
+
+import com.PayMyBuddy.dto.AuthenticatedUser;
+import com.PayMyBuddy.model.UserAccount;
+import com.PayMyBuddy.service.UserAccountService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuthenticationUtilsTest {
+
+    @Mock
+    private UserAccountService userAccountService;
+
+    @InjectMocks
+    private AuthenticationUtils authenticationUtils;
+
+    private UserAccount testUser;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        testUser = new UserAccount();
+        testUser.setId(1L);
+        testUser.setEmail("test@example.com");
+        testUser.setFirstName("Test");
+        testUser.setLastName("User");
+        testUser.setPassword("encodedPassword");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticate(Object principal) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Test
+    void getAuthenticatedUser_withPrincipalFromLogin_shouldNotQueryDatabase() {
+        // Arrange
+        authenticate(new AuthenticatedUser(testUser, List.of()));
+
+        // Act
+        AuthenticatedUser result = authenticationUtils.getAuthenticatedUser();
+
+        // Assert
+        assertEquals(1L, result.getId());
+        assertEquals("test@example.com", result.getEmail());
+        assertEquals("Test", result.getFirstName());
+        verifyNoInteractions(userAccountService);
+    }
+
+    @Test
+    void getAuthenticatedUser_withOtherPrincipal_shouldResolveUserByEmail() {
+        // Arrange
+        authenticate("test@example.com");
+        when(userAccountService.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+
+        // Act
+        AuthenticatedUser result = authenticationUtils.getAuthenticatedUser();
+
+        // Assert
+        assertEquals(1L, result.getId());
+        assertNull(result.getPassword());
+        verify(userAccountService).findByEmail("test@example.com");
+    }
+
+    @Test
+    void getCurrentUser_shouldLoadEntityById() {
+        // Arrange
+        authenticate(new AuthenticatedUser(testUser, List.of()));
+        when(userAccountService.findById(1L)).thenReturn(Optional.of(testUser));
+
+        // Act
+        UserAccount result = authenticationUtils.getCurrentUser();
+
+        // Assert
+        assertEquals(testUser, result);
+        verify(userAccountService, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void getCurrentUserId_withoutAuthentication_shouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> authenticationUtils.getCurrentUserId());
+    }
+
+    @Test
+    void refreshAuthenticatedUser_shouldReplacePrincipalWithUpdatedUser() {
+        // Arrange
+        authenticate(new AuthenticatedUser(testUser, List.of()));
+        testUser.setEmail("new@example.com");
+        testUser.setFirstName("New");
+
+        // Act
+        authenticationUtils.refreshAuthenticatedUser(testUser);
+
+        // Assert
+        AuthenticatedUser result = authenticationUtils.getAuthenticatedUser();
+        assertEquals("new@example.com", result.getEmail());
+        assertEquals("New", result.getFirstName());
+        assertEquals("new@example.com", authenticationUtils.getCurrentUserEmail());
+        assertTrue(result.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_USER")));
+        verifyNoInteractions(userAccountService);
+    }
+}